@@ -0,0 +1,59 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.model.BookEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la conversión entre BookDTO y BookEntity sobre los 32 libros de una página de la API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookMappingBenchmark {
+
+    private BookMapper bookMapper;
+    private List<BookDTO> books;
+    private List<BookEntity> entities;
+
+    @Setup
+    public void setUp() {
+        bookMapper = new BookMapper();
+        PersonMapper personMapper = new PersonMapper();
+        ReflectionTestUtils.setField(personMapper, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(personMapper, "authorNames", new AuthorNameDictionary());
+        ReflectionTestUtils.setField(bookMapper, "personMapper", personMapper);
+        ReflectionTestUtils.setField(bookMapper, "meterRegistry", new SimpleMeterRegistry());
+
+        books = Fixtures.apiService().deserializeBooks(Fixtures.read(Fixtures.GUTENDEX_PAGE));
+        entities = books.stream().map(bookMapper::toEntity).toList();
+    }
+
+    @Benchmark
+    public void toEntity(Blackhole blackhole) {
+        for (BookDTO book : books) blackhole.consume(bookMapper.toEntity(book));
+    }
+
+    @Benchmark
+    public void toDTO(Blackhole blackhole) {
+        for (BookEntity entity : entities) blackhole.consume(bookMapper.toDTO(entity));
+    }
+}
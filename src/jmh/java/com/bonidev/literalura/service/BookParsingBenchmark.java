@@ -0,0 +1,99 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.FormatLinks;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la deserialización de una página de la API: la respuesta completa y los 32 objetos "formats" por
+ * separado, comparando el lector por tokens con la versión anterior basada en readTree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookParsingBenchmark {
+
+    private BookApiService apiService;
+    private ObjectMapper streamingMapper;
+    private ObjectMapper treeMapper;
+    private ObjectMapper formatLinksMapper;
+    private String page;
+    private List<String> formats;
+
+    @Setup
+    public void setUp() throws IOException {
+        apiService = Fixtures.apiService();
+        page = Fixtures.read(Fixtures.GUTENDEX_PAGE);
+        formats = new ArrayList<>();
+        for (JsonNode book : new ObjectMapper().readTree(page).get("results")) {
+            formats.add(book.get("formats").toString());
+        }
+
+        // Mappers que deserializan cualquier String (o FormatLinks) con el deserializador medido, para aislarlo
+        streamingMapper = mapperWith(String.class, new NestedJsonDeserializer());
+        treeMapper = mapperWith(String.class, new TreeNestedJsonDeserializer());
+        formatLinksMapper = mapperWith(FormatLinks.class, new FormatLinksDeserializer());
+    }
+
+    @Benchmark
+    public List<BookDTO> deserializeBooks() {
+        return apiService.deserializeBooks(page);
+    }
+
+    @Benchmark
+    public void nestedJsonDeserializer(Blackhole blackhole) throws IOException {
+        for (String json : formats) blackhole.consume(streamingMapper.readValue(json, String.class));
+    }
+
+    @Benchmark
+    public void nestedJsonDeserializerWithReadTree(Blackhole blackhole) throws IOException {
+        for (String json : formats) blackhole.consume(treeMapper.readValue(json, String.class));
+    }
+
+    @Benchmark
+    public void formatLinksDeserializer(Blackhole blackhole) throws IOException {
+        for (String json : formats) blackhole.consume(formatLinksMapper.readValue(json, FormatLinks.class));
+    }
+
+    private static <T> ObjectMapper mapperWith(Class<T> type, JsonDeserializer<? extends T> deserializer) {
+        return new ObjectMapper().registerModule(new SimpleModule().addDeserializer(type, deserializer));
+    }
+
+    /**
+     * La implementación anterior de NestedJsonDeserializer, que materializa el objeto como árbol, como
+     * referencia de la comparación.
+     */
+    static class TreeNestedJsonDeserializer extends JsonDeserializer<String> {
+
+        @Override
+        public String deserialize(JsonParser jp, DeserializationContext dc) throws IOException {
+            JsonNode node = jp.getCodec().readTree(jp);
+            JsonNode htmlNode = node.get("text/html");
+            return htmlNode != null ? htmlNode.asText() : null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el texto que la consola imprime por cada libro y autor: los nombres de autores, los idiomas y los
+ * toString basados en String.format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookRenderingBenchmark {
+
+    private List<BookDTO> books;
+    private List<BookEntity> entities;
+    private List<PersonEntity> persons;
+
+    @Setup
+    public void setUp() {
+        BookMapper bookMapper = new BookMapper();
+        PersonMapper personMapper = new PersonMapper();
+        ReflectionTestUtils.setField(personMapper, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(personMapper, "authorNames", new AuthorNameDictionary());
+        ReflectionTestUtils.setField(bookMapper, "personMapper", personMapper);
+        ReflectionTestUtils.setField(bookMapper, "meterRegistry", new SimpleMeterRegistry());
+
+        books = Fixtures.apiService().deserializeBooks(Fixtures.read(Fixtures.GUTENDEX_PAGE));
+        entities = books.stream().map(bookMapper::toEntity).toList();
+        persons = entities.stream().flatMap(book -> book.getAuthors().stream()).toList();
+        // Los autores impresos muestran sus libros, como en el listado de autores
+        entities.forEach(book -> book.getAuthors().forEach(author -> author.getBooks().add(book)));
+    }
+
+    @Benchmark
+    public void authorsNames(Blackhole blackhole) {
+        for (BookDTO book : books) blackhole.consume(book.getAuthorsNames());
+    }
+
+    @Benchmark
+    public void allLanguages(Blackhole blackhole) {
+        for (BookDTO book : books) blackhole.consume(book.getAllLanguages());
+    }
+
+    @Benchmark
+    public void bookDtoToString(Blackhole blackhole) {
+        for (BookDTO book : books) blackhole.consume(book.toString());
+    }
+
+    @Benchmark
+    public void personDtoToString(Blackhole blackhole) {
+        for (BookDTO book : books) {
+            for (PersonDTO author : book.authors()) blackhole.consume(author.toString());
+        }
+    }
+
+    @Benchmark
+    public void bookEntityToString(Blackhole blackhole) {
+        for (BookEntity book : entities) blackhole.consume(book.toString());
+    }
+
+    @Benchmark
+    public void personEntityToString(Blackhole blackhole) {
+        for (PersonEntity person : persons) blackhole.consume(person.toString());
+    }
+}
@@ -0,0 +1,49 @@
+package com.bonidev.literalura.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Acceso a las respuestas de la API guardadas en {@code src/jmh/resources/fixtures}.
+ */
+final class Fixtures {
+
+    /**
+     * Una página de resultados de Gutendex con 32 libros, con todos los campos que devuelve la API.
+     */
+    static final String GUTENDEX_PAGE = "/fixtures/gutendex-page.json";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Lee una respuesta guardada.
+     *
+     * @param name La ruta de la respuesta dentro del classpath.
+     * @return El contenido de la respuesta.
+     */
+    static String read(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException("No se encontró la respuesta " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Crea un BookApiService que no realiza solicitudes, para medir solo la deserialización.
+     *
+     * @return El servicio.
+     */
+    static BookApiService apiService() {
+        return new BookApiService(HttpClient.newHttpClient(), new ObjectMapper(), "http://localhost",
+                new ApiResponseCache(1, Duration.ZERO, Duration.ZERO), 1);
+    }
+}
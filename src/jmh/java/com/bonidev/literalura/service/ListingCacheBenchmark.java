@@ -0,0 +1,101 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.LiteraluraApplication;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la latencia de los listados repetidos por idioma y de autores vivos sobre H2, con y sin la caché de
+ * segundo nivel de Hibernate. Cada listado recorre los autores o libros asociados, como lo hace la consola.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingCacheBenchmark {
+
+    private static final int BOOKS = 2_000;
+    private static final int AUTHORS = 200;
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private PersonService personService;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(LiteraluraApplication.class)
+                .web(WebApplicationType.NONE)
+                // Argumentos de línea de comandos: tienen prioridad sobre application.properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:listings_" + cache + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=" + cache,
+                        "--literalura.console.enabled=false",
+                        "--literalura.index.lifespans.enabled=false",
+                        "--literalura.metrics.port=false");
+        bookService = context.getBean(BookService.class);
+        personService = context.getBean(PersonService.class);
+
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            int author = i % AUTHORS;
+            books.add(new BookDTO("Libro " + i, Set.of(new PersonDTO("Autor " + author, 1700 + author, 1760 + author)),
+                    Set.of(i % 3 == 0 ? "fr" : "es"), null, i));
+            if (books.size() == 100) {
+                bookService.saveBooks(books);
+                books.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void booksByLanguage(Blackhole blackhole) {
+        for (BookEntity book : bookService.getBooksByLanguage("fr")) {
+            for (PersonEntity author : book.getAuthors()) blackhole.consume(author.getName());
+        }
+    }
+
+    @Benchmark
+    public void livingAuthorsInAYear(Blackhole blackhole) {
+        for (PersonEntity person : personService.getLivingPersonsInAGivenYear(1850)) {
+            blackhole.consume(person.getBooks().size());
+        }
+    }
+}
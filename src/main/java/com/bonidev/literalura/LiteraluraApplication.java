@@ -1,35 +1,124 @@
 package com.bonidev.literalura;
 
+import com.bonidev.literalura.service.BatchIngestService;
 import com.bonidev.literalura.service.BookApiService;
 import com.bonidev.literalura.service.BookMapper;
 import com.bonidev.literalura.service.BookService;
+import com.bonidev.literalura.service.BookWriteBehindQueue;
+import com.bonidev.literalura.service.CatalogImportService;
+import com.bonidev.literalura.service.CatalogSnapshotService;
 import com.bonidev.literalura.service.PersonService;
 import com.bonidev.literalura.view.Principal;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 @SpringBootApplication
 public class LiteraluraApplication implements CommandLineRunner {
 
+	// Los servicios de cada modo se obtienen al usarse: con inicialización diferida solo se crean los del modo elegido
+	@Autowired
+	private ObjectProvider<BookService> bookService;
+
+	@Autowired
+	private ObjectProvider<PersonService> personService;
+
+	@Autowired
+	private ObjectProvider<BookApiService> bookApiService;
+
+	@Autowired
+	private ObjectProvider<BookMapper> bookMapper;
+
+	@Autowired
+	private ObjectProvider<CatalogImportService> catalogImportService;
+
 	@Autowired
-	private BookService bookService;
+	private ObjectProvider<CatalogSnapshotService> catalogSnapshotService;
 
 	@Autowired
-	private PersonService personService;
+	private ObjectProvider<BatchIngestService> batchIngestService;
 
 	@Autowired
-	private BookApiService bookApiService;
+	private ObjectProvider<BookWriteBehindQueue> writeBehindQueue;
 
 	@Autowired
-	private BookMapper bookMapper;
+	private ApplicationArguments arguments;
+
+	@Value("${literalura.console.enabled:true}")
+	private boolean consoleEnabled;
+
+	@Value("${literalura.startup.report:false}")
+	private boolean startupReport;
 
 	public static void main(String[] args) {SpringApplication.run(LiteraluraApplication.class, args);}
 
 	@Override
 	public void run(String... args) {
-		Principal principal = new Principal(bookMapper, bookService, personService, bookApiService);
+		// Importación masiva sin menú: --import-catalog=<ruta al catálogo>
+		if (arguments.containsOption("import-catalog")) {
+			for (String catalog : arguments.getOptionValues("import-catalog")) {
+				System.out.println(catalogImportService.getObject().importCatalog(Path.of(catalog)));
+			}
+			return;
+		}
+
+		// Instantánea binaria del catálogo, para cargarla luego con literalura.snapshot.file: --export-snapshot=<ruta>
+		if (arguments.containsOption("export-snapshot")) {
+			System.out.println(catalogSnapshotService.getObject().export(Path.of(arguments.getOptionValues("export-snapshot").get(0))));
+			return;
+		}
+
+		// Catálogo mapeado fuera del heap, para abrirlo luego con literalura.snapshot.mapped-file: --export-mapped-catalog=<ruta>
+		if (arguments.containsOption("export-mapped-catalog")) {
+			System.out.println(catalogSnapshotService.getObject().exportMapped(Path.of(arguments.getOptionValues("export-mapped-catalog").get(0))));
+			return;
+		}
+
+		// Búsqueda y registro por lotes sin menú: --batch=<archivo de términos o "-"> [--batch-summary=<ruta>]
+		if (arguments.containsOption("batch")) {
+			runBatch(arguments.getOptionValues("batch").get(0));
+			return;
+		}
+
+		// En modo servidor (perfil "server") la aplicación solo atiende la API REST
+		if (!consoleEnabled) return;
+
+		Principal principal = new Principal(bookMapper.getObject(), bookService.getObject(), personService.getObject(),
+				bookApiService.getObject(), writeBehindQueue.getObject());
+		if (startupReport) {
+			// Tiempo desde que arrancó la JVM hasta que el menú está por mostrarse
+			System.out.println("Menú listo en " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
+		}
 		principal.showMenu();
 	}
+
+	private void runBatch(String source) {
+		try (BufferedReader input = "-".equals(source)
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(Path.of(source))) {
+			BatchIngestService batch = batchIngestService.getObject();
+			String summary = batch.toJson(batch.ingest(input));
+
+			if (arguments.containsOption("batch-summary")) {
+				Files.writeString(Path.of(arguments.getOptionValues("batch-summary").get(0)), summary);
+			} else {
+				System.out.println(summary);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 }
@@ -0,0 +1,357 @@
+package com.bonidev.literalura.catalog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Contenido completo del catálogo (tablas books, persons, book_author y book_language) en columnas, junto con
+ * su formato binario compacto y versionado.
+ * <p>
+ * Formato, versión 1 (los enteros son varints LEB128 sin signo salvo que se indique otra cosa; las cadenas son
+ * su longitud en bytes seguida de UTF-8):
+ * <pre>
+ *   "LSNP" (4 bytes), versión
+ *   idiomas:  cantidad, códigos
+ *   nombres:  cantidad, nombres de autor distintos
+ *   personas: cantidad y, por persona: diferencia con el id anterior, índice del nombre,
+ *             año de nacimiento y de fallecimiento (zigzag)
+ *   libros:   cantidad y, por libro: diferencia con el id anterior, título, enlace (longitud + 1; 0 si es null),
+ *             descargas (zigzag), cantidad e índices de sus autores, cantidad e índices de sus idiomas
+ *   CRC32 de todo lo anterior (4 bytes, big endian)
+ * </pre>
+ * Los autores de un libro se guardan como posiciones en la tabla de personas y los idiomas como posiciones en
+ * el diccionario de idiomas.
+ *
+ * @param languages      Los códigos de idioma distintos.
+ * @param names          Los nombres de autor distintos.
+ * @param personIds      Los identificadores de las personas, en orden ascendente.
+ * @param personNames    El índice en {@code names} del nombre de cada persona.
+ * @param birthYears     El año de nacimiento de cada persona.
+ * @param deathYears     El año de fallecimiento de cada persona.
+ * @param bookIds        Los identificadores de los libros, en orden ascendente.
+ * @param titles         El título de cada libro.
+ * @param htmlLinks      El enlace HTML de cada libro, o null.
+ * @param downloadCounts Las descargas de cada libro.
+ * @param bookAuthors    Las posiciones en la tabla de personas de los autores de cada libro.
+ * @param bookLanguages  Las posiciones en {@code languages} de los idiomas de cada libro.
+ */
+public record CatalogSnapshot(List<String> languages, List<String> names,
+                              long[] personIds, int[] personNames, int[] birthYears, int[] deathYears,
+                              long[] bookIds, String[] titles, String[] htmlLinks, int[] downloadCounts,
+                              int[][] bookAuthors, int[][] bookLanguages) {
+
+    /**
+     * Versión del formato que escribe esta clase.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'L', 'S', 'N', 'P'};
+
+    public int personCount() {
+        return personIds.length;
+    }
+
+    public int bookCount() {
+        return bookIds.length;
+    }
+
+    /**
+     * Escribe la instantánea en un archivo. El archivo se reemplaza de una vez al terminar, de modo que una
+     * escritura interrumpida no deja una instantánea a medias.
+     *
+     * @param file El archivo de destino.
+     * @return El número de bytes escritos.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public long write(Path file) throws IOException {
+        byte[] bytes = encode();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temporary, bytes);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return bytes.length;
+    }
+
+    /**
+     * Lee una instantánea de un archivo.
+     *
+     * @param file El archivo de la instantánea.
+     * @return La instantánea leída.
+     * @throws IOException Si no se puede leer el archivo, su versión no es compatible o está dañado.
+     */
+    public static CatalogSnapshot read(Path file) throws IOException {
+        return decode(Files.readAllBytes(file));
+    }
+
+    /**
+     * Codifica la instantánea en el formato binario.
+     *
+     * @return Los bytes de la instantánea.
+     */
+    public byte[] encode() {
+        Encoder out = new Encoder();
+        out.bytes(MAGIC);
+        out.varint(VERSION);
+
+        out.varint(languages.size());
+        languages.forEach(out::string);
+        out.varint(names.size());
+        names.forEach(out::string);
+
+        out.varint(personIds.length);
+        long previousId = 0;
+        for (int i = 0; i < personIds.length; i++) {
+            out.varlong(personIds[i] - previousId);
+            previousId = personIds[i];
+            out.varint(personNames[i]);
+            out.varint(zigzag(birthYears[i]));
+            out.varint(zigzag(deathYears[i]));
+        }
+
+        out.varint(bookIds.length);
+        previousId = 0;
+        for (int i = 0; i < bookIds.length; i++) {
+            out.varlong(bookIds[i] - previousId);
+            previousId = bookIds[i];
+            out.string(titles[i]);
+            out.nullableString(htmlLinks[i]);
+            out.varint(zigzag(downloadCounts[i]));
+            out.varints(bookAuthors[i]);
+            out.varints(bookLanguages[i]);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(out.buffer, 0, out.size);
+        out.int32((int) crc.getValue());
+        return Arrays.copyOf(out.buffer, out.size);
+    }
+
+    /**
+     * Decodifica una instantánea del formato binario.
+     *
+     * @param bytes Los bytes de la instantánea.
+     * @return La instantánea decodificada.
+     * @throws IOException Si la versión no es compatible o los datos están dañados.
+     */
+    public static CatalogSnapshot decode(byte[] bytes) throws IOException {
+        if (bytes.length < MAGIC.length + 5 || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("El archivo no es una instantánea del catálogo");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        Decoder in = new Decoder(bytes, bytes.length - 4);
+        if ((int) crc.getValue() != in.int32At(bytes.length - 4)) {
+            throw new IOException("La instantánea del catálogo está dañada (CRC32 no coincide)");
+        }
+
+        in.position = MAGIC.length;
+        int version = in.varint();
+        if (version != VERSION) {
+            throw new IOException("Versión de instantánea no compatible: " + version + " (se esperaba " + VERSION + ")");
+        }
+
+        try {
+            List<String> languages = in.strings();
+            List<String> names = in.strings();
+
+            int persons = in.count();
+            long[] personIds = new long[persons];
+            int[] personNames = new int[persons];
+            int[] birthYears = new int[persons];
+            int[] deathYears = new int[persons];
+            long id = 0;
+            for (int i = 0; i < persons; i++) {
+                id += in.varlong();
+                personIds[i] = id;
+                personNames[i] = in.index(names.size());
+                birthYears[i] = unzigzag(in.varint());
+                deathYears[i] = unzigzag(in.varint());
+            }
+
+            int books = in.count();
+            long[] bookIds = new long[books];
+            String[] titles = new String[books];
+            String[] htmlLinks = new String[books];
+            int[] downloadCounts = new int[books];
+            int[][] bookAuthors = new int[books][];
+            int[][] bookLanguages = new int[books][];
+            id = 0;
+            for (int i = 0; i < books; i++) {
+                id += in.varlong();
+                bookIds[i] = id;
+                titles[i] = in.string();
+                htmlLinks[i] = in.nullableString();
+                downloadCounts[i] = unzigzag(in.varint());
+                bookAuthors[i] = in.indexes(persons);
+                bookLanguages[i] = in.indexes(languages.size());
+            }
+
+            if (in.position != in.limit) throw new IOException("La instantánea del catálogo tiene datos sobrantes");
+            return new CatalogSnapshot(languages, names, personIds, personNames, birthYears, deathYears,
+                    bookIds, titles, htmlLinks, downloadCounts, bookAuthors, bookLanguages);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("La instantánea del catálogo está truncada", e);
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Búfer de escritura que crece según se necesita.
+     */
+    private static final class Encoder {
+        private byte[] buffer = new byte[1 << 16];
+        private int size;
+
+        void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void varints(int[] values) {
+            varint(values.length);
+            for (int value : values) varint(value);
+        }
+
+        void string(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            bytes(utf8);
+        }
+
+        void nullableString(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            bytes(utf8);
+        }
+
+        void int32(int value) {
+            ensure(4);
+            buffer[size++] = (byte) (value >>> 24);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * Cursor de lectura sobre los bytes de la instantánea, sin incluir el CRC32 final.
+     */
+    private static final class Decoder {
+        private final byte[] bytes;
+        private final int limit;
+        private int position;
+
+        Decoder(byte[] bytes, int limit) {
+            this.bytes = bytes;
+            this.limit = limit;
+        }
+
+        int varint() throws IOException {
+            long value = varlong();
+            if (value > 0xFFFFFFFFL) throw new IOException("Entero fuera de rango en la instantánea del catálogo");
+            return (int) value;
+        }
+
+        long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IOException("Varint demasiado largo en la instantánea del catálogo");
+        }
+
+        int index(int bound) throws IOException {
+            int index = varint();
+            if (index < 0 || index >= bound) throw new IOException("Índice fuera de rango en la instantánea del catálogo: " + index);
+            return index;
+        }
+
+        int[] indexes(int bound) throws IOException {
+            int[] indexes = new int[count()];
+            for (int i = 0; i < indexes.length; i++) indexes[i] = index(bound);
+            return indexes;
+        }
+
+        List<String> strings() throws IOException {
+            int count = count();
+            List<String> strings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) strings.add(string());
+            return List.copyOf(strings);
+        }
+
+        String string() throws IOException {
+            return utf8(count());
+        }
+
+        String nullableString() throws IOException {
+            int length = count();
+            return length == 0 ? null : utf8(length - 1);
+        }
+
+        int int32At(int offset) {
+            return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                    | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+        }
+
+        /**
+         * Lee una cantidad o longitud, que no puede superar los bytes restantes.
+         */
+        private int count() throws IOException {
+            int count = varint();
+            if (count < 0 || count > limit - position) throw new IOException("Longitud inválida en la instantánea del catálogo: " + count);
+            return count;
+        }
+
+        private String utf8(int length) {
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private byte next() {
+            if (position >= limit) throw new IndexOutOfBoundsException(position);
+            return bytes[position++];
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.bonidev.literalura.catalog;
+
+import com.bonidev.literalura.index.DecadeHistogram;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catálogo de solo lectura sobre un archivo mapeado en memoria, fuera del heap. Los libros, las personas y los
+ * idiomas son tablas de registros de ancho fijo; sus textos están en un área de cadenas UTF-8 y sus relaciones
+ * en un arreglo de referencias. Los recorridos y filtros leen directamente del archivo y solo se crean
+ * entidades para los registros que se devuelven.
+ * <p>
+ * Formato, versión 1 (enteros little endian de 4 bytes salvo los identificadores, de 8):
+ * <pre>
+ *   cabecera (48 bytes): "LMAP", versión, personas, libros, idiomas, desplazamientos de las tablas de personas,
+ *                        libros e idiomas, de las referencias y de las cadenas, y tamaño del archivo
+ *   personas (32 bytes): id, nombre (desplazamiento y longitud), nacimiento, fallecimiento, libros (referencias)
+ *   libros   (48 bytes): id, título, enlace (longitud -1 si es null), descargas, autores e idiomas (referencias)
+ *   idiomas  (16 bytes): código, libros (referencias)
+ * </pre>
+ * Las referencias son posiciones en la tabla correspondiente, indicadas por su primera posición en el arreglo y
+ * su cantidad. Cada nombre de autor distinto se guarda una sola vez. El archivo no lleva CRC32, porque
+ * comprobarlo obligaría a leer también el área de cadenas al abrirlo; en su lugar se validan la cabecera y, por
+ * cada registro, que sus cadenas y referencias estén dentro del archivo y que cada referencia apunte a un
+ * registro existente.
+ * <p>
+ * Las entidades devueltas tienen sus asociaciones a un nivel: los autores de un libro y los libros de una
+ * persona no traen a su vez sus propias asociaciones.
+ */
+public class MappedCatalog implements ReadOnlyCatalog {
+
+    /**
+     * Versión del formato que escribe esta clase.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 'L' | 'M' << 8 | 'A' << 16 | 'P' << 24;
+    private static final int HEADER_BYTES = 48;
+    private static final int PERSON_BYTES = 32;
+    private static final int BOOK_BYTES = 48;
+    private static final int LANGUAGE_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int persons;
+    private final int books;
+    private final int languages;
+    private final int personsOffset;
+    private final int booksOffset;
+    private final int languagesOffset;
+    private final int refsOffset;
+    private final int stringsOffset;
+
+    private MappedCatalog(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("El archivo no es un catálogo mapeado");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Versión de catálogo mapeado no compatible: " + version + " (se esperaba " + VERSION + ")");
+        }
+        persons = buffer.getInt(8);
+        books = buffer.getInt(12);
+        languages = buffer.getInt(16);
+        personsOffset = buffer.getInt(20);
+        booksOffset = buffer.getInt(24);
+        languagesOffset = buffer.getInt(28);
+        refsOffset = buffer.getInt(32);
+        stringsOffset = buffer.getInt(36);
+        if (buffer.getInt(40) != buffer.capacity() || persons < 0 || books < 0 || languages < 0
+                || personsOffset != HEADER_BYTES
+                || booksOffset != personsOffset + (long) persons * PERSON_BYTES
+                || languagesOffset != booksOffset + (long) books * BOOK_BYTES
+                || refsOffset != languagesOffset + (long) languages * LANGUAGE_BYTES
+                || stringsOffset < refsOffset || stringsOffset > buffer.capacity()
+                || (stringsOffset - refsOffset) % Integer.BYTES != 0) {
+            throw new IOException("El catálogo mapeado está dañado o truncado");
+        }
+        validateRecords();
+    }
+
+    /**
+     * Comprueba los desplazamientos de cada registro, para que un archivo dañado se rechace al abrirlo y no
+     * falle más tarde en medio de un listado.
+     */
+    private void validateRecords() throws IOException {
+        int refs = (stringsOffset - refsOffset) / Integer.BYTES;
+        for (int i = 0; i < persons; i++) {
+            int record = personsOffset + i * PERSON_BYTES;
+            checkString("persona", i, buffer.getInt(record + 8), buffer.getInt(record + 12));
+            checkRefs("persona", i, buffer.getInt(record + 24), buffer.getInt(record + 28), refs, books);
+        }
+        for (int i = 0; i < books; i++) {
+            int record = booksOffset + i * BOOK_BYTES;
+            checkString("libro", i, buffer.getInt(record + 8), buffer.getInt(record + 12));
+            int linkLength = buffer.getInt(record + 20);
+            if (linkLength != -1) checkString("libro", i, buffer.getInt(record + 16), linkLength);
+            checkRefs("libro", i, buffer.getInt(record + 28), buffer.getInt(record + 32), refs, persons);
+            checkRefs("libro", i, buffer.getInt(record + 36), buffer.getInt(record + 40), refs, languages);
+        }
+        for (int i = 0; i < languages; i++) {
+            int record = languagesOffset + i * LANGUAGE_BYTES;
+            checkString("idioma", i, buffer.getInt(record), buffer.getInt(record + 4));
+            checkRefs("idioma", i, buffer.getInt(record + 8), buffer.getInt(record + 12), refs, books);
+        }
+    }
+
+    private void checkString(String table, int index, int offset, int length) throws IOException {
+        if (length < 0 || offset < stringsOffset || offset > buffer.capacity() - length) {
+            throw new IOException("El catálogo mapeado está dañado: el texto del registro " + index + " de " + table + " está fuera del archivo");
+        }
+    }
+
+    private void checkRefs(String table, int index, int ref, int count, int refs, int bound) throws IOException {
+        if (count < 0 || ref < 0 || ref > refs - count) {
+            throw new IOException("El catálogo mapeado está dañado: las referencias del registro " + index + " de " + table + " están fuera del archivo");
+        }
+        for (int i = 0; i < count; i++) {
+            int value = ref(ref + i);
+            if (value < 0 || value >= bound) {
+                throw new IOException("El catálogo mapeado está dañado: el registro " + index + " de " + table + " apunta a un registro inexistente");
+            }
+        }
+    }
+
+    /**
+     * Abre un catálogo mapeado. El archivo queda mapeado mientras el catálogo esté en uso.
+     *
+     * @param file El archivo del catálogo.
+     * @return El catálogo abierto.
+     * @throws IOException Si no se puede leer el archivo, su versión no es compatible o está dañado.
+     */
+    public static MappedCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("El catálogo mapeado supera los 2 GB");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedCatalog(buffer);
+        }
+    }
+
+    /**
+     * Escribe una instantánea en el formato del catálogo mapeado. El archivo se reemplaza de una vez al
+     * terminar, de modo que una escritura interrumpida no deja un catálogo a medias.
+     *
+     * @param snapshot La instantánea del catálogo.
+     * @param file     El archivo de destino.
+     * @return El número de bytes escritos.
+     * @throws IOException Si no se puede escribir el archivo o el catálogo supera los 2 GB.
+     */
+    public static long write(CatalogSnapshot snapshot, Path file) throws IOException {
+        int personCount = snapshot.personCount();
+        int bookCount = snapshot.bookCount();
+        int languageCount = snapshot.languages().size();
+
+        // Relaciones inversas: libros de cada persona y de cada idioma
+        int[] personBookCounts = new int[personCount];
+        int[] languageBookCounts = new int[languageCount];
+        long refs = 0;
+        for (int i = 0; i < bookCount; i++) {
+            for (int author : snapshot.bookAuthors()[i]) personBookCounts[author]++;
+            for (int language : snapshot.bookLanguages()[i]) languageBookCounts[language]++;
+            refs += 2L * (snapshot.bookAuthors()[i].length + snapshot.bookLanguages()[i].length);
+        }
+
+        byte[][] languageBytes = utf8(snapshot.languages().toArray(String[]::new));
+        byte[][] nameBytes = utf8(snapshot.names().toArray(String[]::new));
+        byte[][] titleBytes = utf8(snapshot.titles());
+        byte[][] linkBytes = utf8(snapshot.htmlLinks());
+        long strings = length(languageBytes) + length(nameBytes) + length(titleBytes) + length(linkBytes);
+
+        long personsOffset = HEADER_BYTES;
+        long booksOffset = personsOffset + (long) personCount * PERSON_BYTES;
+        long languagesOffset = booksOffset + (long) bookCount * BOOK_BYTES;
+        long refsOffset = languagesOffset + (long) languageCount * LANGUAGE_BYTES;
+        long stringsOffset = refsOffset + refs * Integer.BYTES;
+        long size = stringsOffset + strings;
+        if (size > Integer.MAX_VALUE) throw new IOException("El catálogo mapeado supera los 2 GB");
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                out.order(ByteOrder.LITTLE_ENDIAN);
+                out.putInt(0, MAGIC).putInt(4, VERSION)
+                        .putInt(8, personCount).putInt(12, bookCount).putInt(16, languageCount)
+                        .putInt(20, (int) personsOffset).putInt(24, (int) booksOffset).putInt(28, (int) languagesOffset)
+                        .putInt(32, (int) refsOffset).putInt(36, (int) stringsOffset).putInt(40, (int) size);
+
+                Heap heap = new Heap(out, (int) stringsOffset);
+                int[] languageStrings = heap.putAll(languageBytes);
+                int[] nameStrings = heap.putAll(nameBytes);
+
+                // Referencias, en este orden: autores e idiomas de cada libro, libros de cada persona y de cada idioma
+                int ref = 0;
+                int[] personRefs = new int[personCount];
+                int[] languageRefs = new int[languageCount];
+                int[] bookAuthorRefs = new int[bookCount];
+                int[] bookLanguageRefs = new int[bookCount];
+                for (int i = 0; i < bookCount; i++) {
+                    bookAuthorRefs[i] = ref;
+                    ref += snapshot.bookAuthors()[i].length;
+                    bookLanguageRefs[i] = ref;
+                    ref += snapshot.bookLanguages()[i].length;
+                }
+                for (int i = 0; i < personCount; i++) {
+                    personRefs[i] = ref;
+                    ref += personBookCounts[i];
+                }
+                for (int i = 0; i < languageCount; i++) {
+                    languageRefs[i] = ref;
+                    ref += languageBookCounts[i];
+                }
+
+                int[] personFill = new int[personCount];
+                int[] languageFill = new int[languageCount];
+                for (int i = 0; i < bookCount; i++) {
+                    int[] authors = snapshot.bookAuthors()[i];
+                    int[] bookLanguages = snapshot.bookLanguages()[i];
+                    for (int j = 0; j < authors.length; j++) {
+                        out.putInt((int) refsOffset + (bookAuthorRefs[i] + j) * Integer.BYTES, authors[j]);
+                        out.putInt((int) refsOffset + (personRefs[authors[j]] + personFill[authors[j]]++) * Integer.BYTES, i);
+                    }
+                    for (int j = 0; j < bookLanguages.length; j++) {
+                        out.putInt((int) refsOffset + (bookLanguageRefs[i] + j) * Integer.BYTES, bookLanguages[j]);
+                        out.putInt((int) refsOffset + (languageRefs[bookLanguages[j]] + languageFill[bookLanguages[j]]++) * Integer.BYTES, i);
+                    }
+                }
+
+                for (int i = 0; i < personCount; i++) {
+                    int record = (int) personsOffset + i * PERSON_BYTES;
+                    int name = snapshot.personNames()[i];
+                    out.putLong(record, snapshot.personIds()[i])
+                            .putInt(record + 8, nameStrings[name]).putInt(record + 12, nameBytes[name].length)
+                            .putInt(record + 16, snapshot.birthYears()[i]).putInt(record + 20, snapshot.deathYears()[i])
+                            .putInt(record + 24, personRefs[i]).putInt(record + 28, personBookCounts[i]);
+                }
+
+                for (int i = 0; i < bookCount; i++) {
+                    int record = (int) booksOffset + i * BOOK_BYTES;
+                    int title = heap.put(titleBytes[i]);
+                    int link = linkBytes[i] == null ? 0 : heap.put(linkBytes[i]);
+                    out.putLong(record, snapshot.bookIds()[i])
+                            .putInt(record + 8, title).putInt(record + 12, titleBytes[i].length)
+                            .putInt(record + 16, link).putInt(record + 20, linkBytes[i] == null ? -1 : linkBytes[i].length)
+                            .putInt(record + 24, snapshot.downloadCounts()[i])
+                            .putInt(record + 28, bookAuthorRefs[i]).putInt(record + 32, snapshot.bookAuthors()[i].length)
+                            .putInt(record + 36, bookLanguageRefs[i]).putInt(record + 40, snapshot.bookLanguages()[i].length);
+                }
+
+                for (int i = 0; i < languageCount; i++) {
+                    int record = (int) languagesOffset + i * LANGUAGE_BYTES;
+                    out.putInt(record, languageStrings[i]).putInt(record + 4, languageBytes[i].length)
+                            .putInt(record + 8, languageRefs[i]).putInt(record + 12, languageBookCounts[i]);
+                }
+                out.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return size;
+    }
+
+    @Override
+    public int bookCount() {
+        return books;
+    }
+
+    @Override
+    public int personCount() {
+        return persons;
+    }
+
+    @Override
+    public List<BookEntity> getBooks(int from, int to) {
+        int end = Math.min(to, books);
+        List<BookEntity> result = new ArrayList<>(Math.max(0, end - from));
+        Map<Integer, PersonEntity> authors = new HashMap<>();
+        for (int i = from; i < end; i++) result.add(book(i, authors));
+        return result;
+    }
+
+    @Override
+    public List<BookEntity> getBooksByLanguage(String language) {
+        int index = languageIndex(language);
+        if (index < 0) return List.of();
+
+        int record = languagesOffset + index * LANGUAGE_BYTES;
+        int ref = buffer.getInt(record + 8);
+        int count = buffer.getInt(record + 12);
+        List<BookEntity> result = new ArrayList<>(count);
+        Map<Integer, PersonEntity> authors = new HashMap<>();
+        for (int i = 0; i < count; i++) result.add(book(ref(ref + i), authors));
+        return result;
+    }
+
+    @Override
+    public List<BookEntity> getBooksByLanguages(Collection<String> languages, boolean matchAll, int from, int to) {
+        int[] wanted = languages.stream().distinct().mapToInt(this::languageIndex).toArray();
+        List<BookEntity> result = new ArrayList<>();
+        if (matchAll && (wanted.length == 0 || Arrays.stream(wanted).anyMatch(index -> index < 0))) return result;
+
+        Map<Integer, PersonEntity> authors = new HashMap<>();
+        int matched = 0;
+        for (int i = 0; i < books && matched < to; i++) {
+            int record = booksOffset + i * BOOK_BYTES;
+            int ref = buffer.getInt(record + 36);
+            int count = buffer.getInt(record + 40);
+
+            int found = 0;
+            for (int index : wanted) {
+                if (index >= 0 && containsRef(ref, count, index)) found++;
+            }
+            if (matchAll ? found == wanted.length : found > 0) {
+                if (matched++ >= from) result.add(book(i, authors));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<PersonEntity> getPersons(int from, int to) {
+        int end = Math.min(to, persons);
+        List<PersonEntity> result = new ArrayList<>(Math.max(0, end - from));
+        for (int i = from; i < end; i++) result.add(person(i, true));
+        return result;
+    }
+
+    @Override
+    public List<PersonEntity> getLivingPersonsBetween(int from, int to) {
+        // Recorrido secuencial de los años sobre el archivo, con el mismo criterio que la consulta del repositorio
+        List<PersonEntity> alive = new ArrayList<>();
+        for (int i = 0; i < persons; i++) {
+            int record = personsOffset + i * PERSON_BYTES;
+            if (buffer.getInt(record + 16) <= to && buffer.getInt(record + 20) >= from) alive.add(person(i, true));
+        }
+        return alive;
+    }
+
+    @Override
+    public Map<Integer, Integer> countLivingPersonsByDecade(int from, int to) {
+        DecadeHistogram histogram = new DecadeHistogram(from, to);
+        for (int i = 0; i < persons; i++) {
+            int record = personsOffset + i * PERSON_BYTES;
+            histogram.add(buffer.getInt(record + 16), buffer.getInt(record + 20), 1);
+        }
+        return histogram.counts();
+    }
+
+    private BookEntity book(int index, Map<Integer, PersonEntity> authorCache) {
+        int record = booksOffset + index * BOOK_BYTES;
+        int authorsRef = buffer.getInt(record + 28);
+        int authorCount = buffer.getInt(record + 32);
+        int languagesRef = buffer.getInt(record + 36);
+        int languageCount = buffer.getInt(record + 40);
+
+        Set<PersonEntity> authors = new LinkedHashSet<>();
+        for (int i = 0; i < authorCount; i++) {
+            authors.add(authorCache.computeIfAbsent(ref(authorsRef + i), person -> person(person, false)));
+        }
+        Set<String> languages = new LinkedHashSet<>();
+        for (int i = 0; i < languageCount; i++) {
+            int language = languagesOffset + ref(languagesRef + i) * LANGUAGE_BYTES;
+            languages.add(string(buffer.getInt(language), buffer.getInt(language + 4)));
+        }
+
+        // Sin pasar por el constructor, que calcula la huella de autores que aquí no se necesita
+        BookEntity book = new BookEntity();
+        book.setId(buffer.getLong(record));
+        book.setTitle(string(buffer.getInt(record + 8), buffer.getInt(record + 12)));
+        int linkLength = buffer.getInt(record + 20);
+        book.setHtmlLink(linkLength < 0 ? null : string(buffer.getInt(record + 16), linkLength));
+        book.setDownloadCount(buffer.getInt(record + 24));
+        book.setAuthors(Collections.unmodifiableSet(authors));
+        book.setLanguages(Collections.unmodifiableSet(languages));
+        return book;
+    }
+
+    private PersonEntity person(int index, boolean withBooks) {
+        int record = personsOffset + index * PERSON_BYTES;
+        PersonEntity person = new PersonEntity(string(buffer.getInt(record + 8), buffer.getInt(record + 12)),
+                buffer.getInt(record + 16), buffer.getInt(record + 20));
+        person.setId(buffer.getLong(record));
+
+        if (!withBooks) {
+            person.setBooks(Set.of());
+            return person;
+        }
+        int ref = buffer.getInt(record + 24);
+        int count = buffer.getInt(record + 28);
+        Set<BookEntity> books = new LinkedHashSet<>();
+        Map<Integer, PersonEntity> authors = new HashMap<>();
+        authors.put(index, person);
+        for (int i = 0; i < count; i++) books.add(book(ref(ref + i), authors));
+        person.setBooks(Collections.unmodifiableSet(books));
+        return person;
+    }
+
+    /**
+     * Busca un idioma comparando su código en UTF-8 con los del archivo, sin decodificarlos.
+     */
+    private int languageIndex(String code) {
+        byte[] wanted = code.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < languages; i++) {
+            int record = languagesOffset + i * LANGUAGE_BYTES;
+            int offset = buffer.getInt(record);
+            if (buffer.getInt(record + 4) != wanted.length) continue;
+
+            int j = 0;
+            while (j < wanted.length && buffer.get(offset + j) == wanted[j]) j++;
+            if (j == wanted.length) return i;
+        }
+        return -1;
+    }
+
+    private boolean containsRef(int ref, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (ref(ref + i) == value) return true;
+        }
+        return false;
+    }
+
+    private int ref(int position) {
+        return buffer.getInt(refsOffset + position * Integer.BYTES);
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] utf8(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) bytes[i] = values[i] == null ? null : values[i].getBytes(StandardCharsets.UTF_8);
+        return bytes;
+    }
+
+    private static long length(byte[][] values) {
+        long length = 0;
+        for (byte[] value : values) length += value == null ? 0 : value.length;
+        return length;
+    }
+
+    /**
+     * Escritor secuencial del área de cadenas.
+     */
+    private static final class Heap {
+        private final ByteBuffer out;
+        private int position;
+
+        Heap(ByteBuffer out, int position) {
+            this.out = out;
+            this.position = position;
+        }
+
+        int put(byte[] bytes) {
+            int offset = position;
+            out.put(offset, bytes);
+            position += bytes.length;
+            return offset;
+        }
+
+        int[] putAll(byte[][] values) {
+            int[] offsets = new int[values.length];
+            for (int i = 0; i < values.length; i++) offsets[i] = put(values[i]);
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.bonidev.literalura.catalog;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo de solo lectura que atiende los listados sin consultar la base de datos. Los libros y las personas
+ * se devuelven ordenados por identificador, con sus autores, idiomas y libros ya asociados.
+ */
+public interface ReadOnlyCatalog {
+
+    /**
+     * Cuenta los libros del catálogo.
+     *
+     * @return El número de libros.
+     */
+    int bookCount();
+
+    /**
+     * Cuenta las personas del catálogo.
+     *
+     * @return El número de personas.
+     */
+    int personCount();
+
+    /**
+     * Obtiene los libros entre dos posiciones, en orden de identificador.
+     *
+     * @param from La primera posición, incluida.
+     * @param to   La última posición, excluida; se ajusta al número de libros.
+     * @return Los libros del rango.
+     */
+    List<BookEntity> getBooks(int from, int to);
+
+    /**
+     * Obtiene los libros disponibles en un idioma.
+     *
+     * @param language El código del idioma.
+     * @return Los libros en el idioma, en orden de identificador.
+     */
+    List<BookEntity> getBooksByLanguage(String language);
+
+    /**
+     * Obtiene los libros disponibles en todos (o en alguno) de los idiomas dados, entre dos posiciones de los
+     * resultados.
+     *
+     * @param languages Los códigos de idioma.
+     * @param matchAll  true para exigir todos los idiomas, false para aceptar cualquiera de ellos.
+     * @param from      La primera posición de los resultados, incluida.
+     * @param to        La última posición de los resultados, excluida.
+     * @return Los libros del rango, en orden de identificador.
+     */
+    List<BookEntity> getBooksByLanguages(Collection<String> languages, boolean matchAll, int from, int to);
+
+    /**
+     * Obtiene las personas entre dos posiciones, en orden de identificador.
+     *
+     * @param from La primera posición, incluida.
+     * @param to   La última posición, excluida; se ajusta al número de personas.
+     * @return Las personas del rango.
+     */
+    List<PersonEntity> getPersons(int from, int to);
+
+    /**
+     * Obtiene las personas que estaban vivas en algún momento de un rango de años.
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return Las personas vivas durante el rango, en orden de identificador.
+     */
+    List<PersonEntity> getLivingPersonsBetween(int from, int to);
+
+    /**
+     * Cuenta las personas vivas en cada década de un rango de años, sin crear las entidades.
+     *
+     * @param from El primer año del rango; se redondea al inicio de su década.
+     * @param to   El último año del rango.
+     * @return El número de personas vivas por década, indexado por el primer año de la década y en orden.
+     */
+    Map<Integer, Integer> countLivingPersonsByDecade(int from, int to);
+
+    /**
+     * Obtiene todos los libros del catálogo.
+     *
+     * @return Los libros, en orden de identificador.
+     */
+    default List<BookEntity> getAllBooks() {
+        return getBooks(0, bookCount());
+    }
+
+    /**
+     * Obtiene todas las personas del catálogo.
+     *
+     * @return Las personas, en orden de identificador.
+     */
+    default List<PersonEntity> getAllPersons() {
+        return getPersons(0, personCount());
+    }
+}
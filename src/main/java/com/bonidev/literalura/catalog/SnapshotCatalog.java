@@ -0,0 +1,127 @@
+package com.bonidev.literalura.catalog;
+
+import com.bonidev.literalura.index.DecadeHistogram;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catálogo de solo lectura en memoria, construido una sola vez a partir de una {@link CatalogSnapshot}. Las
+ * entidades quedan separadas de Hibernate y enlazadas entre sí (libros con sus autores y personas con sus
+ * libros); sus colecciones no se pueden modificar. Los nombres de autor y códigos de idioma repetidos
+ * comparten la instancia del diccionario de la instantánea.
+ */
+public class SnapshotCatalog implements ReadOnlyCatalog {
+
+    private final List<BookEntity> books;
+    private final List<PersonEntity> persons;
+    private final int[] birthYears;
+    private final int[] deathYears;
+    private final Map<String, List<BookEntity>> booksByLanguage;
+
+    /**
+     * Construye el catálogo a partir de una instantánea.
+     *
+     * @param snapshot La instantánea del catálogo.
+     */
+    public SnapshotCatalog(CatalogSnapshot snapshot) {
+        PersonEntity[] persons = new PersonEntity[snapshot.personCount()];
+        List<Set<BookEntity>> personBooks = new ArrayList<>(persons.length);
+        for (int i = 0; i < persons.length; i++) {
+            persons[i] = new PersonEntity(snapshot.names().get(snapshot.personNames()[i]),
+                    snapshot.birthYears()[i], snapshot.deathYears()[i]);
+            persons[i].setId(snapshot.personIds()[i]);
+            personBooks.add(new LinkedHashSet<>());
+        }
+
+        BookEntity[] books = new BookEntity[snapshot.bookCount()];
+        Map<String, List<BookEntity>> booksByLanguage = new HashMap<>();
+        for (int i = 0; i < books.length; i++) {
+            Set<PersonEntity> authors = new LinkedHashSet<>();
+            for (int author : snapshot.bookAuthors()[i]) authors.add(persons[author]);
+            Set<String> languages = new LinkedHashSet<>();
+            for (int language : snapshot.bookLanguages()[i]) languages.add(snapshot.languages().get(language));
+
+            books[i] = new BookEntity(snapshot.titles()[i], Collections.unmodifiableSet(authors),
+                    Collections.unmodifiableSet(languages), snapshot.htmlLinks()[i], snapshot.downloadCounts()[i]);
+            books[i].setId(snapshot.bookIds()[i]);
+
+            for (int author : snapshot.bookAuthors()[i]) personBooks.get(author).add(books[i]);
+            for (String language : languages) booksByLanguage.computeIfAbsent(language, code -> new ArrayList<>()).add(books[i]);
+        }
+
+        for (int i = 0; i < persons.length; i++) persons[i].setBooks(Collections.unmodifiableSet(personBooks.get(i)));
+        booksByLanguage.replaceAll((language, list) -> List.copyOf(list));
+
+        this.books = List.of(books);
+        this.persons = List.of(persons);
+        this.birthYears = snapshot.birthYears().clone();
+        this.deathYears = snapshot.deathYears().clone();
+        this.booksByLanguage = booksByLanguage;
+    }
+
+    @Override
+    public int bookCount() {
+        return books.size();
+    }
+
+    @Override
+    public int personCount() {
+        return persons.size();
+    }
+
+    @Override
+    public List<BookEntity> getBooks(int from, int to) {
+        int end = Math.min(to, books.size());
+        return books.subList(Math.min(from, end), end);
+    }
+
+    @Override
+    public List<BookEntity> getBooksByLanguage(String language) {
+        return booksByLanguage.getOrDefault(language, List.of());
+    }
+
+    @Override
+    public List<BookEntity> getBooksByLanguages(Collection<String> languages, boolean matchAll, int from, int to) {
+        return books.stream()
+                .filter(book -> matchAll
+                        ? !languages.isEmpty() && book.getLanguages().containsAll(languages)
+                        : languages.stream().anyMatch(book.getLanguages()::contains))
+                .skip(from)
+                .limit(Math.max(0, to - from))
+                .toList();
+    }
+
+    @Override
+    public List<PersonEntity> getPersons(int from, int to) {
+        int end = Math.min(to, persons.size());
+        return persons.subList(Math.min(from, end), end);
+    }
+
+    @Override
+    public List<PersonEntity> getLivingPersonsBetween(int from, int to) {
+        // Recorrido secuencial de los años, con el mismo criterio que la consulta del repositorio
+        List<PersonEntity> alive = new ArrayList<>();
+        for (int i = 0; i < birthYears.length; i++) {
+            if (birthYears[i] <= to && deathYears[i] >= from) alive.add(persons.get(i));
+        }
+        return alive;
+    }
+
+    @Override
+    public Map<Integer, Integer> countLivingPersonsByDecade(int from, int to) {
+        DecadeHistogram histogram = new DecadeHistogram(from, to);
+        for (int i = 0; i < birthYears.length; i++) {
+            histogram.add(birthYears[i], deathYears[i], 1);
+        }
+        return histogram.counts();
+    }
+}
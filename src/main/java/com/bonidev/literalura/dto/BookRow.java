@@ -0,0 +1,33 @@
+package com.bonidev.literalura.dto;
+
+/**
+ * Proyección de solo lectura de un libro, en forma de fila plana: una fila por cada combinación de autor e
+ * idioma del libro. Se construye directamente desde la consulta, sin cargar entidades, y se agrupa en
+ * BookDTO con {@link com.bonidev.literalura.service.BookMapper#toDTOs}.
+ */
+public record BookRow(
+        // Identificador del libro.
+        Long id,
+
+        // Título del libro.
+        String title,
+
+        // Enlace HTML del libro.
+        String htmlLink,
+
+        // Número de descargas del libro.
+        int downloadCount,
+
+        // Nombre del autor (null si el libro no tiene autores).
+        String authorName,
+
+        // Año de nacimiento del autor.
+        Integer authorBirthYear,
+
+        // Año de fallecimiento del autor.
+        Integer authorDeathYear,
+
+        // Código de idioma (null si el libro no tiene idiomas).
+        String language
+) {
+}
@@ -0,0 +1,130 @@
+package com.bonidev.literalura.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Enlaces de descarga de un libro por formato, leídos del objeto "formats" de la API.
+ * <p>
+ * Solo se conservan los formatos conocidos, en un arreglo indexado por {@link Format}, de modo que cada libro
+ * ocupa un único arreglo pequeño en lugar de un mapa o un árbol JSON.
+ */
+public final class FormatLinks {
+
+    /**
+     * Formatos conocidos y su tipo MIME base (sin parámetros como "; charset=utf-8").
+     */
+    public enum Format {
+        HTML("text/html"),
+        EPUB("application/epub+zip"),
+        KINDLE("application/x-mobipocket-ebook"),
+        PLAIN_TEXT("text/plain"),
+        COVER_IMAGE("image/jpeg"),
+        RDF("application/rdf+xml"),
+        // Gutendex publica así los archivos sin tipo propio; no siempre son ZIP
+        BINARY("application/octet-stream");
+
+        private static final Format[] VALUES = values();
+
+        private final String mimeType;
+
+        Format(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        /**
+         * Busca el formato de un tipo MIME, ignorando sus parámetros.
+         *
+         * @param mimeType El tipo MIME, por ejemplo "text/plain; charset=us-ascii".
+         * @return El formato, o null si no es un formato conocido.
+         */
+        public static Format of(String mimeType) {
+            for (Format format : VALUES) {
+                if (mimeType.startsWith(format.mimeType)
+                        && (mimeType.length() == format.mimeType.length() || mimeType.charAt(format.mimeType.length()) == ';')) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String[] urls = new String[Format.VALUES.length];
+
+    /**
+     * Lee un objeto "formats" token por token, sin construir un árbol JSON. El parser debe estar en el inicio
+     * del objeto y queda en su cierre.
+     *
+     * @param parser   El parser posicionado en el inicio del objeto.
+     * @param htmlOnly true para leer solo el enlace HTML y saltar el resto de los valores sin crearlos.
+     * @return Los enlaces encontrados.
+     * @throws IOException Sí ocurre un error al leer el JSON.
+     */
+    public static FormatLinks read(JsonParser parser, boolean htmlOnly) throws IOException {
+        FormatLinks links = new FormatLinks();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return links;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Format format = Format.of(parser.currentName());
+            JsonToken value = parser.nextToken();
+
+            if (format == null || value != JsonToken.VALUE_STRING || (htmlOnly && format != Format.HTML)) {
+                parser.skipChildren();
+                continue;
+            }
+            // "text/html" exacto tiene prioridad sobre variantes como "text/html; charset=utf-8"
+            if (links.urls[format.ordinal()] == null || parser.currentName().equals(format.mimeType)) {
+                links.urls[format.ordinal()] = parser.getText();
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Obtiene el enlace de un formato.
+     *
+     * @param format El formato.
+     * @return El enlace, o null si el libro no está disponible en ese formato.
+     */
+    public String get(Format format) {
+        return urls[format.ordinal()];
+    }
+
+    /**
+     * Obtiene el enlace HTML, el único que se guarda en la base de datos.
+     *
+     * @return El enlace HTML, o null si el libro no tiene versión HTML.
+     */
+    public String html() {
+        return get(Format.HTML);
+    }
+
+    /**
+     * Obtiene los enlaces disponibles como un mapa, en el orden de {@link Format}.
+     *
+     * @return Un mapa de formato a enlace, sin los formatos ausentes.
+     */
+    public Map<Format, String> asMap() {
+        Map<Format, String> map = new EnumMap<>(Format.class);
+        for (Format format : Format.VALUES) {
+            if (urls[format.ordinal()] != null) map.put(format, urls[format.ordinal()]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
@@ -0,0 +1,198 @@
+package com.bonidev.literalura.index;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.BookRepository;
+import com.bonidev.literalura.service.BookSavedEvent;
+import com.bonidev.literalura.service.CatalogImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre los títulos y nombres de autor del catálogo persistido.
+ * <p>
+ * El índice se construye la primera vez que se consulta y luego se actualiza de forma incremental con cada
+ * libro registrado. Las coincidencias en el título pesan más que las coincidencias en el autor, y cada
+ * término se pondera por su rareza en el catálogo (IDF). Los términos de la consulta también coinciden
+ * como prefijo, para que "dick" encuentre "Dickens", aunque con menos peso que una coincidencia exacta.
+ */
+@Component
+public class CatalogSearchIndex {
+
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Término -> (id del libro -> peso acumulado del término en el libro)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Set<Long> documents = new HashSet<>();
+    private volatile boolean loaded;
+
+    /**
+     * Busca los libros cuyo título o autores contienen todos los términos de la consulta.
+     *
+     * @param query La consulta de texto libre.
+     * @param limit El número máximo de resultados.
+     * @return Los identificadores de los libros encontrados, del más al menos relevante.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return List.of();
+
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String term : terms) {
+                Map<Long, Double> termScores = score(term);
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calcula la puntuación de cada libro que contiene el término (o un término que empieza con él).
+     */
+    private Map<Long, Double> score(String term) {
+        Map<String, Map<Long, Integer>> matches = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+            double idf = Math.log(1 + (double) documents.size() / match.getValue().size());
+            // Una coincidencia exacta pesa más que una por prefijo
+            double boost = match.getKey().equals(term) ? 1.0 : 0.5;
+            for (Map.Entry<Long, Integer> posting : match.getValue().entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * idf * boost, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Agrega al índice un libro recién registrado, una vez confirmada su transacción. Si el índice se está
+     * construyendo, espera a que termine: la carga pudo haber leído la base de datos antes de que el libro se
+     * confirmara. Si la carga ya lo incluyó, no se agrega dos veces.
+     *
+     * @param event El evento del libro registrado.
+     */
+    @TransactionalEventListener
+    public void onBookSaved(BookSavedEvent event) {
+        BookEntity book = event.book();
+        lock.writeLock().lock();
+        try {
+            if (!loaded || documents.contains(book.getId())) return;
+
+            addTerms(book.getId(), book.getTitle(), TITLE_WEIGHT);
+            for (PersonEntity author : book.getAuthors()) {
+                addTerms(book.getId(), author.getName(), AUTHOR_WEIGHT);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta el índice tras una importación masiva; se reconstruirá en la próxima búsqueda.
+     *
+     * @param event El evento de la importación terminada.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Construye el índice a partir de la base de datos si todavía no se construyó.
+     */
+    private void ensureLoaded() {
+        if (loaded) return;
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+
+            Set<Long> titled = new HashSet<>();
+            for (BookRepository.SearchRow row : bookRepository.findSearchRows()) {
+                if (titled.add(row.getId())) {
+                    addTerms(row.getId(), row.getTitle(), TITLE_WEIGHT);
+                }
+                if (row.getAuthorName() != null) {
+                    addTerms(row.getId(), row.getAuthorName(), AUTHOR_WEIGHT);
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addTerms(Long bookId, String text, int weight) {
+        documents.add(bookId);
+        for (String term : tokenize(text)) {
+            postings.computeIfAbsent(term, key -> new HashMap<>()).merge(bookId, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Divide un texto en términos normalizados: en minúsculas, sin tildes y de al menos dos caracteres.
+     *
+     * @param text El texto a dividir.
+     * @return Los términos del texto, en orden.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) return terms;
+
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        for (String term : SEPARATORS.split(folded)) {
+            if (term.length() >= 2) terms.add(term);
+        }
+        return terms;
+    }
+}
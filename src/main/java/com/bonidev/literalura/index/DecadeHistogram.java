@@ -0,0 +1,77 @@
+package com.bonidev.literalura.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Histograma de personas vivas por década, acumulado a partir de intervalos de vida sueltos. Lo usan los
+ * catálogos de solo lectura y la consulta agrupada de la base de datos, con el mismo criterio que
+ * {@link LifespanIndex#countAliveByDecade(int, int)}: una persona cuenta en todas las décadas en las que vivió
+ * al menos un año, y un intervalo invertido no cuenta en ninguna.
+ */
+public final class DecadeHistogram {
+
+    private final int firstDecade;
+    private final int to;
+    private final long[] counts;
+
+    /**
+     * Crea un histograma vacío para un rango de años.
+     *
+     * @param from El primer año del rango; se redondea al inicio de su década.
+     * @param to   El último año del rango.
+     */
+    public DecadeHistogram(int from, int to) {
+        this.firstDecade = Math.floorDiv(from, 10) * 10;
+        this.to = to;
+        this.counts = new long[to < firstDecade ? 0 : (int) (((long) to - firstDecade) / 10 + 1)];
+    }
+
+    /**
+     * Suma una o varias personas con el mismo intervalo de vida a las décadas del rango en que vivieron.
+     *
+     * @param birthYear El año de nacimiento.
+     * @param deathYear El año de fallecimiento.
+     * @param persons   El número de personas con ese intervalo.
+     */
+    public void add(int birthYear, int deathYear, long persons) {
+        if (deathYear < birthYear) return;
+
+        long first = Math.max(Math.floorDiv(birthYear, 10) * 10L, firstDecade);
+        long last = Math.min(deathYear, to);
+        for (long decade = first; decade <= last; decade += 10) {
+            counts[(int) ((decade - firstDecade) / 10)] += persons;
+        }
+    }
+
+    /**
+     * Obtiene el primer año de la primera década del histograma.
+     *
+     * @return El primer año cubierto.
+     */
+    public int firstYear() {
+        return firstDecade;
+    }
+
+    /**
+     * Obtiene el último año de la última década del histograma; una persona nacida hasta ese año puede contar.
+     *
+     * @return El último año cubierto.
+     */
+    public int lastYear() {
+        return (int) Math.min(Integer.MAX_VALUE, firstDecade + 10L * counts.length - 1);
+    }
+
+    /**
+     * Obtiene el número de personas vivas por década.
+     *
+     * @return Los conteos indexados por el primer año de cada década del rango, en orden.
+     */
+    public Map<Integer, Integer> counts() {
+        Map<Integer, Integer> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(firstDecade + 10 * i, (int) counts[i]);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,363 @@
+package com.bonidev.literalura.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Conjunto comprimido de identificadores, al estilo de los bitmaps "roaring".
+ * <p>
+ * Los identificadores se agrupan por sus bits altos en bloques de 65536 valores. Cada bloque guarda sus bits
+ * bajos en un arreglo ordenado mientras tiene pocos elementos y en un mapa de bits de 8 KB cuando supera los
+ * 4096, de modo que tanto los conjuntos dispersos como los densos ocupan poco y se intersecan o unen bloque a
+ * bloque. No es seguro para uso concurrente sin sincronización externa.
+ */
+public final class IdBitmap {
+
+    private int[] keys = new int[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    /**
+     * Agrega un identificador al conjunto.
+     *
+     * @param id El identificador, no negativo.
+     */
+    public void add(long id) {
+        if (id < 0 || id >>> 48 != 0) throw new IllegalArgumentException("Identificador fuera de rango: " + id);
+
+        int key = (int) (id >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        containers[index].add((char) id);
+    }
+
+    /**
+     * Indica si el conjunto contiene un identificador.
+     *
+     * @param id El identificador.
+     * @return true si el identificador está en el conjunto.
+     */
+    public boolean contains(long id) {
+        if (id < 0 || id >>> 48 != 0) return false;
+
+        int index = Arrays.binarySearch(keys, 0, size, (int) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    /**
+     * Cuenta los identificadores del conjunto.
+     *
+     * @return El número de identificadores.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    /**
+     * Calcula la intersección con otro conjunto, sin modificar ninguno de los dos.
+     *
+     * @param other El otro conjunto.
+     * @return Un nuevo conjunto con los identificadores presentes en ambos.
+     */
+    public IdBitmap and(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) result.insertContainer(result.size, keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calcula la unión con otro conjunto, sin modificar ninguno de los dos.
+     *
+     * @param other El otro conjunto.
+     * @return Un nuevo conjunto con los identificadores presentes en alguno de los dos.
+     */
+    public IdBitmap or(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.insertContainer(result.size, keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.insertContainer(result.size, other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.insertContainer(result.size, keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Recorre los identificadores del conjunto en orden ascendente.
+     *
+     * @param consumer El consumidor que recibe cada identificador.
+     */
+    public void forEach(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            long high = (long) keys[i] << 16;
+            containers[i].forEach(low -> consumer.accept(high | low));
+        }
+    }
+
+    /**
+     * Recorre, en orden ascendente, hasta {@code limit} identificadores a partir de la posición {@code offset}.
+     * Los bloques anteriores a esa posición se saltan por su cardinalidad, y dentro de un mapa de bits se saltan
+     * palabras enteras, de modo que el costo depende de {@code limit} y no de la posición.
+     *
+     * @param offset   La posición del primer identificador, empezando en 0.
+     * @param limit    El número máximo de identificadores.
+     * @param consumer El consumidor que recibe cada identificador.
+     */
+    public void forEachFrom(int offset, int limit, LongConsumer consumer) {
+        int skip = Math.max(offset, 0);
+        int remaining = limit;
+        for (int i = 0; i < size && remaining > 0; i++) {
+            int cardinality = containers[i].cardinality();
+            if (skip >= cardinality) {
+                skip -= cardinality;
+                continue;
+            }
+            long high = (long) keys[i] << 16;
+            remaining -= containers[i].forEachFrom(skip, remaining, low -> consumer.accept(high | low));
+            skip = 0;
+        }
+    }
+
+    /**
+     * Obtiene los identificadores del conjunto en orden ascendente.
+     *
+     * @return Una lista con los identificadores.
+     */
+    public List<Long> toList() {
+        List<Long> ids = new ArrayList<>(cardinality());
+        forEach(ids::add);
+        return ids;
+    }
+
+    /**
+     * Crea una copia independiente del conjunto.
+     *
+     * @return La copia.
+     */
+    public IdBitmap copy() {
+        IdBitmap copy = new IdBitmap();
+        for (int i = 0; i < size; i++) copy.insertContainer(i, keys[i], containers[i].copy());
+        return copy;
+    }
+
+    private void insertContainer(int index, int key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Bloque de 65536 valores: un arreglo ordenado de bits bajos o, si es denso, un mapa de bits.
+     */
+    private static final class Container {
+
+        private static final int ARRAY_MAX = 4096;
+        private static final int WORDS = 1024;
+
+        private char[] values = new char[4];
+        private long[] bits;
+        private int cardinality;
+
+        void add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    bits[low >>> 6] |= mask;
+                    cardinality++;
+                }
+                return;
+            }
+
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) return;
+            if (cardinality == ARRAY_MAX) {
+                toBits();
+                add(low);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+        }
+
+        boolean contains(char low) {
+            if (bits != null) return (bits[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        int cardinality() {
+            return cardinality;
+        }
+
+        Container and(Container other) {
+            Container result = new Container();
+            if (bits == null || other.bits == null) {
+                // Con al menos un arreglo, basta con probar cada valor del menor en el otro bloque
+                Container small = bits == null ? this : other;
+                Container large = small == this ? other : this;
+                if (large.bits == null && large.cardinality < small.cardinality) {
+                    Container swap = small;
+                    small = large;
+                    large = swap;
+                }
+                result.values = new char[Math.max(4, small.cardinality)];
+                for (int i = 0; i < small.cardinality; i++) {
+                    if (large.contains(small.values[i])) result.values[result.cardinality++] = small.values[i];
+                }
+                return result;
+            }
+
+            result.bits = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                result.bits[i] = bits[i] & other.bits[i];
+                result.cardinality += Long.bitCount(result.bits[i]);
+            }
+            result.shrinkIfSparse();
+            return result;
+        }
+
+        Container or(Container other) {
+            if (bits == null && other.bits == null && cardinality + other.cardinality <= ARRAY_MAX) {
+                Container result = new Container();
+                result.values = new char[Math.max(4, cardinality + other.cardinality)];
+                int i = 0, j = 0;
+                while (i < cardinality || j < other.cardinality) {
+                    char next;
+                    if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                        next = values[i++];
+                    } else if (i == cardinality || values[i] > other.values[j]) {
+                        next = other.values[j++];
+                    } else {
+                        next = values[i++];
+                        j++;
+                    }
+                    result.values[result.cardinality++] = next;
+                }
+                return result;
+            }
+
+            Container result = copy();
+            result.toBits();
+            if (other.bits != null) {
+                result.cardinality = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result.bits[i] |= other.bits[i];
+                    result.cardinality += Long.bitCount(result.bits[i]);
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) result.add(other.values[i]);
+            }
+            return result;
+        }
+
+        void forEach(LongConsumer consumer) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) consumer.accept(values[i]);
+                return;
+            }
+            for (int word = 0; word < WORDS; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    consumer.accept((long) word << 6 | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+        }
+
+        /**
+         * Recorre hasta {@code limit} valores a partir de la posición {@code skip} del bloque.
+         *
+         * @return El número de valores entregados.
+         */
+        int forEachFrom(int skip, int limit, LongConsumer consumer) {
+            int consumed = 0;
+            if (bits == null) {
+                for (int i = skip; i < cardinality && consumed < limit; i++, consumed++) consumer.accept(values[i]);
+                return consumed;
+            }
+            for (int word = 0; word < WORDS && consumed < limit; word++) {
+                long remaining = bits[word];
+                int count = Long.bitCount(remaining);
+                if (skip >= count) {
+                    skip -= count;
+                    continue;
+                }
+                while (remaining != 0 && consumed < limit) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        consumer.accept((long) word << 6 | Long.numberOfTrailingZeros(remaining));
+                        consumed++;
+                    }
+                    remaining &= remaining - 1;
+                }
+            }
+            return consumed;
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (bits != null) {
+                copy.bits = bits.clone();
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            }
+            return copy;
+        }
+
+        private void toBits() {
+            if (bits != null) return;
+
+            bits = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) bits[values[i] >>> 6] |= 1L << values[i];
+            values = null;
+        }
+
+        private void shrinkIfSparse() {
+            if (cardinality > ARRAY_MAX) return;
+
+            char[] sparse = new char[Math.max(4, cardinality)];
+            int[] next = {0};
+            forEach(low -> sparse[next[0]++] = (char) low);
+            values = sparse;
+            bits = null;
+        }
+    }
+}
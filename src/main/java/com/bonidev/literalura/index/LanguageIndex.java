@@ -0,0 +1,162 @@
+package com.bonidev.literalura.index;
+
+import com.bonidev.literalura.repository.BookRepository;
+import com.bonidev.literalura.service.BookSavedEvent;
+import com.bonidev.literalura.service.CatalogImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria de los libros persistidos por código de idioma, con un {@link IdBitmap} por idioma.
+ * <p>
+ * Las consultas con varios idiomas se resuelven intersecando (todos los idiomas) o uniendo (alguno de los
+ * idiomas) los bitmaps, sin consultar la base de datos. El índice se construye la primera vez que se consulta
+ * y luego se actualiza con cada libro registrado.
+ */
+@Component
+public class LanguageIndex {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, IdBitmap> bitmaps = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Busca los libros disponibles en todos los idiomas dados.
+     *
+     * @param languages Los códigos de idioma.
+     * @return Los libros disponibles en todos los idiomas; vacío si no se indicó ningún idioma.
+     */
+    public IdBitmap findInAll(Collection<String> languages) {
+        if (languages.isEmpty()) return new IdBitmap();
+
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            IdBitmap result = null;
+            for (String language : languages) {
+                IdBitmap bitmap = bitmaps.get(normalize(language));
+                if (bitmap == null) return new IdBitmap();
+                result = result == null ? bitmap.copy() : result.and(bitmap);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los libros disponibles en alguno de los idiomas dados.
+     *
+     * @param languages Los códigos de idioma.
+     * @return Los libros disponibles en al menos uno de los idiomas.
+     */
+    public IdBitmap findInAny(Collection<String> languages) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            IdBitmap result = new IdBitmap();
+            for (String language : languages) {
+                IdBitmap bitmap = bitmaps.get(normalize(language));
+                if (bitmap != null) result = result.or(bitmap);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cuenta los libros disponibles en cada idioma.
+     *
+     * @return El número de libros por código de idioma, ordenado por código.
+     */
+    public Map<String, Integer> countByLanguage() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new TreeMap<>();
+            bitmaps.forEach((language, bitmap) -> counts.put(language, bitmap.cardinality()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega al índice un libro recién registrado, una vez confirmada su transacción. Si el índice se está
+     * construyendo, espera a que termine: la carga pudo haber leído la base de datos antes de que el libro se
+     * confirmara.
+     *
+     * @param event El evento del libro registrado.
+     */
+    @TransactionalEventListener
+    public void onBookSaved(BookSavedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+
+            for (String language : event.book().getLanguages()) {
+                add(event.book().getId(), language);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta el índice tras una importación masiva; se reconstruirá en la próxima consulta.
+     *
+     * @param event El evento de la importación terminada.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Construye el índice a partir de la base de datos si todavía no se construyó.
+     */
+    private void ensureLoaded() {
+        if (loaded) return;
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+
+            for (BookRepository.LanguageRow row : bookRepository.findLanguageRows()) {
+                add(row.getId(), row.getLanguage());
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Long bookId, String language) {
+        bitmaps.computeIfAbsent(normalize(language), key -> new IdBitmap()).add(bookId);
+    }
+
+    private static String normalize(String language) {
+        return language.trim().toLowerCase(Locale.ROOT);
+    }
+}
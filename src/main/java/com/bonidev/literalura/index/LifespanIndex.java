@@ -0,0 +1,238 @@
+package com.bonidev.literalura.index;
+
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.PersonRepository;
+import com.bonidev.literalura.service.BookSavedEvent;
+import com.bonidev.literalura.service.CatalogImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice en memoria de los intervalos de vida (nacimiento, fallecimiento) de los autores persistidos.
+ * <p>
+ * Los intervalos se guardan ordenados por año de nacimiento junto con un árbol de máximos sobre el año de
+ * fallecimiento, de modo que "vivos durante [desde, hasta]" solo recorre las ramas que pueden contener
+ * resultados. Los histogramas por década se resuelven como un barrido: los vivos en una década son los
+ * nacidos antes de que termine menos los fallecidos antes de que empiece. Los autores registrados después
+ * de construir el índice se acumulan en una lista pendiente que se incorpora al superar cierto tamaño.
+ */
+@Component
+public class LifespanIndex {
+
+    private static final int MAX_PENDING = 256;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    private volatile Snapshot snapshot;
+    private final List<long[]> pending = new ArrayList<>();
+    private final Set<Long> indexed = new HashSet<>();
+
+    /**
+     * Busca los autores que estaban vivos en algún momento del rango de años dado (ambos incluidos).
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return Los identificadores de los autores encontrados, en cualquier orden.
+     */
+    public List<Long> findAliveBetween(int from, int to) {
+        List<Long> ids = new ArrayList<>();
+        if (from > to) return ids;
+
+        synchronized (this) {
+            Snapshot current = ensureLoaded();
+            current.collect(from, to, ids);
+            for (long[] lifespan : pending) {
+                if (lifespan[1] <= to && lifespan[2] >= from) ids.add(lifespan[0]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Busca los autores que estaban vivos en un año específico.
+     *
+     * @param year El año solicitado.
+     * @return Los identificadores de los autores encontrados, en cualquier orden.
+     */
+    public List<Long> findAliveIn(int year) {
+        return findAliveBetween(year, year);
+    }
+
+    /**
+     * Cuenta los autores vivos en cada década del rango dado. Un autor cuenta en todas las décadas en las que
+     * vivió al menos un año.
+     *
+     * @param from El primer año del rango; se redondea al inicio de su década.
+     * @param to   El último año del rango.
+     * @return El número de autores vivos por década, indexado por el primer año de la década y en orden.
+     */
+    public Map<Integer, Integer> countAliveByDecade(int from, int to) {
+        Map<Integer, Integer> histogram = new LinkedHashMap<>();
+        synchronized (this) {
+            Snapshot current = ensureLoaded();
+            for (int decade = Math.floorDiv(from, 10) * 10; decade <= to; decade += 10) {
+                int count = current.countAliveBetween(decade, decade + 9);
+                for (long[] lifespan : pending) {
+                    if (lifespan[1] <= decade + 9 && lifespan[2] >= decade) count++;
+                }
+                histogram.put(decade, count);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Agrega al índice los autores de un libro recién registrado, una vez confirmada su transacción.
+     *
+     * @param event El evento del libro registrado.
+     */
+    @TransactionalEventListener
+    public synchronized void onBookSaved(BookSavedEvent event) {
+        if (snapshot == null) return;
+
+        for (PersonEntity author : event.book().getAuthors()) {
+            if (author.getId() == null || !indexed.add(author.getId())) continue;
+            if (author.getDeathYear() < author.getBirthYear()) continue;
+            pending.add(new long[]{author.getId(), author.getBirthYear(), author.getDeathYear()});
+        }
+        if (pending.size() > MAX_PENDING) {
+            snapshot = snapshot.merge(pending);
+            pending.clear();
+        }
+    }
+
+    /**
+     * Descarta el índice tras una importación masiva; se reconstruirá en la próxima consulta.
+     *
+     * @param event El evento de la importación terminada.
+     */
+    @EventListener
+    public synchronized void onCatalogImported(CatalogImportedEvent event) {
+        snapshot = null;
+        pending.clear();
+        indexed.clear();
+    }
+
+    /**
+     * Construye el índice a partir de la base de datos si todavía no se construyó.
+     */
+    private Snapshot ensureLoaded() {
+        if (snapshot != null) return snapshot;
+
+        List<long[]> lifespans = new ArrayList<>();
+        for (PersonRepository.Lifespan row : personRepository.findLifespans()) {
+            indexed.add(row.getId());
+            // Un intervalo invertido nunca contiene un año, igual que en la consulta de la base de datos
+            if (row.getDeathYear() < row.getBirthYear()) continue;
+            lifespans.add(new long[]{row.getId(), row.getBirthYear(), row.getDeathYear()});
+        }
+        snapshot = Snapshot.of(lifespans);
+        return snapshot;
+    }
+
+    /**
+     * Intervalos inmutables ordenados por nacimiento, con un árbol de máximos de fallecimiento y los años de
+     * nacimiento y fallecimiento ordenados por separado para el barrido.
+     */
+    private static final class Snapshot {
+
+        private final long[] ids;
+        private final int[] births;
+        private final int[] deaths;
+        private final int[] sortedDeaths;
+        private final int[] maxDeath;
+        private final int leaves;
+
+        private Snapshot(List<long[]> lifespans) {
+            lifespans.sort((a, b) -> Long.compare(a[1], b[1]));
+            int size = lifespans.size();
+            ids = new long[size];
+            births = new int[size];
+            deaths = new int[size];
+            for (int i = 0; i < size; i++) {
+                long[] lifespan = lifespans.get(i);
+                ids[i] = lifespan[0];
+                births[i] = (int) lifespan[1];
+                deaths[i] = (int) lifespan[2];
+            }
+            sortedDeaths = deaths.clone();
+            Arrays.sort(sortedDeaths);
+
+            int capacity = 1;
+            while (capacity < size) capacity <<= 1;
+            leaves = capacity;
+            maxDeath = new int[2 * capacity];
+            Arrays.fill(maxDeath, Integer.MIN_VALUE);
+            System.arraycopy(deaths, 0, maxDeath, capacity, size);
+            for (int node = capacity - 1; node > 0; node--) {
+                maxDeath[node] = Math.max(maxDeath[2 * node], maxDeath[2 * node + 1]);
+            }
+        }
+
+        static Snapshot of(List<long[]> lifespans) {
+            return new Snapshot(new ArrayList<>(lifespans));
+        }
+
+        Snapshot merge(List<long[]> added) {
+            List<long[]> lifespans = new ArrayList<>(ids.length + added.size());
+            for (int i = 0; i < ids.length; i++) {
+                lifespans.add(new long[]{ids[i], births[i], deaths[i]});
+            }
+            lifespans.addAll(added);
+            return new Snapshot(lifespans);
+        }
+
+        void collect(int from, int to, List<Long> out) {
+            int end = upperBound(births, to);
+            if (end > 0) collect(1, 0, leaves, end, from, out);
+        }
+
+        // Desciende solo por los nodos con nacimientos dentro del prefijo y algún fallecimiento >= from
+        private void collect(int node, int lo, int hi, int end, int from, List<Long> out) {
+            if (lo >= end || maxDeath[node] < from) return;
+            if (hi - lo == 1) {
+                out.add(ids[lo]);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            collect(2 * node, lo, mid, end, from, out);
+            collect(2 * node + 1, mid, hi, end, from, out);
+        }
+
+        int countAliveBetween(int from, int to) {
+            // Como nacimiento <= fallecimiento, quien murió antes de "from" también nació antes de "to"
+            return upperBound(births, to) - lowerBound(sortedDeaths, from);
+        }
+
+        private static int upperBound(int[] values, int key) {
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] <= key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private static int lowerBound(int[] values, int key) {
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.bonidev.literalura.index;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.BookRepository;
+import com.bonidev.literalura.service.BookSavedEvent;
+import com.bonidev.literalura.service.BookUpdatedEvent;
+import com.bonidev.literalura.service.CatalogImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Índice en memoria de los libros más descargados: en todo el catálogo, por idioma y por autor.
+ * <p>
+ * Cada ranking es un montículo de mínimos con los {@link #CAPACITY} libros más descargados de su categoría.
+ * Se carga de la base de datos la primera vez que se consulta (leyendo solo esas filas) y luego se mantiene
+ * con cada libro registrado: un libro nuevo entra si supera al último del ranking. Si una actualización
+ * baja las descargas de un libro del ranking, o un libro de categoría desconocida podría entrar en él, el
+ * ranking se marca como obsoleto y se vuelve a cargar en la próxima consulta.
+ */
+@Component
+public class TopBooksIndex {
+
+    /**
+     * Número de libros que se mantienen en cada ranking.
+     */
+    public static final int CAPACITY = 100;
+
+    // Los rankings por idioma y por autor se crean a pedido; se descartan los menos usados
+    private static final int MAX_RANKINGS = 1024;
+    private static final String ALL = "*";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final Map<String, Ranking> rankings = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ranking> eldest) {
+            return size() > MAX_RANKINGS;
+        }
+    };
+
+    /**
+     * Obtiene los libros más descargados del catálogo.
+     *
+     * @param limit El número de libros, como máximo {@link #CAPACITY}.
+     * @return Los identificadores de los libros, del más al menos descargado.
+     */
+    public List<Long> top(int limit) {
+        return top(ALL, limit, pageable -> bookRepository.findTopRanked(pageable));
+    }
+
+    /**
+     * Obtiene los libros más descargados en un idioma.
+     *
+     * @param language El código del idioma.
+     * @param limit    El número de libros, como máximo {@link #CAPACITY}.
+     * @return Los identificadores de los libros, del más al menos descargado.
+     */
+    public List<Long> topByLanguage(String language, int limit) {
+        String code = normalize(language);
+        return top(languageKey(code), limit, pageable -> bookRepository.findTopRankedByLanguage(code, pageable));
+    }
+
+    /**
+     * Obtiene los libros más descargados de un autor.
+     *
+     * @param authorId El identificador del autor.
+     * @param limit    El número de libros, como máximo {@link #CAPACITY}.
+     * @return Los identificadores de los libros, del más al menos descargado.
+     */
+    public List<Long> topByAuthor(long authorId, int limit) {
+        return top(authorKey(authorId), limit, pageable -> bookRepository.findTopRankedByAuthor(authorId, pageable));
+    }
+
+    /**
+     * Ofrece un libro recién registrado a los rankings de su categoría, una vez confirmada su transacción.
+     *
+     * @param event El evento del libro registrado.
+     */
+    @TransactionalEventListener
+    public synchronized void onBookSaved(BookSavedEvent event) {
+        BookEntity book = event.book();
+        Entry entry = new Entry(book.getId(), naturalKey(book.getTitle(), book.getAuthorKey()), book.getDownloadCount());
+
+        offer(ALL, entry);
+        for (String language : book.getLanguages()) {
+            offer(languageKey(normalize(language)), entry);
+        }
+        for (PersonEntity author : book.getAuthors()) {
+            if (author.getId() != null) offer(authorKey(author.getId()), entry);
+        }
+    }
+
+    /**
+     * Aplica a los rankings el nuevo número de descargas de un libro ya registrado.
+     *
+     * @param event El evento del libro actualizado.
+     */
+    @TransactionalEventListener
+    public synchronized void onBookUpdated(BookUpdatedEvent event) {
+        String key = naturalKey(event.title(), event.authorKey());
+        for (Ranking ranking : rankings.values()) {
+            ranking.update(key, event.downloadCount());
+        }
+    }
+
+    /**
+     * Descarta los rankings tras una importación masiva; se volverán a cargar en la próxima consulta.
+     *
+     * @param event El evento de la importación terminada.
+     */
+    @EventListener
+    public synchronized void onCatalogImported(CatalogImportedEvent event) {
+        rankings.clear();
+    }
+
+    private synchronized List<Long> top(String key, int limit, Function<PageRequest, List<BookRepository.RankRow>> loader) {
+        if (limit < 1 || limit > CAPACITY) throw new IllegalArgumentException("El límite debe estar entre 1 y " + CAPACITY);
+
+        Ranking ranking = rankings.get(key);
+        if (ranking == null || ranking.stale) {
+            ranking = new Ranking();
+            for (BookRepository.RankRow row : loader.apply(PageRequest.of(0, CAPACITY))) {
+                ranking.offer(new Entry(row.getId(), naturalKey(row.getTitle(), row.getAuthorKey()), row.getDownloadCount()));
+            }
+            rankings.put(key, ranking);
+        }
+        return ranking.top(limit);
+    }
+
+    private void offer(String key, Entry entry) {
+        // Solo se mantienen los rankings ya cargados; los demás se leerán completos de la base de datos
+        Ranking ranking = rankings.get(key);
+        if (ranking != null && !ranking.stale) ranking.offer(entry);
+    }
+
+    private static String languageKey(String language) {
+        return "language:" + language;
+    }
+
+    private static String authorKey(long authorId) {
+        return "author:" + authorId;
+    }
+
+    private static String naturalKey(String title, String authorKey) {
+        return title + '\0' + authorKey;
+    }
+
+    private static String normalize(String language) {
+        return language.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Un libro del ranking: identificador, clave natural y número de descargas.
+     */
+    private record Entry(long id, String key, int downloads) {
+    }
+
+    /**
+     * Los libros más descargados de una categoría. Si el montículo no está lleno contiene todos los libros de
+     * la categoría.
+     */
+    private static final class Ranking {
+
+        // El primero del montículo es el peor: menos descargas y, en caso de empate, mayor identificador
+        private static final Comparator<Entry> WORST_FIRST = Comparator.comparingInt(Entry::downloads)
+                .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+        private final PriorityQueue<Entry> heap = new PriorityQueue<>(CAPACITY + 1, WORST_FIRST);
+        private final Map<String, Entry> byKey = new HashMap<>();
+        private boolean stale;
+
+        void offer(Entry entry) {
+            if (byKey.containsKey(entry.key())) return;
+
+            if (heap.size() < CAPACITY) {
+                add(entry);
+            } else if (WORST_FIRST.compare(entry, heap.peek()) > 0) {
+                byKey.remove(heap.poll().key());
+                add(entry);
+            }
+        }
+
+        void update(String key, int downloads) {
+            if (stale) return;
+
+            Entry current = byKey.get(key);
+            if (current != null) {
+                if (downloads < current.downloads()) {
+                    // Podría dejar el ranking y no se sabe qué libro ocuparía su lugar
+                    stale = true;
+                    return;
+                }
+                heap.remove(current);
+                add(new Entry(current.id(), key, downloads));
+            } else if (heap.size() == CAPACITY && downloads >= heap.peek().downloads()) {
+                // Un ranking incompleto ya contiene todos los libros de su categoría; uno lleno no sabe si
+                // el libro pertenece a ella
+                stale = true;
+            }
+        }
+
+        List<Long> top(int limit) {
+            List<Entry> entries = new ArrayList<>(heap);
+            entries.sort(WORST_FIRST.reversed());
+            return entries.subList(0, Math.min(limit, entries.size())).stream().map(Entry::id).toList();
+        }
+
+        private void add(Entry entry) {
+            heap.add(entry);
+            byKey.put(entry.key(), entry);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.bonidev.literalura.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Servidor HTTP mínimo que expone las métricas en formato Prometheus en {@code /actuator/prometheus}.
+ * <p>
+ * La aplicación de consola no levanta un servidor web, así que el endpoint de Actuator no es accesible por
+ * HTTP; este servidor lo reemplaza para que un scraper local pueda leer las métricas. Solo se inicia si se
+ * configura {@code literalura.metrics.port}, y escucha únicamente en la interfaz local. Si el puerto ya está
+ * ocupado, la aplicación sigue funcionando sin publicar las métricas.
+ */
+@Component
+@ConditionalOnProperty("literalura.metrics.port")
+public class PrometheusScrapeServer {
+
+    private static final String PATH = "/actuator/prometheus";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Logger log = LoggerFactory.getLogger(PrometheusScrapeServer.class);
+
+    @Autowired
+    private PrometheusMeterRegistry registry;
+
+    @Value("${literalura.metrics.port}")
+    private int port;
+
+    private HttpServer server;
+
+    /**
+     * Inicia el servidor al arrancar la aplicación.
+     *
+     * @throws IOException Si no se puede crear el servidor por un motivo distinto de un puerto ocupado.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        } catch (BindException e) {
+            log.warn("No se publican las métricas: el puerto {} ya está en uso", port);
+            return;
+        }
+        server.createContext(PATH, this::scrape);
+        server.start();
+    }
+
+    /**
+     * Detiene el servidor al cerrar la aplicación.
+     */
+    @PreDestroy
+    public void stop() {
+        if (server != null) server.stop(0);
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
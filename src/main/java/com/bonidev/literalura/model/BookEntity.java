@@ -1,31 +1,57 @@
 package com.bonidev.literalura.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.Objects;
 import java.util.Set;
 
 /**
- * Entidad que representa un libro en la base de datos.
+ * Entidad que representa un libro en la base de datos. Los libros y sus asociaciones se guardan en la caché
+ * de segundo nivel.
  */
 @Entity
-@Table(name = "books")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
+@NamedEntityGraph(name = "BookEntity.authorsAndLanguages", attributeNodes = {
+        @NamedAttributeNode("authors"),
+        @NamedAttributeNode("languages")})
+@Table(name = "books",
+        uniqueConstraints = {@UniqueConstraint(name = "uk_books_title_author_key", columnNames = {"title", "author_key"})},
+        indexes = {@Index(name = "idx_books_download_count", columnList = "download_count")})
 public class BookEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String title;
 
-    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // Huella de los autores que, junto al título, forma la clave natural del libro. Las bases de datos
+    // anteriores a esta columna se migran con BookNaturalKeyMigration.
+    @Column(name = "author_key", length = 64, nullable = false)
+    private String authorKey;
+
+    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-authors")
     @JoinTable(
             name = "book_author",
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "person_id"))
     private Set<PersonEntity> authors;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-languages")
     @CollectionTable(
             name = "book_language",
             joinColumns = @JoinColumn(name = "book_id"))
@@ -58,6 +84,37 @@ public class BookEntity {
         this.languages = languages;
         this.htmlLink = htmlLink;
         this.downloadCount = downloadCount;
+        this.authorKey = authorKeyOf(authors);
+    }
+
+    /**
+     * Calcula la huella de un conjunto de autores. La huella no depende del orden de los autores ni de
+     * mayúsculas o espacios sobrantes en sus nombres.
+     *
+     * @param authors Los autores del libro.
+     * @return La huella SHA-256 en hexadecimal de los autores.
+     */
+    public static String authorKeyOf(Collection<PersonEntity> authors) {
+        String canonical = authors == null ? "" : authors.stream()
+                .map(author -> author.getName().trim().toLowerCase() + "|" + author.getBirthYear() + "|" + author.getDeathYear())
+                .sorted()
+                .reduce((a, b) -> a + ";" + b)
+                .orElse("");
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+    /**
+     * Recalcula la huella de autores antes de insertar el libro.
+     */
+    @PrePersist
+    public void refreshAuthorKey() {
+        this.authorKey = authorKeyOf(authors);
     }
 
     public Long getId() {
@@ -76,12 +133,17 @@ public class BookEntity {
         this.title = title;
     }
 
+    public String getAuthorKey() {
+        return authorKey;
+    }
+
     public Set<PersonEntity> getAuthors() {
         return authors;
     }
 
     public void setAuthors(Set<PersonEntity> authors) {
         this.authors = authors;
+        this.authorKey = authorKeyOf(authors);
     }
 
     public Set<String> getLanguages() {
@@ -127,7 +189,8 @@ public class BookEntity {
     }
 
     /**
-     * Compara este objeto BookEntity con otro para verificar si son iguales.
+     * Compara este objeto BookEntity con otro para verificar si son iguales según su clave natural
+     * (título y huella de autores).
      *
      * @param obj El objeto a comparar.
      * @return true si los objetos son iguales, false en caso contrario.
@@ -139,9 +202,7 @@ public class BookEntity {
 
         BookEntity book = (BookEntity) obj;
         return Objects.equals(title, book.title) &&
-                Objects.equals(authors, book.authors) &&
-                Objects.equals(languages, book.languages) &&
-                Objects.equals(htmlLink, book.htmlLink);
+                Objects.equals(authorKey, book.authorKey);
     }
 
     /**
@@ -151,6 +212,6 @@ public class BookEntity {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(title, authors, languages);
+        return Objects.hash(title, authorKey);
     }
 }
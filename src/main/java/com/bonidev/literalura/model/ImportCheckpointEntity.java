@@ -0,0 +1,40 @@
+package com.bonidev.literalura.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Entidad que registra el avance de una importación masiva del catálogo, para poder reanudarla desde el
+ * último lote confirmado.
+ */
+@Entity
+@Table(name = "import_checkpoints")
+public class ImportCheckpointEntity {
+    @Id
+    private String source;
+
+    @Column(name = "records_done", nullable = false)
+    private long recordsDone;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    /**
+     * Constructor por defecto.
+     */
+    public ImportCheckpointEntity() {
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getRecordsDone() {
+        return recordsDone;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -1,16 +1,25 @@
 package com.bonidev.literalura.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 /**
- * Entidad que representa una persona (autor) en la base de datos.
+ * Entidad que representa una persona (autor) en la base de datos. Las personas y sus libros se guardan en la
+ * caché de segundo nivel.
  */
 @Entity
-@Table(name = "persons", uniqueConstraints = {@UniqueConstraint(columnNames = {"name", "birth_year", "death_year"})})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
+@NamedEntityGraph(name = "PersonEntity.books", attributeNodes = @NamedAttributeNode("books"))
+@Table(name = "persons",
+        uniqueConstraints = {@UniqueConstraint(columnNames = {"name", "birth_year", "death_year"})},
+        indexes = {@Index(name = "idx_persons_birth_death", columnList = "birth_year, death_year")})
 public class PersonEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,7 +34,10 @@ public class PersonEntity {
     @Column(name = "death_year")
     private int deathYear;
 
-    @ManyToMany(mappedBy = "authors", fetch = FetchType.EAGER)
+    // Lado inverso: Hibernate no lo invalida al registrar un libro, ver SecondLevelCacheService
+    @ManyToMany(mappedBy = "authors", fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person-books")
     private Set<BookEntity> books = new HashSet<>();
 
     /**
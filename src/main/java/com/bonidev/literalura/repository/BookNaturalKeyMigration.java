@@ -0,0 +1,161 @@
+package com.bonidev.literalura.repository;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migración de las bases de datos creadas antes de que la clave natural de los libros fuera (título, huella de
+ * autores). Se ejecuta al arrancar, antes de que Hibernate actualice el esquema, y en una sola transacción:
+ * <ol>
+ *   <li>agrega la columna {@code author_key} si no existe;</li>
+ *   <li>elimina la restricción única sobre {@code title}, que impedía guardar dos libros con el mismo título
+ *   y distintos autores (Hibernate no la elimina por sí solo);</li>
+ *   <li>calcula la huella de los libros que no la tienen, a partir de {@code book_author} y {@code persons};</li>
+ *   <li>hace obligatoria la columna.</li>
+ * </ol>
+ * Hibernate crea después la restricción única (title, author_key). Sobre una base de datos nueva o ya migrada
+ * no hace nada. Se desactiva con {@code literalura.schema.migrate=false}.
+ */
+@Component(BookNaturalKeyMigration.BEAN_NAME)
+@ConditionalOnProperty(name = "literalura.schema.migrate", havingValue = "true", matchIfMissing = true)
+public class BookNaturalKeyMigration {
+
+    static final String BEAN_NAME = "bookNaturalKeyMigration";
+
+    private static final Logger log = LoggerFactory.getLogger(BookNaturalKeyMigration.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Hace que Hibernate espere a la migración antes de validar o actualizar el esquema.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "literalura.schema.migrate", havingValue = "true", matchIfMissing = true)
+    static class RunBeforeJpa extends EntityManagerFactoryDependsOnPostProcessor {
+
+        RunBeforeJpa() {
+            super(BEAN_NAME);
+        }
+    }
+
+    /**
+     * Constructor con la fuente de datos a migrar.
+     *
+     * @param dataSource La fuente de datos.
+     */
+    public BookNaturalKeyMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @PostConstruct
+    void migrateOnStartup() {
+        migrate();
+    }
+
+    /**
+     * Aplica la migración si la tabla de libros existe y todavía no está migrada.
+     *
+     * @return El número de libros a los que se calculó la huella de autores.
+     */
+    public int migrate() {
+        Integer backfilled = new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+            Map<String, Boolean> columns = bookColumns();
+            if (columns.isEmpty()) return 0;
+
+            if (!columns.containsKey("author_key")) {
+                jdbcTemplate.execute("ALTER TABLE books ADD COLUMN author_key VARCHAR(64)");
+            }
+            for (String constraint : titleOnlyUniqueConstraints()) {
+                jdbcTemplate.execute("ALTER TABLE books DROP CONSTRAINT \"" + constraint + "\"");
+                log.info("Eliminada la restricción única {} sobre books.title", constraint);
+            }
+            int count = backfillAuthorKeys();
+            if (columns.getOrDefault("author_key", true)) {
+                jdbcTemplate.execute("ALTER TABLE books ALTER COLUMN author_key SET NOT NULL");
+            }
+            return count;
+        });
+        if (backfilled != null && backfilled > 0) {
+            log.info("Huella de autores calculada para {} libros existentes", backfilled);
+        }
+        return backfilled == null ? 0 : backfilled;
+    }
+
+    /**
+     * Consulta las columnas de la tabla de libros y si admiten nulos.
+     *
+     * @return El nombre (en minúsculas) y la nulabilidad de cada columna, o un mapa vacío si no existe la tabla.
+     */
+    private Map<String, Boolean> bookColumns() {
+        Map<String, Boolean> columns = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT column_name, is_nullable FROM information_schema.columns
+                        WHERE LOWER(table_name) = 'books' AND table_schema = CURRENT_SCHEMA""",
+                rs -> {
+                    columns.put(rs.getString("column_name").toLowerCase(), "YES".equalsIgnoreCase(rs.getString("is_nullable")));
+                });
+        return columns;
+    }
+
+    private List<String> titleOnlyUniqueConstraints() {
+        return jdbcTemplate.queryForList("""
+                SELECT tc.constraint_name FROM information_schema.table_constraints tc
+                JOIN information_schema.key_column_usage k
+                  ON k.constraint_name = tc.constraint_name AND k.table_name = tc.table_name AND k.table_schema = tc.table_schema
+                WHERE LOWER(tc.table_name) = 'books' AND tc.table_schema = CURRENT_SCHEMA AND tc.constraint_type = 'UNIQUE'
+                GROUP BY tc.constraint_name
+                HAVING COUNT(*) = 1 AND MAX(LOWER(k.column_name)) = 'title'""", String.class);
+    }
+
+    /**
+     * Calcula la huella de autores de los libros que no la tienen, por bloques, con la misma función que usa
+     * {@link BookEntity} al guardar.
+     *
+     * @return El número de libros actualizados.
+     */
+    private int backfillAuthorKeys() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM books WHERE author_key IS NULL ORDER BY id", Long.class);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            Map<Long, List<PersonEntity>> authors = new HashMap<>();
+            namedJdbcTemplate.query("""
+                            SELECT ba.book_id, p.name, p.birth_year, p.death_year
+                            FROM book_author ba JOIN persons p ON p.id = ba.person_id
+                            WHERE ba.book_id IN (:ids)""",
+                    Map.of("ids", chunk),
+                    rs -> {
+                        authors.computeIfAbsent(rs.getLong("book_id"), id -> new ArrayList<>())
+                                .add(new PersonEntity(rs.getString("name"), rs.getInt("birth_year"), rs.getInt("death_year")));
+                    });
+
+            List<Object[]> keys = new ArrayList<>(chunk.size());
+            for (Long id : chunk) {
+                keys.add(new Object[]{BookEntity.authorKeyOf(authors.getOrDefault(id, List.of())), id});
+            }
+            jdbcTemplate.batchUpdate("UPDATE books SET author_key = ? WHERE id = ?", keys);
+        }
+        return ids.size();
+    }
+}
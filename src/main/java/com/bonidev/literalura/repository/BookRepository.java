@@ -1,10 +1,23 @@
 package com.bonidev.literalura.repository;
 
+import com.bonidev.literalura.dto.BookRow;
 import com.bonidev.literalura.model.BookEntity;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 /**
  * Interfaz de repositorio para la entidad BookEntity. Proporciona métodos para realizar operaciones CRUD
  * y consultas personalizadas sobre los libros.
@@ -12,10 +25,188 @@ import java.util.List;
 public interface BookRepository extends JpaRepository<BookEntity, Long> {
 
     /**
-     * Consulta los libros que están escritos en un idioma específico.
+     * Proyección con los datos necesarios para indexar un libro en la búsqueda de texto: una fila por cada
+     * autor del libro.
+     */
+    interface SearchRow {
+        Long getId();
+
+        String getTitle();
+
+        String getAuthorName();
+    }
+
+    /**
+     * Proyección con un par libro-idioma, usada para construir el índice de idiomas.
+     */
+    interface LanguageRow {
+        Long getId();
+
+        String getLanguage();
+    }
+
+    /**
+     * Proyección con los datos necesarios para ordenar un libro por número de descargas.
+     */
+    interface RankRow {
+        Long getId();
+
+        String getTitle();
+
+        String getAuthorKey();
+
+        int getDownloadCount();
+    }
+
+    /**
+     * Proyección con las estadísticas de descargas del catálogo. Los valores son nulos si no hay libros.
+     */
+    interface DownloadStats {
+        long getBooks();
+
+        Integer getMinimum();
+
+        Integer getMaximum();
+
+        Double getAverage();
+
+        Long getTotal();
+
+        Double getMedian();
+
+        Double getP90();
+
+        Double getP99();
+    }
+
+    /**
+     * Consulta todos los libros junto con sus autores e idiomas.
+     *
+     * @return Una lista con todos los libros.
+     */
+    @Override
+    @EntityGraph("BookEntity.authorsAndLanguages")
+    List<BookEntity> findAll();
+
+    /**
+     * Consulta los libros que están escritos en un idioma específico, junto con sus autores e idiomas. El
+     * resultado se guarda en la caché de consultas hasta que cambie alguna de las tablas consultadas.
      *
      * @param language El código del idioma por el cual se quiere buscar.
      * @return Una lista de libros que están escritos en el idioma especificado.
      */
-    List<BookEntity> findByLanguages(String language);
+    @EntityGraph("BookEntity.authorsAndLanguages")
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "listings")})
+    @Query(value = "SELECT b FROM BookEntity b WHERE :language MEMBER OF b.languages")
+    List<BookEntity> findByLanguages(@Param("language") String language);
+
+    /**
+     * Consulta los libros con los identificadores dados, junto con sus autores e idiomas.
+     *
+     * @param ids Los identificadores de los libros.
+     * @return Los libros encontrados, en cualquier orden.
+     */
+    @EntityGraph("BookEntity.authorsAndLanguages")
+    List<BookEntity> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Actualiza los datos variables de un libro ya registrado, identificado por su clave natural. Es la rama
+     * de actualización del upsert de libros y no carga la entidad en memoria.
+     *
+     * @param title         El título del libro.
+     * @param authorKey     La huella de los autores del libro.
+     * @param htmlLink      El enlace HTML del libro.
+     * @param downloadCount El número de descargas del libro.
+     * @return La cantidad de filas actualizadas (0 si el libro no existe).
+     */
+    @Modifying
+    @Query(value = "UPDATE BookEntity b SET b.htmlLink = :htmlLink, b.downloadCount = :downloadCount WHERE b.title = :title AND b.authorKey = :authorKey")
+    int updateByNaturalKey(@Param("title") String title,
+                           @Param("authorKey") String authorKey,
+                           @Param("htmlLink") String htmlLink,
+                           @Param("downloadCount") int downloadCount);
+
+    /**
+     * Consulta el título y los nombres de autor de todos los libros, sin cargar las entidades, para construir
+     * el índice de búsqueda de texto.
+     *
+     * @return Una fila por cada par libro-autor (o una fila con autor nulo si el libro no tiene autores).
+     */
+    @Query(value = "SELECT b.id AS id, b.title AS title, a.name AS authorName FROM BookEntity b LEFT JOIN b.authors a")
+    List<SearchRow> findSearchRows();
+
+    /**
+     * Consulta los idiomas de todos los libros, sin cargar las entidades, para construir el índice de idiomas.
+     *
+     * @return Una fila por cada par libro-idioma.
+     */
+    @Query(value = "SELECT b.id AS id, l AS language FROM BookEntity b JOIN b.languages l")
+    List<LanguageRow> findLanguageRows();
+
+    /**
+     * Calcula en la base de datos las estadísticas de descargas de todo el catálogo, sin leer los libros.
+     *
+     * @return El número de libros, el mínimo, máximo, promedio y total de descargas, y sus percentiles 50, 90 y 99.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT COUNT(*) AS books,
+                   MIN(download_count) AS minimum,
+                   MAX(download_count) AS maximum,
+                   CAST(AVG(CAST(download_count AS DOUBLE PRECISION)) AS DOUBLE PRECISION) AS average,
+                   SUM(CAST(download_count AS BIGINT)) AS total,
+                   PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY download_count) AS median,
+                   PERCENTILE_CONT(0.9) WITHIN GROUP (ORDER BY download_count) AS p90,
+                   PERCENTILE_CONT(0.99) WITHIN GROUP (ORDER BY download_count) AS p99
+            FROM books""")
+    DownloadStats getDownloadStats();
+
+    /**
+     * Consulta los libros más descargados. Con el índice sobre download_count solo se leen las filas pedidas.
+     *
+     * @param pageable El número de libros a obtener.
+     * @return Los libros, del más al menos descargado (y por identificador en caso de empate).
+     */
+    @Query(value = "SELECT b.id AS id, b.title AS title, b.authorKey AS authorKey, b.downloadCount AS downloadCount FROM BookEntity b ORDER BY b.downloadCount DESC, b.id")
+    List<RankRow> findTopRanked(Pageable pageable);
+
+    /**
+     * Consulta los libros más descargados en un idioma.
+     *
+     * @param language El código del idioma.
+     * @param pageable El número de libros a obtener.
+     * @return Los libros, del más al menos descargado (y por identificador en caso de empate).
+     */
+    @Query(value = "SELECT b.id AS id, b.title AS title, b.authorKey AS authorKey, b.downloadCount AS downloadCount FROM BookEntity b JOIN b.languages l WHERE l = :language ORDER BY b.downloadCount DESC, b.id")
+    List<RankRow> findTopRankedByLanguage(@Param("language") String language, Pageable pageable);
+
+    /**
+     * Consulta los libros más descargados de un autor.
+     *
+     * @param authorId El identificador del autor.
+     * @param pageable El número de libros a obtener.
+     * @return Los libros, del más al menos descargado (y por identificador en caso de empate).
+     */
+    @Query(value = "SELECT b.id AS id, b.title AS title, b.authorKey AS authorKey, b.downloadCount AS downloadCount FROM BookEntity b JOIN b.authors a WHERE a.id = :authorId ORDER BY b.downloadCount DESC, b.id")
+    List<RankRow> findTopRankedByAuthor(@Param("authorId") Long authorId, Pageable pageable);
+
+    /**
+     * Consulta los identificadores de una porción de los libros, sin contar el total de registros.
+     *
+     * @param pageable La página solicitada (número, tamaño y orden).
+     * @return Los identificadores de la página y si existe una página siguiente.
+     */
+    @Query(value = "SELECT b.id FROM BookEntity b")
+    Slice<Long> findIdsBy(Pageable pageable);
+
+    /**
+     * Consulta los datos de listado de los libros dados como filas planas, sin cargar las entidades.
+     *
+     * @param ids Los identificadores de los libros.
+     * @return Una fila por cada combinación de autor e idioma de cada libro.
+     */
+    @Query(value = """
+            SELECT new com.bonidev.literalura.dto.BookRow(b.id, b.title, b.htmlLink, b.downloadCount, a.name, a.birthYear, a.deathYear, l)
+            FROM BookEntity b LEFT JOIN b.authors a LEFT JOIN b.languages l
+            WHERE b.id IN :ids""")
+    List<BookRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
 }
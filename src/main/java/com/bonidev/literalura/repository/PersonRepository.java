@@ -1,18 +1,67 @@
 package com.bonidev.literalura.repository;
 
 import com.bonidev.literalura.model.PersonEntity;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 /**
  * Interfaz de repositorio para la entidad PersonEntity. Proporciona métodos para realizar operaciones CRUD
  * y consultas personalizadas sobre las personas.
  */
 public interface PersonRepository extends JpaRepository<PersonEntity, Long> {
 
+    /**
+     * Proyección con el intervalo de vida de una persona, usada para construir el índice de intervalos.
+     */
+    interface Lifespan {
+        Long getId();
+
+        int getBirthYear();
+
+        int getDeathYear();
+    }
+
+    /**
+     * Proyección con el número de personas que comparten un mismo intervalo de vida.
+     */
+    interface LifespanCount {
+        int getBirthYear();
+
+        int getDeathYear();
+
+        long getPersons();
+    }
+
+    /**
+     * Consulta todas las personas junto con sus libros.
+     *
+     * @return Una lista con todas las personas.
+     */
+    @Override
+    @EntityGraph("PersonEntity.books")
+    List<PersonEntity> findAll();
+
+    /**
+     * Consulta las personas con los identificadores dados, junto con sus libros.
+     *
+     * @param ids Los identificadores de las personas.
+     * @return Las personas encontradas, en cualquier orden.
+     */
+    @EntityGraph("PersonEntity.books")
+    List<PersonEntity> findByIdIn(Collection<Long> ids);
+
     /**
      * Busca una persona por su nombre, año de nacimiento y año de fallecimiento.
      *
@@ -23,12 +72,66 @@ public interface PersonRepository extends JpaRepository<PersonEntity, Long> {
      */
     PersonEntity findByNameAndBirthYearAndDeathYear(String name, int birthYear, int deathYear);
 
+    /**
+     * Consulta los nombres de todas las personas, de la más antigua a la más reciente.
+     *
+     * @return Los nombres de las personas en orden de identificador.
+     */
+    @Query(value = "SELECT p.name FROM PersonEntity p ORDER BY p.id")
+    List<String> findAllNames();
+
     /**
      * Consulta todas las personas que estaban vivas en un año específico.
      *
      * @param yearRequested El año para el cual se desea obtener las personas vivas.
      * @return Una lista de personas que estaban vivas en el año especificado.
      */
+    @EntityGraph("PersonEntity.books")
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "listings")})
     @Query(value = "SELECT p FROM PersonEntity p WHERE p.birthYear <= :year AND p.deathYear >= :year")
     List<PersonEntity> getLivingPersonsInAGivenYear(@Param("year") int yearRequested);
+
+    /**
+     * Consulta todas las personas que estaban vivas en algún momento de un rango de años. La condición sobre
+     * el año de nacimiento usa el índice compuesto (birth_year, death_year).
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return Una lista de personas vivas durante el rango, ordenadas por identificador.
+     */
+    @EntityGraph("PersonEntity.books")
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "listings")})
+    @Query(value = "SELECT p FROM PersonEntity p WHERE p.birthYear <= :to AND p.deathYear >= :from ORDER BY p.id")
+    List<PersonEntity> getLivingPersonsBetween(@Param("from") int from, @Param("to") int to);
+
+    /**
+     * Cuenta las personas vivas durante un rango de años agrupadas por su intervalo de vida. La agrupación
+     * recorre el índice compuesto (birth_year, death_year) y devuelve una fila por intervalo distinto, no por
+     * persona.
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return Los intervalos de vida del rango con su número de personas.
+     */
+    @Query(value = """
+            SELECT p.birthYear AS birthYear, p.deathYear AS deathYear, COUNT(p) AS persons FROM PersonEntity p
+            WHERE p.birthYear <= :to AND p.deathYear >= :from GROUP BY p.birthYear, p.deathYear""")
+    List<LifespanCount> countLifespansBetween(@Param("from") int from, @Param("to") int to);
+
+    /**
+     * Consulta el identificador y los años de nacimiento y fallecimiento de todas las personas.
+     *
+     * @return Los intervalos de vida de todas las personas.
+     */
+    @Query(value = "SELECT p.id AS id, p.birthYear AS birthYear, p.deathYear AS deathYear FROM PersonEntity p")
+    List<Lifespan> findLifespans();
+
+    /**
+     * Consulta los identificadores de una porción de las personas, sin contar el total de registros.
+     *
+     * @param pageable La página solicitada (número, tamaño y orden).
+     * @return Los identificadores de la página y si existe una página siguiente.
+     */
+    @Query(value = "SELECT p.id FROM PersonEntity p")
+    Slice<Long> findIdsBy(Pageable pageable);
 }
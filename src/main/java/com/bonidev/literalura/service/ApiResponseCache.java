@@ -0,0 +1,197 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché en memoria de las respuestas de la API de libros, indexada por el término de búsqueda normalizado.
+ * <p>
+ * Las entradas se desalojan por tamaño (la menos usada recientemente) y por antigüedad. Una entrada es
+ * fresca durante {@code ttl}; después queda obsoleta pero se conserva hasta {@code staleTtl} para
+ * revalidarla con una solicitud condicional (ETag / Last-Modified) en lugar de descargarla de nuevo.
+ */
+public class ApiResponseCache {
+
+    /**
+     * Entrada de la caché.
+     *
+     * @param books        Los libros de la respuesta.
+     * @param etag         El encabezado ETag de la respuesta, o null si no lo tenía.
+     * @param lastModified El encabezado Last-Modified de la respuesta, o null si no lo tenía.
+     * @param storedAt     El instante (en nanosegundos) en que la entrada se guardó o revalidó.
+     */
+    public record Entry(List<BookDTO> books, String etag, String lastModified, long storedAt) {
+
+        /**
+         * Indica si la entrada puede revalidarse con una solicitud condicional.
+         *
+         * @return true si la entrada tiene ETag o Last-Modified.
+         */
+        public boolean isRevalidatable() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Contadores de la caché, para dimensionarla.
+     *
+     * @param hits          Búsquedas respondidas con una entrada fresca.
+     * @param revalidations Búsquedas respondidas con una entrada obsoleta confirmada por la API (304).
+     * @param misses        Búsquedas que requirieron descargar la respuesta completa.
+     * @param evictions     Entradas desalojadas por tamaño o antigüedad.
+     * @param size          Entradas actualmente en la caché.
+     */
+    public record Stats(long hits, long revalidations, long misses, long evictions, int size) {
+
+        @Override
+        public String toString() {
+            return String.format("aciertos=%d, revalidaciones=%d, fallos=%d, desalojos=%d, entradas=%d",
+                    hits, revalidations, misses, evictions, size);
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long staleTtlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hits;
+    private long revalidations;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor de la caché.
+     *
+     * @param maxEntries El número máximo de entradas.
+     * @param ttl        El tiempo durante el cual una entrada es fresca.
+     * @param staleTtl   El tiempo máximo que se conserva una entrada para revalidarla.
+     */
+    public ApiResponseCache(int maxEntries, Duration ttl, Duration staleTtl) {
+        this(maxEntries, ttl, staleTtl, System::nanoTime);
+    }
+
+    ApiResponseCache(int maxEntries, Duration ttl, Duration staleTtl, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.staleTtlNanos = Math.max(staleTtl.toNanos(), ttlNanos);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ApiResponseCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Normaliza un término de búsqueda: sin espacios sobrantes, en minúsculas y con los espacios internos
+     * colapsados.
+     *
+     * @param searchTerm El término de búsqueda.
+     * @return El término normalizado, usado como clave de la caché.
+     */
+    public static String normalize(String searchTerm) {
+        return searchTerm.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Obtiene la entrada de un término, fresca u obsoleta. Las entradas que superaron {@code staleTtl} se
+     * desalojan.
+     *
+     * @param key El término normalizado.
+     * @return La entrada, o null si no existe.
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && age(entry) > staleTtlNanos) {
+            entries.remove(key);
+            evictions++;
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Indica si una entrada sigue fresca.
+     *
+     * @param entry La entrada.
+     * @return true si la entrada tiene menos de {@code ttl} de antigüedad.
+     */
+    public boolean isFresh(Entry entry) {
+        return age(entry) < ttlNanos;
+    }
+
+    /**
+     * Registra un acierto sobre una entrada fresca.
+     */
+    public synchronized void recordHit() {
+        hits++;
+    }
+
+    /**
+     * Guarda la respuesta completa de un término, registrando un fallo.
+     *
+     * @param key          El término normalizado.
+     * @param books        Los libros de la respuesta.
+     * @param etag         El encabezado ETag de la respuesta, o null.
+     * @param lastModified El encabezado Last-Modified de la respuesta, o null.
+     * @return La entrada guardada.
+     */
+    public synchronized Entry put(String key, List<BookDTO> books, String etag, String lastModified) {
+        misses++;
+        purgeExpired();
+        Entry entry = new Entry(List.copyOf(books), etag, lastModified, clock.getAsLong());
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Marca como fresca una entrada obsoleta que la API confirmó sin cambios (304).
+     *
+     * @param key   El término normalizado.
+     * @param entry La entrada revalidada.
+     * @return La entrada con su antigüedad reiniciada.
+     */
+    public synchronized Entry revalidated(String key, Entry entry) {
+        revalidations++;
+        Entry refreshed = new Entry(entry.books(), entry.etag(), entry.lastModified(), clock.getAsLong());
+        entries.put(key, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Obtiene los contadores actuales de la caché.
+     *
+     * @return Los contadores de la caché.
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, revalidations, misses, evictions, entries.size());
+    }
+
+    private long age(Entry entry) {
+        return clock.getAsLong() - entry.storedAt();
+    }
+
+    private void purgeExpired() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (age(iterator.next()) > staleTtlNanos) {
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bonidev.literalura.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción que indica que la API de libros no está disponible: el circuito está abierto tras varios fallos
+ * seguidos y las solicitudes se rechazan sin enviarse hasta que vuelva a probarse.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ApiUnavailableException extends RuntimeException {
+
+    /**
+     * Constructor con mensaje.
+     *
+     * @param message La descripción del rechazo.
+     */
+    public ApiUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,248 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.PersonRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Diccionario de nombres de autor canónicos.
+ * <p>
+ * Los nombres se normalizan (forma Unicode NFC, espacios recortados y colapsados, un espacio después de cada
+ * coma y sin comas al final) y se comparan sin distinguir mayúsculas, de modo que "Twain, Mark",
+ * "Twain, Mark " y "twain,mark" resuelven a la misma cadena: la que ya estaba en la base de datos o, si no,
+ * la primera que se vio. Así todas las entidades y DTO de un autor comparten una sola instancia del nombre.
+ * <p>
+ * La tabla se carga con los nombres registrados la primera vez que se canoniza un nombre, no al arrancar.
+ * Un nombre nuevo solo se vuelve canónico cuando la transacción que lo usó se confirma; mientras tanto sus
+ * variantes se unifican dentro de esa transacción, y si se revierte se descarta. Fuera de una transacción
+ * un nombre desconocido se devuelve normalizado sin registrarse, de modo que la tabla solo crece con los
+ * nombres que llegan a la base de datos.
+ * <p>
+ * La tabla es de direccionamiento abierto sobre arreglos paralelos, sin un objeto de entrada por nombre
+ * como en un HashMap; la clave normalizada y el nombre canónico son la misma instancia salvo cuando el
+ * nombre de la base de datos no está normalizado.
+ */
+@Component
+public class AuthorNameDictionary {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private CatalogSnapshotService snapshots;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+    private volatile boolean loaded;
+
+    /**
+     * Obtiene el nombre canónico de un autor. Si el nombre es nuevo y hay una transacción en curso, se
+     * registra al confirmarse la transacción.
+     *
+     * @param name El nombre tal como llegó.
+     * @return La instancia compartida del nombre canónico, el nombre normalizado si es nuevo, o null si el
+     * nombre es null.
+     */
+    public String canonicalize(String name) {
+        if (name == null) return null;
+        String key = normalize(name);
+        ensureLoaded();
+
+        String canonical = lookup(key, hash(key));
+        if (canonical != null) return canonical;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return key;
+
+        // Las variantes de un nombre nuevo se unifican dentro de la transacción hasta que se confirme
+        return pendingNames().computeIfAbsent(key, pending -> pending);
+    }
+
+    /**
+     * Cuenta los nombres canónicos registrados.
+     *
+     * @return El número de nombres distintos.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normaliza un nombre de autor sin cambiar sus mayúsculas.
+     *
+     * @param name El nombre a normalizar.
+     * @return El nombre normalizado; la misma instancia si ya lo estaba.
+     */
+    static String normalize(String name) {
+        String text = Normalizer.isNormalized(name, Normalizer.Form.NFC) ? name : Normalizer.normalize(name, Normalizer.Form.NFC);
+
+        StringBuilder builder = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = builder.length() > 0;
+                continue;
+            }
+            if (pendingSpace && c != ',') builder.append(' ');
+            builder.append(c);
+            pendingSpace = c == ',';
+        }
+
+        int end = builder.length();
+        while (end > 0 && builder.charAt(end - 1) == ',') end--;
+        builder.setLength(end);
+
+        String normalized = builder.toString();
+        return normalized.equals(name) ? name : normalized;
+    }
+
+    /**
+     * Carga los nombres de los autores ya registrados si todavía no se cargaron, para que sus variantes
+     * resuelvan al nombre guardado. Sin conexión a la base de datos se usan los nombres de la instantánea del
+     * catálogo, si hay una cargada.
+     */
+    private void ensureLoaded() {
+        if (loaded) return;
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+
+            List<String> registered;
+            try {
+                registered = personRepository.findAllNames();
+            } catch (DataAccessException e) {
+                registered = snapshots.catalog()
+                        .map(catalog -> catalog.getAllPersons().stream().map(PersonEntity::getName).toList())
+                        .orElseThrow(() -> e);
+            }
+            for (String name : registered) {
+                if (name != null) intern(normalize(name), name);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene los nombres nuevos de la transacción en curso, creándolos la primera vez junto con la
+     * sincronización que los registra al confirmarse.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, String> pendingNames() {
+        Map<String, String> pending = (Map<String, String>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) return pending;
+
+        Map<String, String> created = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                created.values().forEach(name -> intern(name, name));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(AuthorNameDictionary.this);
+            }
+        });
+        return created;
+    }
+
+    private String lookup(String key, int hash) {
+        lock.readLock().lock();
+        try {
+            return names[find(key, hash)];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca la clave y, si no está, la registra con el nombre dado.
+     */
+    private String intern(String key, String name) {
+        int hash = hash(key);
+        String existing = lookup(key, hash);
+        if (existing != null) return existing;
+
+        lock.writeLock().lock();
+        try {
+            int slot = find(key, hash);
+            if (names[slot] != null) return names[slot];
+
+            // Factor de carga máximo de 1/2 para que las búsquedas sin éxito sigan siendo cortas
+            if ((size + 1) * 2 > names.length) {
+                resize();
+                slot = find(key, hash);
+            }
+            keys[slot] = key;
+            names[slot] = name;
+            hashes[slot] = hash;
+            size++;
+            return name;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int find(String key, int hash) {
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null && (hashes[slot] != hash || !keys[slot].equalsIgnoreCase(key))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+
+        keys = new String[oldNames.length * 2];
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] == null) continue;
+            int slot = oldHashes[i] & mask;
+            while (names[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            names[slot] = oldNames[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    /**
+     * Hash sin distinguir mayúsculas, coherente con {@link String#equalsIgnoreCase}.
+     */
+    private static int hash(String key) {
+        int hash = 0;
+        for (int i = 0; i < key.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+        }
+        // Mezcla los bits altos, ya que la posición solo usa los bajos
+        return hash ^ (hash >>> 16);
+    }
+}
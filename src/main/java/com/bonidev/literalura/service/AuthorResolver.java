@@ -0,0 +1,140 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.model.PersonEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servicio que resuelve en bloque los autores de uno o varios libros contra la tabla persons, usando la
+ * restricción única (name, birth_year, death_year) como clave.
+ */
+@Service
+public class AuthorResolver {
+
+    // Cada autor ocupa tres parámetros; PostgreSQL admite hasta 32767 por sentencia
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT_PERSON_POSTGRESQL = """
+            INSERT INTO persons (name, birth_year, death_year) VALUES (?, ?, ?)
+            ON CONFLICT (name, birth_year, death_year) DO NOTHING""";
+
+    // H2, la base de datos de las pruebas, no admite ON CONFLICT con columnas; MERGE con la misma clave equivale
+    private static final String INSERT_PERSON_H2 = """
+            MERGE INTO persons (name, birth_year, death_year) KEY (name, birth_year, death_year) VALUES (?, ?, ?)""";
+
+    @Autowired
+    private PersonMapper personMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile String insertPerson;
+
+    /**
+     * Resuelve todos los autores dados con una consulta por conjunto, inserta en bloque los que faltan y
+     * devuelve un mapa de identidad listo para usarse en {@link BookMapper#toEntity(com.bonidev.literalura.dto.BookDTO, Map)}.
+     * Los autores se comparan por su nombre canónico, así que las variantes de un nombre resuelven a la
+     * misma persona.
+     *
+     * @param authors Los autores a resolver (pueden repetirse).
+     * @return Un mapa de cada autor, tal como llegó y en su forma canónica, a su entidad gestionada.
+     */
+    @Transactional
+    public Map<PersonDTO, PersonEntity> resolve(Collection<PersonDTO> authors) {
+        Map<PersonDTO, PersonDTO> canonical = new HashMap<>();
+        for (PersonDTO author : authors) {
+            canonical.computeIfAbsent(author, personMapper::canonicalize);
+        }
+        Set<PersonDTO> wanted = new HashSet<>(canonical.values());
+        Map<PersonDTO, PersonEntity> identityMap = new HashMap<>();
+        if (wanted.isEmpty()) return identityMap;
+
+        collectExisting(wanted, identityMap);
+
+        List<PersonDTO> missing = wanted.stream()
+                .filter(author -> !identityMap.containsKey(author))
+                .toList();
+
+        if (!missing.isEmpty()) {
+            insertMissing(missing);
+            collectExisting(missing, identityMap);
+        }
+
+        // Cada variante apunta a la misma entidad que su forma canónica
+        canonical.forEach((author, key) -> {
+            PersonEntity person = identityMap.get(key);
+            if (person != null) identityMap.put(author, person);
+        });
+        return identityMap;
+    }
+
+    /**
+     * Inserta en bloque las personas dadas, omitiendo las que ya existen con el mismo nombre y años, de modo
+     * que otra transacción que registre la misma persona a la vez no hace fallar el lote.
+     *
+     * @param authors Las personas a insertar, ya en su forma canónica.
+     */
+    public void insertMissing(Collection<PersonDTO> authors) {
+        jdbcTemplate.batchUpdate(insertPerson(), authors.stream()
+                .map(author -> new Object[]{author.name(), author.birthYear(), author.deathYear()})
+                .toList());
+    }
+
+    /**
+     * Consulta las personas que coinciden exactamente (nombre, año de nacimiento y de fallecimiento) con
+     * algún autor buscado y las agrega al mapa de identidad.
+     */
+    private void collectExisting(Collection<PersonDTO> wanted, Map<PersonDTO, PersonEntity> identityMap) {
+        List<PersonDTO> keys = new ArrayList<>(wanted);
+        for (int from = 0; from < keys.size(); from += CHUNK_SIZE) {
+            for (PersonEntity person : findByKeys(keys.subList(from, Math.min(from + CHUNK_SIZE, keys.size())))) {
+                identityMap.put(personMapper.toDTO(person), person);
+            }
+        }
+    }
+
+    private List<PersonEntity> findByKeys(List<PersonDTO> keys) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PersonEntity> query = cb.createQuery(PersonEntity.class);
+        Root<PersonEntity> person = query.from(PersonEntity.class);
+        Predicate[] matches = new Predicate[keys.size()];
+        for (int i = 0; i < matches.length; i++) {
+            PersonDTO key = keys.get(i);
+            matches[i] = cb.and(cb.equal(person.get("name"), key.name()),
+                    cb.equal(person.get("birthYear"), key.birthYear()),
+                    cb.equal(person.get("deathYear"), key.deathYear()));
+        }
+        return entityManager.createQuery(query.where(cb.or(matches))).getResultList();
+    }
+
+    private String insertPerson() {
+        String sql = insertPerson;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            insertPerson = sql = "H2".equals(product) ? INSERT_PERSON_H2 : INSERT_PERSON_POSTGRESQL;
+        }
+        return sql;
+    }
+}
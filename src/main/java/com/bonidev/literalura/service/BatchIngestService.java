@@ -0,0 +1,312 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Servicio que busca y registra libros de forma no interactiva, a partir de una lista de términos de búsqueda
+ * o de identificadores de Project Gutenberg (uno por línea).
+ * <p>
+ * El trabajo se organiza como una cadena de etapas conectadas por colas acotadas: un hilo lee las líneas, un
+ * grupo de hilos consulta la API (que deserializa cada respuesta) y el hilo que llama agrupa los libros, los
+ * deduplica y los registra por lotes. Si una etapa se atrasa, las colas llenas frenan a las anteriores en
+ * lugar de acumular trabajo en memoria.
+ */
+@Service
+public class BatchIngestService {
+
+    private static final int TERM_QUEUE_CAPACITY = 64;
+    private static final int RESULT_QUEUE_CAPACITY = 64;
+    private static final int PERSIST_BATCH_SIZE = 50;
+    private static final int MAX_IDS_PER_REQUEST = 32;
+    private static final int MAX_REPORTED_FAILURES = 20;
+    private static final Pattern GUTENBERG_ID = Pattern.compile("\\d+");
+
+    // Marcadores de fin de cada cola, comparados por identidad
+    private static final WorkItem END_OF_TERMS = new WorkItem(null, List.of());
+    private static final List<BookDTO> END_OF_RESULTS = new ArrayList<>();
+
+    @Autowired
+    private BookApiService bookApiService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Value("${literalura.api.max-concurrency:8}")
+    private int fetchWorkers;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * Una unidad de trabajo: un término de búsqueda o un grupo de identificadores de Project Gutenberg.
+     */
+    private record WorkItem(String searchTerm, List<Long> ids) {
+
+        @Override
+        public String toString() {
+            return searchTerm != null ? "\"" + searchTerm + "\"" : "ids " + ids;
+        }
+    }
+
+    /**
+     * Resultado de una ejecución por lotes, pensado para serializarse como JSON.
+     *
+     * @param linesRead      Líneas con un término o identificador leídas.
+     * @param requests       Solicitudes a la API realizadas (los identificadores se agrupan).
+     * @param failedRequests Solicitudes que fallaron.
+     * @param booksFetched   Libros recibidos de la API, incluidos los repetidos entre búsquedas.
+     * @param booksPersisted Libros distintos registrados (nuevos o actualizados).
+     * @param failedBooks    Libros que no se pudieron registrar.
+     * @param elapsed        Duración de la ejecución.
+     * @param failures       Los primeros mensajes de error, para diagnosticar.
+     */
+    public record BatchReport(
+            @JsonProperty("lines_read") long linesRead,
+            @JsonProperty("requests") long requests,
+            @JsonProperty("failed_requests") long failedRequests,
+            @JsonProperty("books_fetched") long booksFetched,
+            @JsonProperty("books_persisted") long booksPersisted,
+            @JsonProperty("failed_books") long failedBooks,
+            @JsonProperty("elapsed_ms") long elapsedMillis,
+            @JsonProperty("failures") List<String> failures) {
+
+        /**
+         * Calcula las solicitudes a la API completadas por segundo.
+         *
+         * @return Las solicitudes por segundo.
+         */
+        @JsonProperty("requests_per_second")
+        public double requestsPerSecond() {
+            return requests / seconds();
+        }
+
+        /**
+         * Calcula los libros registrados por segundo.
+         *
+         * @return Los libros por segundo.
+         */
+        @JsonProperty("books_per_second")
+        public double booksPerSecond() {
+            return booksPersisted / seconds();
+        }
+
+        private double seconds() {
+            return Math.max(elapsedMillis, 1) / 1000.0;
+        }
+    }
+
+    /**
+     * Lee términos de búsqueda o identificadores de Project Gutenberg, uno por línea, y registra los libros
+     * encontrados. Las líneas vacías y las que empiezan con "#" se ignoran. Los errores de una búsqueda o de
+     * un lote se cuentan y no detienen la ejecución.
+     *
+     * @param input El origen de las líneas (un archivo o la entrada estándar).
+     * @return El informe de la ejecución.
+     */
+    public BatchReport ingest(BufferedReader input) {
+        long started = System.nanoTime();
+        BlockingQueue<WorkItem> terms = new ArrayBlockingQueue<>(TERM_QUEUE_CAPACITY);
+        BlockingQueue<List<BookDTO>> results = new ArrayBlockingQueue<>(RESULT_QUEUE_CAPACITY);
+        AtomicLong linesRead = new AtomicLong();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong failedRequests = new AtomicLong();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        // Un hilo de lectura, los de consulta y uno que cierra la cola de resultados cuando estos terminan
+        ExecutorService executor = Executors.newFixedThreadPool(fetchWorkers + 2);
+        CountDownLatch fetchersDone = new CountDownLatch(fetchWorkers);
+        try {
+            executor.execute(() -> readTerms(input, terms, linesRead, failures));
+            for (int i = 0; i < fetchWorkers; i++) {
+                executor.execute(() -> {
+                    try {
+                        fetch(terms, results, requests, failedRequests, failures);
+                    } finally {
+                        fetchersDone.countDown();
+                    }
+                });
+            }
+            executor.execute(() -> {
+                await(fetchersDone);
+                put(results, END_OF_RESULTS);
+            });
+
+            long[] persisted = persist(results, failures);
+            return new BatchReport(linesRead.get(), requests.get(), failedRequests.get(), persisted[0], persisted[1],
+                    persisted[2], Duration.ofNanos(System.nanoTime() - started).toMillis(), List.copyOf(failures));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Serializa un informe como JSON.
+     *
+     * @param report El informe.
+     * @return El informe en JSON.
+     */
+    public String toJson(BatchReport report) {
+        try {
+            return objectMapper.writeValueAsString(report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Etapa de lectura: convierte las líneas en unidades de trabajo, agrupando los identificadores
+     * consecutivos en una sola solicitud.
+     */
+    private void readTerms(BufferedReader input, BlockingQueue<WorkItem> terms, AtomicLong linesRead, List<String> failures) {
+        List<Long> ids = new ArrayList<>();
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                linesRead.incrementAndGet();
+                if (GUTENBERG_ID.matcher(line).matches()) {
+                    ids.add(Long.parseLong(line));
+                    if (ids.size() == MAX_IDS_PER_REQUEST) {
+                        put(terms, new WorkItem(null, List.copyOf(ids)));
+                        ids.clear();
+                    }
+                } else {
+                    put(terms, new WorkItem(line, List.of()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            recordFailure(failures, "Error al leer los términos: " + e.getMessage());
+        } finally {
+            if (!ids.isEmpty()) put(terms, new WorkItem(null, List.copyOf(ids)));
+            put(terms, END_OF_TERMS);
+        }
+    }
+
+    /**
+     * Etapa de consulta: cada hilo toma unidades de trabajo hasta encontrar el marcador de fin, que vuelve a
+     * dejar en la cola para los demás hilos.
+     */
+    private void fetch(BlockingQueue<WorkItem> terms, BlockingQueue<List<BookDTO>> results,
+                       AtomicLong requests, AtomicLong failedRequests, List<String> failures) {
+        while (true) {
+            WorkItem item = take(terms);
+            if (item == END_OF_TERMS) {
+                put(terms, END_OF_TERMS);
+                return;
+            }
+
+            requests.incrementAndGet();
+            try {
+                List<BookDTO> books = item.searchTerm() != null
+                        ? bookApiService.fetchBooksFromApi(item.searchTerm())
+                        : bookApiService.fetchBooksByIds(item.ids());
+                put(results, books);
+            } catch (RuntimeException e) {
+                failedRequests.incrementAndGet();
+                recordFailure(failures, item + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Etapa de registro: deduplica los libros recibidos y los registra en lotes.
+     *
+     * @return Los libros recibidos, registrados y fallidos.
+     */
+    private long[] persist(BlockingQueue<List<BookDTO>> results, List<String> failures) {
+        long[] counts = new long[3];
+        Set<BookDTO> seen = new HashSet<>();
+        List<BookDTO> batch = new ArrayList<>(PERSIST_BATCH_SIZE);
+
+        List<BookDTO> books;
+        while ((books = take(results)) != END_OF_RESULTS) {
+            counts[0] += books.size();
+            for (BookDTO book : books) {
+                if (!seen.add(book)) continue;
+
+                batch.add(book);
+                if (batch.size() == PERSIST_BATCH_SIZE) saveBatch(batch, counts, failures);
+            }
+        }
+        saveBatch(batch, counts, failures);
+        return counts;
+    }
+
+    private void saveBatch(List<BookDTO> batch, long[] counts, List<String> failures) {
+        if (batch.isEmpty()) return;
+
+        try {
+            bookService.saveBooks(batch);
+            counts[1] += batch.size();
+        } catch (RuntimeException e) {
+            // El lote se revierte completo; se reintenta libro por libro para no perder los válidos
+            for (BookDTO book : batch) {
+                try {
+                    bookService.saveBooks(List.of(book));
+                    counts[1]++;
+                } catch (RuntimeException bookError) {
+                    counts[2]++;
+                    recordFailure(failures, "Libro \"" + book.title() + "\": " + bookError.getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private static void recordFailure(List<String> failures, String message) {
+        synchronized (failures) {
+            if (failures.size() < MAX_REPORTED_FAILURES) failures.add(message);
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Procesamiento por lotes interrumpido", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Procesamiento por lotes interrumpido", e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,18 +1,47 @@
 package com.bonidev.literalura.service;
 
 import com.bonidev.literalura.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
 
 /**
  * Servicio para interactuar con una API de libros externa.
@@ -21,46 +50,443 @@ import java.util.List;
 public class BookApiService {
 
     private static final String API_URL = "https://gutendex.com/books/";
+    // Los términos normalizados no empiezan con espacios, así que esta clave no choca con ninguna búsqueda
+    private static final String IDS_KEY_PREFIX = " ids=";
 
-    private final HttpClient httpClient;
+    private final ResilientHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final String apiUrl;
+    private final ApiResponseCache cache;
+    private final int maxConcurrency;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary responseSize;
+    private final Timer parseTimer;
+    private final Counter coalesced;
+
+    // Solicitudes en curso por término normalizado, compartidas por las búsquedas simultáneas del mismo término
+    private final ConcurrentMap<String, CompletableFuture<List<BookDTO>>> inFlight = new ConcurrentHashMap<>();
 
     /**
-     * Constructor que inicializa el cliente HTTP y el ObjectMapper.
+     * Constructor que inicializa el cliente HTTP, el ObjectMapper y la caché de respuestas.
+     *
+     * @param cacheMaxEntries   El número máximo de búsquedas en caché.
+     * @param cacheTtl          El tiempo durante el cual una búsqueda en caché es fresca.
+     * @param cacheStaleTtl     El tiempo máximo que se conserva una búsqueda obsoleta para revalidarla.
+     * @param maxConcurrency    El número máximo de solicitudes simultáneas, en las búsquedas múltiples y en el
+     *                          límite adaptativo del cliente.
+     * @param connectTimeout    El tiempo máximo para establecer la conexión.
+     * @param requestTimeout    El tiempo máximo de espera de cada respuesta.
+     * @param requestsPerSecond Las solicitudes por segundo permitidas (0 para no limitarlas).
+     * @param burst             Las solicitudes que pueden enviarse seguidas antes de aplicar el límite.
+     * @param maxAttempts       Los intentos por solicitud, contando el primero.
+     * @param retryBaseDelay    La espera antes del primer reintento.
+     * @param retryMaxDelay     La espera máxima entre reintentos.
+     * @param failureThreshold  Los fallos seguidos que abren el circuito.
+     * @param openDuration      El tiempo que el circuito permanece abierto.
+     * @param minConcurrency    El límite mínimo de solicitudes simultáneas.
+     * @param meterRegistry     El registro de métricas.
+     */
+    @Autowired
+    public BookApiService(@Value("${literalura.api.cache.max-entries:256}") int cacheMaxEntries,
+                          @Value("${literalura.api.cache.ttl:10m}") Duration cacheTtl,
+                          @Value("${literalura.api.cache.stale-ttl:1h}") Duration cacheStaleTtl,
+                          @Value("${literalura.api.max-concurrency:8}") int maxConcurrency,
+                          @Value("${literalura.api.connect-timeout:5s}") Duration connectTimeout,
+                          @Value("${literalura.api.request-timeout:20s}") Duration requestTimeout,
+                          @Value("${literalura.api.rate-limit.per-second:5}") double requestsPerSecond,
+                          @Value("${literalura.api.rate-limit.burst:10}") int burst,
+                          @Value("${literalura.api.retry.max-attempts:4}") int maxAttempts,
+                          @Value("${literalura.api.retry.base-delay:250ms}") Duration retryBaseDelay,
+                          @Value("${literalura.api.retry.max-delay:10s}") Duration retryMaxDelay,
+                          @Value("${literalura.api.circuit.failure-threshold:5}") int failureThreshold,
+                          @Value("${literalura.api.circuit.open-duration:30s}") Duration openDuration,
+                          @Value("${literalura.api.min-concurrency:1}") int minConcurrency,
+                          MeterRegistry meterRegistry) {
+        this(HttpClient.newBuilder().connectTimeout(connectTimeout).build(), new ObjectMapper(), API_URL,
+                new ApiResponseCache(cacheMaxEntries, cacheTtl, cacheStaleTtl), maxConcurrency,
+                new ResilientHttpClient.Settings(requestTimeout, requestsPerSecond, burst, maxAttempts, retryBaseDelay, retryMaxDelay,
+                        failureThreshold, openDuration, minConcurrency, maxConcurrency),
+                meterRegistry);
+    }
+
+    /**
+     * Constructor que permite indicar el cliente HTTP, el ObjectMapper, la URL base de la API y la caché. Las
+     * solicitudes no se limitan ni se reintentan.
+     *
+     * @param httpClient     El cliente HTTP a utilizar.
+     * @param objectMapper   El ObjectMapper a utilizar.
+     * @param apiUrl         La URL base de la API (por ejemplo, un servidor local en las pruebas).
+     * @param cache          La caché de respuestas.
+     * @param maxConcurrency El número máximo de solicitudes simultáneas en las búsquedas múltiples.
      */
-    public BookApiService() {
-        this.httpClient = HttpClient.newHttpClient();
-        this.objectMapper = new ObjectMapper();
+    BookApiService(HttpClient httpClient, ObjectMapper objectMapper, String apiUrl, ApiResponseCache cache, int maxConcurrency) {
+        this(httpClient, objectMapper, apiUrl, cache, maxConcurrency, new SimpleMeterRegistry());
+    }
+
+    BookApiService(HttpClient httpClient, ObjectMapper objectMapper, String apiUrl, ApiResponseCache cache, int maxConcurrency,
+                   MeterRegistry meterRegistry) {
+        this(httpClient, objectMapper, apiUrl, cache, maxConcurrency, ResilientHttpClient.Settings.unrestricted(Duration.ofSeconds(30)), meterRegistry);
+    }
+
+    BookApiService(HttpClient httpClient, ObjectMapper objectMapper, String apiUrl, ApiResponseCache cache, int maxConcurrency,
+                   ResilientHttpClient.Settings settings, MeterRegistry meterRegistry) {
+        this.httpClient = new ResilientHttpClient(httpClient, settings, meterRegistry);
+        this.objectMapper = objectMapper;
+        this.apiUrl = apiUrl;
+        this.cache = cache;
+        this.maxConcurrency = maxConcurrency;
+        this.meterRegistry = meterRegistry;
+        this.responseSize = DistributionSummary.builder("literalura.api.response.size")
+                .description("Tamaño de las respuestas completas de la API")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.parseTimer = Timer.builder("literalura.api.parse")
+                .description("Duración de la deserialización de las respuestas de la API")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("literalura.api.coalesced")
+                .description("Búsquedas que se unieron a una solicitud idéntica en curso")
+                .register(meterRegistry);
+
+        Gauge.builder("literalura.api.cache.size", cache, c -> c.stats().size())
+                .description("Búsquedas guardadas en la caché de la API")
+                .register(meterRegistry);
+        registerCacheCounter("hit", stats -> stats.hits());
+        registerCacheCounter("revalidated", stats -> stats.revalidations());
+        registerCacheCounter("miss", stats -> stats.misses());
+        registerCacheCounter("eviction", stats -> stats.evictions());
+    }
+
+    private void registerCacheCounter(String result, ToDoubleFunction<ApiResponseCache.Stats> value) {
+        FunctionCounter.builder("literalura.api.cache", cache, c -> value.applyAsDouble(c.stats()))
+                .description("Búsquedas de la API por resultado en la caché")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer requestTimer(String status) {
+        return Timer.builder("literalura.api.request")
+                .description("Duración de las solicitudes a la API, hasta recibir la respuesta completa")
+                .tag("status", status)
+                .register(meterRegistry);
     }
 
     /**
-     * Método para obtener libros desde la API basado en un término de búsqueda.
+     * Método para obtener libros desde la API basado en un término de búsqueda. Las búsquedas recientes se
+     * responden desde la caché, y las obsoletas se revalidan con una solicitud condicional.
      *
      * @param searchTerm El término de búsqueda para buscar libros en la API.
      * @return Una lista de objetos BookDTO que representan los libros encontrados.
-     * @throws RuntimeException Sí ocurre un error durante la solicitud HTTP o el procesamiento JSON.
+     * @throws ApiUnavailableException Si la API falló varias veces seguidas y las solicitudes se rechazan.
+     * @throws RuntimeException        Sí ocurre un error durante la solicitud HTTP o el procesamiento JSON.
      */
     public List<BookDTO> fetchBooksFromApi(String searchTerm) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(API_URL + "?search=" + searchTerm))
-                .build();
+        try {
+            return fetchBooksFromApiAsync(searchTerm).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #fetchBooksFromApi(String)}: la solicitud HTTP se envía sin bloquear el
+     * hilo que llama.
+     *
+     * @param searchTerm El término de búsqueda para buscar libros en la API.
+     * @return Un CompletableFuture que se completa con los libros encontrados, o con la excepción ocurrida.
+     */
+    public CompletableFuture<List<BookDTO>> fetchBooksFromApiAsync(String searchTerm) {
+        String key = ApiResponseCache.normalize(searchTerm);
+        return fetchAsync(key, searchUrl(key));
+    }
 
+    /**
+     * Obtiene libros desde la API por sus identificadores de Project Gutenberg, con una sola solicitud.
+     *
+     * @param ids Los identificadores de Project Gutenberg.
+     * @return Los libros encontrados; los identificadores inexistentes se omiten.
+     * @throws RuntimeException Sí ocurre un error durante la solicitud HTTP o el procesamiento JSON.
+     */
+    public List<BookDTO> fetchBooksByIds(Collection<Long> ids) {
+        String joined = ids.stream().distinct().sorted().map(String::valueOf).collect(Collectors.joining(","));
         try {
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return deserializeBooks(response.body());
+            return fetchAsync(IDS_KEY_PREFIX + joined, apiUrl + "?ids=" + joined).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Obtiene una respuesta de la API, desde la caché o con una solicitud (condicional si la entrada en caché
+     * está obsoleta). Las llamadas simultáneas con la misma clave comparten una sola solicitud: la primera la
+     * envía y las demás reciben su resultado, de solo lectura, cada una en su propio CompletableFuture.
+     */
+    private CompletableFuture<List<BookDTO>> fetchAsync(String key, String url) {
+        ApiResponseCache.Entry cached = cache.get(key);
+
+        if (cached != null && cache.isFresh(cached)) {
+            cache.recordHit();
+            return CompletableFuture.completedFuture(cached.books());
+        }
+
+        CompletableFuture<List<BookDTO>> shared = new CompletableFuture<>();
+        CompletableFuture<List<BookDTO>> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.thenApply(books -> books);
+        }
+
+        // Otra llamada pudo completar la misma búsqueda entre la consulta a la caché y el registro
+        ApiResponseCache.Entry current = cache.get(key);
+        CompletableFuture<List<BookDTO>> response;
+        if (current != null && cache.isFresh(current)) {
+            cache.recordHit();
+            response = CompletableFuture.completedFuture(current.books());
+        } else {
+            try {
+                response = request(key, url, current);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+        }
+
+        response.whenComplete((books, error) -> {
+            // Se quita antes de completar, para que las llamadas siguientes encuentren la respuesta en la caché
+            inFlight.remove(key, shared);
+            if (error != null) shared.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            else shared.complete(books);
+        });
+        return shared.thenApply(books -> books);
+    }
+
+    /**
+     * Envía la solicitud de una búsqueda y guarda la respuesta en la caché.
+     */
+    private CompletableFuture<List<BookDTO>> request(String key, String url, ApiResponseCache.Entry cached) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url));
+        if (cached != null && cached.isRevalidatable()) {
+            if (cached.etag() != null) builder.header("If-None-Match", cached.etag());
+            if (cached.lastModified() != null) builder.header("If-Modified-Since", cached.lastModified());
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        sample.stop(requestTimer(cause instanceof ApiUnavailableException ? "rejected" : "error"));
+                        if (cause instanceof ApiUnavailableException unavailable) throw unavailable;
+                        throw new RuntimeException("Error al obtener libros de la API", cause);
+                    }
+                    if (response.statusCode() == 304 && cached != null) {
+                        sample.stop(requestTimer("not_modified"));
+                        return cache.revalidated(key, cached).books();
+                    }
+
+                    sample.stop(requestTimer(String.valueOf(response.statusCode())));
+                    if (response.statusCode() != 200) {
+                        throw new RuntimeException("La API respondió con el código " + response.statusCode() + " para " + url);
+                    }
+                    responseSize.record(response.headers().firstValueAsLong("Content-Length").orElse(response.body().length()));
+                    List<BookDTO> books = parseTimer.record(() -> deserializeBooks(response.body()));
+                    return cache.put(key, books.stream().map(BookApiService::readOnly).toList(),
+                            response.headers().firstValue("ETag").orElse(null),
+                            response.headers().firstValue("Last-Modified").orElse(null)).books();
+                });
+    }
+
+    /**
+     * Copia un libro con sus colecciones de solo lectura, ya que la misma respuesta se comparte entre la caché y
+     * las búsquedas simultáneas.
+     */
+    private static BookDTO readOnly(BookDTO book) {
+        return new BookDTO(book.title(),
+                book.authors() == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(book.authors())),
+                book.languages() == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(book.languages())),
+                book.htmlLink(), book.downloadCount());
+    }
+
+    /**
+     * Busca varios términos a la vez, con un máximo de {@code maxConcurrency} solicitudes en curso. Cada libro
+     * nuevo se entrega al consumidor en cuanto llega su respuesta; los libros repetidos entre términos se
+     * descartan. El consumidor se invoca de a un libro a la vez, aunque desde distintos hilos.
+     *
+     * @param searchTerms    Los términos de búsqueda.
+     * @param maxConcurrency El número máximo de solicitudes simultáneas a la API.
+     * @param onResult       El consumidor que recibe cada libro nuevo.
+     * @return Todos los libros encontrados, sin repetidos, en el orden en que llegaron.
+     * @throws RuntimeException Sí falla la búsqueda de algún término (una vez terminados los demás).
+     */
+    public List<BookDTO> fetchBooksFromApi(Collection<String> searchTerms, int maxConcurrency, Consumer<BookDTO> onResult) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Set<BookDTO> merged = new LinkedHashSet<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        try {
+            for (String searchTerm : new LinkedHashSet<>(searchTerms.stream().map(ApiResponseCache::normalize).toList())) {
+                permits.acquire();
+                pending.add(fetchBooksFromApiAsync(searchTerm)
+                        .whenComplete((books, error) -> permits.release())
+                        .thenAccept(books -> {
+                            synchronized (merged) {
+                                for (BookDTO book : books) {
+                                    if (merged.add(book)) onResult.accept(book);
+                                }
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Búsqueda múltiple interrumpida", e);
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+
+        synchronized (merged) {
+            return List.copyOf(merged);
+        }
+    }
+
+    /**
+     * Busca varios términos a la vez con el límite de concurrencia configurado.
+     *
+     * @param searchTerms Los términos de búsqueda.
+     * @return Todos los libros encontrados, sin repetidos, en el orden en que llegaron.
+     * @throws RuntimeException Sí falla la búsqueda de algún término.
+     */
+    public List<BookDTO> fetchBooksFromApi(Collection<String> searchTerms) {
+        return fetchBooksFromApi(searchTerms, maxConcurrency, book -> { });
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException("Error al obtener libros de la API", e.getCause());
+    }
+
+    /**
+     * Obtiene los contadores de aciertos, fallos y desalojos de la caché de búsquedas.
+     *
+     * @return Los contadores de la caché.
+     */
+    public ApiResponseCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Construye la URL de búsqueda de un término normalizado.
+     */
+    private String searchUrl(String normalizedTerm) {
+        return apiUrl + "?search=" + URLEncoder.encode(normalizedTerm, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Recorre todas las páginas de resultados de la API siguiendo el enlace "next" y entrega cada libro al
+     * consumidor en cuanto se lee. Cada página se procesa en streaming desde la respuesta HTTP, por lo que la
+     * memoria usada no depende de la cantidad de páginas recorridas.
+     *
+     * @param searchTerm El término de búsqueda, o una cadena vacía para recorrer todo el catálogo.
+     * @param maxPages   El número máximo de páginas a recorrer.
+     * @param consumer   El consumidor que recibe cada libro leído.
+     * @return El número de libros entregados al consumidor.
+     * @throws RuntimeException Sí ocurre un error durante la solicitud HTTP o el procesamiento JSON.
+     */
+    public long crawlBooks(String searchTerm, int maxPages, Consumer<BookDTO> consumer) {
+        String key = ApiResponseCache.normalize(searchTerm);
+        String nextUrl = key.isEmpty() ? apiUrl : searchUrl(key);
+        long[] delivered = {0};
+
+        try {
+            for (int page = 0; nextUrl != null && page < maxPages; page++) {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(nextUrl))
+                        .build();
+
+                HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                if (response.statusCode() != 200) {
+                    response.body().close();
+                    throw new RuntimeException("La API respondió con el código " + response.statusCode() + " para " + nextUrl);
+                }
+
+                try (InputStream body = response.body()) {
+                    nextUrl = streamPage(body, book -> {
+                        consumer.accept(book);
+                        delivered[0]++;
+                    });
+                }
+            }
         } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Error al obtener libros de la API", e);
+            throw new RuntimeException("Error al recorrer las páginas de la API", e);
         }
+
+        return delivered[0];
+    }
+
+    /**
+     * Recorre las páginas de la API y deposita cada libro en una cola acotada. Si la cola está llena el
+     * recorrido se detiene hasta que el consumidor libere espacio.
+     *
+     * @param searchTerm El término de búsqueda, o una cadena vacía para recorrer todo el catálogo.
+     * @param maxPages   El número máximo de páginas a recorrer.
+     * @param queue      La cola acotada que recibe los libros.
+     * @return El número de libros depositados en la cola.
+     * @throws RuntimeException Sí ocurre un error durante la solicitud HTTP, el procesamiento JSON o si el hilo es interrumpido.
+     */
+    public long crawlBooks(String searchTerm, int maxPages, BlockingQueue<BookDTO> queue) {
+        return crawlBooks(searchTerm, maxPages, book -> {
+            try {
+                queue.put(book);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Recorrido de la API interrumpido", e);
+            }
+        });
+    }
+
+    /**
+     * Lee una página de resultados token a token, entregando cada libro al consumidor sin construir el árbol
+     * JSON de la página completa.
+     *
+     * @param body     El cuerpo de la respuesta de la API.
+     * @param consumer El consumidor que recibe cada libro leído.
+     * @return El enlace a la página siguiente, o null si es la última página.
+     * @throws IOException Sí ocurre un error de E/S o el JSON no tiene el formato esperado.
+     */
+    private String streamPage(InputStream body, Consumer<BookDTO> consumer) throws IOException {
+        String next = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new RuntimeException("El JSON de respuesta no es un objeto");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("next".equals(field)) {
+                    next = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                } else if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(objectMapper.readValue(parser, BookDTO.class));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return next;
     }
 
     /**
-     * Método privado para deserializar la respuesta JSON de la API en una lista de objetos BookDTO.
+     * Deserializa la respuesta JSON de la API en una lista de objetos BookDTO. Es visible en el paquete para
+     * los benchmarks.
      *
      * @param responseBody El cuerpo de la respuesta JSON de la API.
      * @return Una lista de objetos BookDTO deserializados desde la respuesta JSON.
      * @throws RuntimeException Sí hay un error al procesar la respuesta JSON.
      */
-    private List<BookDTO> deserializeBooks(String responseBody) {
+    List<BookDTO> deserializeBooks(String responseBody) {
         try {
             JsonNode rootNode = objectMapper.readTree(responseBody);
 
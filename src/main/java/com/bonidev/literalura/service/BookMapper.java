@@ -1,10 +1,22 @@
 package com.bonidev.literalura.service;
 
 import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.BookRow;
+import com.bonidev.literalura.dto.PersonDTO;
 import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +28,9 @@ public class BookMapper {
     @Autowired
     private PersonMapper personMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * Convierte una entidad BookEntity a un DTO BookDTO.
      *
@@ -23,7 +38,7 @@ public class BookMapper {
      * @return El DTO BookDTO correspondiente.
      */
     public BookDTO toDTO(BookEntity bookEntity) {
-        return new BookDTO(
+        return timer("toDTO").record(() -> new BookDTO(
                 bookEntity.getTitle(),
                 bookEntity.getAuthors().stream()
                         .map(personMapper::toDTO)
@@ -31,7 +46,7 @@ public class BookMapper {
                 bookEntity.getLanguages(),
                 bookEntity.getHtmlLink(),
                 bookEntity.getDownloadCount()
-        );
+        ));
     }
 
     /**
@@ -41,7 +56,7 @@ public class BookMapper {
      * @return La entidad BookEntity correspondiente.
      */
     public BookEntity toEntity(BookDTO bookDTO) {
-        return new BookEntity(
+        return timer("toEntity").record(() -> new BookEntity(
                 bookDTO.title(),
                 bookDTO.authors().stream()
                         .map(personMapper::toEntity)
@@ -49,6 +64,71 @@ public class BookMapper {
                 bookDTO.languages(),
                 bookDTO.htmlLink(),
                 bookDTO.downloadCount()
-        );
+        ));
+    }
+
+    /**
+     * Convierte un DTO BookDTO a una entidad BookEntity, reutilizando las entidades de autor ya resueltas.
+     *
+     * @param bookDTO     El DTO BookDTO a convertir.
+     * @param identityMap Mapa de autores a sus entidades gestionadas, obtenido de {@link AuthorResolver#resolve}.
+     * @return La entidad BookEntity correspondiente.
+     */
+    public BookEntity toEntity(BookDTO bookDTO, Map<PersonDTO, PersonEntity> identityMap) {
+        return timer("toEntity").record(() -> new BookEntity(
+                bookDTO.title(),
+                bookDTO.authors().stream()
+                        .map(author -> {
+                            PersonEntity resolved = identityMap.get(author);
+                            return resolved != null ? resolved : personMapper.toEntity(author);
+                        })
+                        .collect(Collectors.toSet()),
+                bookDTO.languages(),
+                bookDTO.htmlLink(),
+                bookDTO.downloadCount()
+        ));
+    }
+
+    /**
+     * Agrupa las filas planas de una proyección de libros en DTO BookDTO, sin pasar por las entidades.
+     *
+     * @param ids  Los identificadores de los libros, en el orden deseado.
+     * @param rows Las filas de la proyección (una por cada combinación de autor e idioma).
+     * @return Los DTO BookDTO en el orden de los identificadores dados.
+     */
+    public List<BookDTO> toDTOs(List<Long> ids, List<BookRow> rows) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<Long, List<BookRow>> rowsById = new HashMap<>();
+        for (BookRow row : rows) {
+            rowsById.computeIfAbsent(row.id(), id -> new ArrayList<>()).add(row);
+        }
+
+        List<BookDTO> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            List<BookRow> bookRows = rowsById.get(id);
+            if (bookRows == null) continue;
+
+            Set<PersonDTO> authors = new LinkedHashSet<>();
+            Set<String> languages = new LinkedHashSet<>();
+            for (BookRow row : bookRows) {
+                if (row.authorName() != null) {
+                    authors.add(personMapper.canonicalize(new PersonDTO(row.authorName(),
+                            Objects.requireNonNullElse(row.authorBirthYear(), 0),
+                            Objects.requireNonNullElse(row.authorDeathYear(), 0))));
+                }
+                if (row.language() != null) {
+                    languages.add(row.language());
+                }
+            }
+
+            BookRow first = bookRows.get(0);
+            books.add(new BookDTO(first.title(), authors, languages, first.htmlLink(), first.downloadCount()));
+        }
+        sample.stop(timer("toDTOs"));
+        return books;
+    }
+
+    private Timer timer(String operation) {
+        return meterRegistry.timer("literalura.mapper", "mapper", "book", "operation", operation);
     }
 }
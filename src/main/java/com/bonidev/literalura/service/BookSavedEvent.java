@@ -0,0 +1,12 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.model.BookEntity;
+
+/**
+ * Evento publicado por {@link BookService} cuando se registra un libro nuevo. Los índices en memoria lo
+ * escuchan una vez confirmada la transacción para mantenerse sincronizados con la base de datos.
+ *
+ * @param book El libro registrado, con sus autores e idiomas ya asociados.
+ */
+public record BookSavedEvent(BookEntity book) {
+}
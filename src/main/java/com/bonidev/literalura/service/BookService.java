@@ -1,16 +1,37 @@
 package com.bonidev.literalura.service;
 
+import com.bonidev.literalura.catalog.ReadOnlyCatalog;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.index.CatalogSearchIndex;
+import com.bonidev.literalura.index.IdBitmap;
+import com.bonidev.literalura.index.LanguageIndex;
+import com.bonidev.literalura.index.TopBooksIndex;
 import com.bonidev.literalura.model.BookEntity;
 import com.bonidev.literalura.model.PersonEntity;
 import com.bonidev.literalura.repository.BookRepository;
-import com.bonidev.literalura.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Servicio que gestiona la lógica de negocio relacionada con los libros.
@@ -22,51 +43,271 @@ public class BookService {
     private BookRepository bookRepository;
 
     @Autowired
-    private PersonRepository personRepository;
+    private AuthorResolver authorResolver;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private PersonMapper personMapper;
+
+    @Autowired
+    private CatalogSearchIndex searchIndex;
+
+    @Autowired
+    private LanguageIndex languageIndex;
+
+    @Autowired
+    private TopBooksIndex topBooksIndex;
+
+    @Autowired
+    private CatalogSnapshotService snapshots;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     /**
-     * Guarda un libro en la base de datos, asegurándose de manejar autores existentes.
+     * Guarda un libro en la base de datos, asegurándose de manejar autores existentes. Si el libro ya existe
+     * (mismo título y mismos autores) solo se actualizan su enlace y número de descargas.
      *
      * @param book El libro a guardar.
      */
     @Transactional
     public void saveBook(BookEntity book) {
-        // Verificar si el libro ya existe
-        List<BookEntity> existingBooks = bookRepository.findAll();
-        if (existingBooks.contains(book)) return;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Upsert por clave natural: si el libro ya existe basta con actualizarlo
+        if (updateIfExists(book)) {
+            sample.stop(meterRegistry.timer("literalura.books.save", "result", "updated"));
+            return;
+        }
+
+        // Resolver todos los autores del libro en bloque y asociarlos al libro
+        Map<PersonDTO, PersonEntity> identityMap = authorResolver.resolve(book.getAuthors().stream()
+                .map(personMapper::toDTO)
+                .toList());
 
-        // Verificar si los autores ya existen y asociarlos al libro
         Set<PersonEntity> authors = new HashSet<>();
         for (PersonEntity author : book.getAuthors()) {
-            PersonEntity existingAuthor = personRepository.findByNameAndBirthYearAndDeathYear(author.getName(), author.getBirthYear(), author.getDeathYear());
-            if (existingAuthor != null) {
-                authors.add(existingAuthor);
+            authors.add(identityMap.getOrDefault(personMapper.toDTO(author), author));
+        }
+
+        book.setAuthors(authors);
+        eventPublisher.publishEvent(new BookSavedEvent(bookRepository.save(book)));
+        sample.stop(meterRegistry.timer("literalura.books.save", "result", "inserted"));
+    }
+
+    /**
+     * Guarda un lote de libros resolviendo los autores de todo el lote con una sola consulta por conjunto.
+     *
+     * @param books Los libros a guardar.
+     */
+    @Transactional
+    public void saveBooks(Collection<BookDTO> books) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<PersonDTO, PersonEntity> identityMap = authorResolver.resolve(books.stream()
+                .flatMap(book -> book.authors().stream())
+                .collect(Collectors.toSet()));
+
+        // Si el lote trae varias veces el mismo libro, se registra una vez con los datos del último envío
+        Map<BookEntity, BookEntity> latest = new LinkedHashMap<>();
+        for (BookDTO bookDTO : books) {
+            BookEntity book = bookMapper.toEntity(bookDTO, identityMap);
+            latest.put(book, book);
+        }
+
+        List<BookEntity> pending = new ArrayList<>();
+        for (BookEntity book : latest.values()) {
+            if (!updateIfExists(book)) {
+                pending.add(book);
             }
         }
 
-        if (!authors.isEmpty()) {
-            book.setAuthors(authors);
+        for (BookEntity saved : bookRepository.saveAll(pending)) {
+            eventPublisher.publishEvent(new BookSavedEvent(saved));
         }
+        meterRegistry.counter("literalura.books.saved", "result", "inserted").increment(pending.size());
+        meterRegistry.counter("literalura.books.saved", "result", "updated").increment(latest.size() - pending.size());
+        sample.stop(meterRegistry.timer("literalura.books.save.batch"));
+    }
 
-        bookRepository.save(book);
+    /**
+     * Rama de actualización del upsert de libros.
+     *
+     * @return true si el libro ya existía y fue actualizado.
+     */
+    private boolean updateIfExists(BookEntity book) {
+        String authorKey = BookEntity.authorKeyOf(book.getAuthors());
+        boolean updated = meterRegistry.timer("literalura.books.dedup").record(() ->
+                bookRepository.updateByNaturalKey(book.getTitle(), authorKey, book.getHtmlLink(), book.getDownloadCount()) > 0);
+        if (updated) eventPublisher.publishEvent(new BookUpdatedEvent(book.getTitle(), authorKey, book.getDownloadCount()));
+        return updated;
     }
 
     /**
-     * Obtiene todos los libros almacenados en la base de datos.
+     * Obtiene todos los libros almacenados en la base de datos, o en la instantánea del catálogo si hay una
+     * cargada.
      *
      * @return Lista de todos los libros.
      */
     public List<BookEntity> getAllBooks() {
-        return bookRepository.findAll();
+        return snapshots.catalog().map(ReadOnlyCatalog::getAllBooks).orElseGet(bookRepository::findAll);
+    }
+
+    /**
+     * Obtiene una página de los libros almacenados, ordenados por identificador. Los libros se leen con una
+     * proyección de solo lectura, sin cargar las entidades ni sus asociaciones.
+     *
+     * @param page El número de página, empezando en 0.
+     * @param size El número de libros por página.
+     * @return Los libros de la página y si existe una página siguiente.
+     */
+    @Transactional(readOnly = true)
+    public Slice<BookDTO> getBooksPage(int page, int size) {
+        Optional<ReadOnlyCatalog> snapshot = snapshots.catalog();
+        if (snapshot.isPresent()) {
+            PageRequest pageable = PageRequest.of(page, size, Sort.by("id"));
+            int from = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+            List<BookDTO> books = snapshot.get().getBooks(from, from + size).stream().map(bookMapper::toDTO).toList();
+            return new SliceImpl<>(books, pageable, (long) from + size < snapshot.get().bookCount());
+        }
+
+        Slice<Long> ids = bookRepository.findIdsBy(PageRequest.of(page, size, Sort.by("id")));
+        if (!ids.hasContent()) return new SliceImpl<>(List.of(), ids.getPageable(), false);
+
+        List<BookDTO> books = bookMapper.toDTOs(ids.getContent(), bookRepository.findRowsByIdIn(ids.getContent()));
+        return new SliceImpl<>(books, ids.getPageable(), ids.hasNext());
+    }
+
+    /**
+     * Busca en el catálogo local los libros cuyo título o autores contienen los términos dados.
+     *
+     * @param query La consulta de texto libre.
+     * @param limit El número máximo de resultados.
+     * @return Los libros encontrados, del más al menos relevante.
+     */
+    public List<BookEntity> searchBooks(String query, int limit) {
+        List<Long> ids = meterRegistry.timer("literalura.index.search").record(() -> searchIndex.search(query, limit));
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) rank.put(ids.get(i), i);
+
+        return bookRepository.findByIdIn(ids).stream()
+                .sorted(Comparator.comparing(book -> rank.get(book.getId())))
+                .toList();
     }
 
     /**
-     * Obtiene libros que están escritos en un idioma específico.
+     * Obtiene libros que están escritos en un idioma específico, de la instantánea del catálogo si hay una
+     * cargada.
      *
      * @param language El idioma de los libros a buscar.
      * @return Lista de libros escritos en el idioma especificado.
      */
     public List<BookEntity> getBooksByLanguage(String language) {
-        return bookRepository.findByLanguages(language);
+        return snapshots.catalog()
+                .map(catalog -> catalog.getBooksByLanguage(language))
+                .orElseGet(() -> bookRepository.findByLanguages(language));
+    }
+
+    /**
+     * Obtiene una página de los libros disponibles en todos (o en alguno) de los idiomas dados, ordenados por
+     * identificador. Los libros se filtran con el índice de idiomas y solo la página pedida se lee de la base
+     * de datos, o se filtran en la instantánea del catálogo si hay una cargada.
+     *
+     * @param languages Los códigos de idioma.
+     * @param matchAll  true para exigir todos los idiomas, false para aceptar cualquiera de ellos.
+     * @param page      El número de página, empezando en 0.
+     * @param size      El número de libros por página.
+     * @return Los libros de la página y si existe una página siguiente.
+     */
+    @Transactional(readOnly = true)
+    public Slice<BookDTO> getBooksByLanguagesPage(Collection<String> languages, boolean matchAll, int page, int size) {
+        Optional<ReadOnlyCatalog> snapshot = snapshots.catalog();
+        if (snapshot.isPresent()) {
+            PageRequest pageable = PageRequest.of(page, size, Sort.by("id"));
+            int from = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - size - 1);
+            // Un libro de más para saber si hay otra página
+            List<BookEntity> matches = snapshot.get().getBooksByLanguages(languages, matchAll, from, from + size + 1);
+            List<BookDTO> books = matches.stream().limit(size).map(bookMapper::toDTO).toList();
+            return new SliceImpl<>(books, pageable, matches.size() > size);
+        }
+
+        IdBitmap matches = matchAll ? languageIndex.findInAll(languages) : languageIndex.findInAny(languages);
+        PageRequest pageable = PageRequest.of(page, size, Sort.by("id"));
+        int from = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+
+        // Un libro de más para saber si hay otra página
+        List<Long> ids = new ArrayList<>(size + 1);
+        matches.forEachFrom(from, size + 1, ids::add);
+        if (ids.isEmpty()) return new SliceImpl<>(List.of(), pageable, false);
+
+        List<Long> pageIds = ids.subList(0, Math.min(size, ids.size()));
+        List<BookDTO> books = bookMapper.toDTOs(pageIds, bookRepository.findRowsByIdIn(pageIds));
+        return new SliceImpl<>(books, pageable, ids.size() > size);
+    }
+
+    /**
+     * Cuenta los libros registrados en cada idioma, sin consultar la base de datos una vez construido el
+     * índice de idiomas.
+     *
+     * @return El número de libros por código de idioma, ordenado por código.
+     */
+    public Map<String, Integer> countBooksByLanguage() {
+        return languageIndex.countByLanguage();
+    }
+
+    /**
+     * Calcula las estadísticas de descargas de todo el catálogo en la base de datos.
+     *
+     * @return El número de libros y el mínimo, máximo, promedio, total y percentiles de descargas.
+     */
+    @Transactional(readOnly = true)
+    public BookRepository.DownloadStats getDownloadStats() {
+        return bookRepository.getDownloadStats();
+    }
+
+    /**
+     * Obtiene los libros más descargados del catálogo. El ranking se mantiene en memoria, de modo que solo se
+     * leen de la base de datos los libros devueltos.
+     *
+     * @param limit El número de libros, como máximo {@link TopBooksIndex#CAPACITY}.
+     * @return Los libros, del más al menos descargado.
+     */
+    @Transactional(readOnly = true)
+    public List<BookDTO> getTopBooks(int limit) {
+        return toDTOs(meterRegistry.timer("literalura.index.top", "ranking", "all").record(() -> topBooksIndex.top(limit)));
+    }
+
+    /**
+     * Obtiene los libros más descargados en un idioma.
+     *
+     * @param language El código del idioma.
+     * @param limit    El número de libros, como máximo {@link TopBooksIndex#CAPACITY}.
+     * @return Los libros, del más al menos descargado.
+     */
+    @Transactional(readOnly = true)
+    public List<BookDTO> getTopBooksByLanguage(String language, int limit) {
+        return toDTOs(meterRegistry.timer("literalura.index.top", "ranking", "language").record(() -> topBooksIndex.topByLanguage(language, limit)));
+    }
+
+    /**
+     * Obtiene los libros más descargados de un autor.
+     *
+     * @param authorId El identificador del autor.
+     * @param limit    El número de libros, como máximo {@link TopBooksIndex#CAPACITY}.
+     * @return Los libros, del más al menos descargado.
+     */
+    @Transactional(readOnly = true)
+    public List<BookDTO> getTopBooksByAuthor(long authorId, int limit) {
+        return toDTOs(meterRegistry.timer("literalura.index.top", "ranking", "author").record(() -> topBooksIndex.topByAuthor(authorId, limit)));
+    }
+
+    private List<BookDTO> toDTOs(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        return bookMapper.toDTOs(ids, bookRepository.findRowsByIdIn(ids));
     }
 }
@@ -0,0 +1,12 @@
+package com.bonidev.literalura.service;
+
+/**
+ * Evento publicado por {@link BookService} cuando se actualizan los datos variables de un libro ya registrado.
+ * La actualización se hace sin cargar la entidad, por lo que el libro se identifica por su clave natural.
+ *
+ * @param title         El título del libro.
+ * @param authorKey     La huella de los autores del libro.
+ * @param downloadCount El nuevo número de descargas del libro.
+ */
+public record BookUpdatedEvent(String title, String authorKey, int downloadCount) {
+}
@@ -0,0 +1,237 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cola de escritura diferida para registrar libros sin que quien los envía espere a la transacción.
+ * <p>
+ * Los libros pendientes se agrupan por su clave natural (título y autores), de modo que varios envíos del
+ * mismo libro se registran una sola vez con los últimos datos. Un hilo dedicado los registra en lotes con
+ * {@link BookService#saveBooks} cuando se juntan {@code batch-size} libros o pasa {@code max-delay} desde el
+ * primero pendiente. Si la cola está llena, {@link #submit} espera a que se vacíe. Al cerrar la aplicación
+ * se registran todos los libros pendientes antes de terminar.
+ */
+@Service
+public class BookWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(BookWriteBehindQueue.class);
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${literalura.write-behind.batch-size:50}")
+    private int batchSize;
+
+    @Value("${literalura.write-behind.max-delay:500ms}")
+    private Duration maxDelay;
+
+    @Value("${literalura.write-behind.capacity:1000}")
+    private int capacity;
+
+    @Value("${literalura.write-behind.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Map<Key, BookDTO> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean flushQueued;
+    private boolean closed;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Clave natural de un libro pendiente: el título y la huella de sus autores, calculada sobre los nombres
+     * normalizados para que las variantes de un mismo nombre coincidan como en {@link BookService#saveBooks}.
+     */
+    private record Key(String title, String authorKey) {
+
+        static Key of(BookDTO book) {
+            return new Key(book.title(), BookEntity.authorKeyOf(book.authors().stream()
+                    .map(author -> new PersonEntity(author.name() == null ? "" : AuthorNameDictionary.normalize(author.name()),
+                            author.birthYear(), author.deathYear()))
+                    .toList()));
+        }
+    }
+
+    /**
+     * Inicia el hilo de escritura al arrancar la aplicación.
+     */
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "literalura-write-behind");
+            // No impide que la JVM termine; el cierre del contexto vacía la cola antes
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("literalura.books.write_behind.pending", this, BookWriteBehindQueue::pendingCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola un libro para registrarlo en segundo plano. Si ya hay un envío pendiente del mismo libro, se
+     * reemplaza por este. Si la cola está llena, espera a que el hilo de escritura libere lugar.
+     *
+     * @param book El libro a registrar.
+     * @throws IllegalStateException Sí la cola ya se cerró o el hilo se interrumpe mientras espera.
+     */
+    public void submit(BookDTO book) {
+        Key key = Key.of(book);
+        lock.lock();
+        try {
+            while (!closed && pending.size() >= capacity && !pending.containsKey(key)) {
+                notFull.await();
+            }
+            if (closed) throw new IllegalStateException("La cola de escritura está cerrada");
+
+            pending.put(key, book);
+            if (pending.size() >= batchSize) {
+                if (!flushQueued) executor.execute(this::flushPending);
+                flushQueued = true;
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(this::flushPending, maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se esperaba lugar en la cola de escritura", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registra todos los libros pendientes y espera a que terminen de guardarse.
+     */
+    public void flush() {
+        await(executor.submit(this::flushPending), shutdownTimeout);
+    }
+
+    /**
+     * Cuenta los libros que esperan ser registrados.
+     *
+     * @return El número de libros pendientes.
+     */
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cierra la cola al cerrar la aplicación: rechaza nuevos envíos y registra los pendientes.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor.isShutdown()) return;
+
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Registra los libros pendientes en lotes. Solo se ejecuta en el hilo de escritura, por lo que los lotes
+     * se guardan en el orden en que se enviaron.
+     */
+    private void flushPending() {
+        List<BookDTO> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            save(batch);
+        }
+    }
+
+    private List<BookDTO> nextBatch() {
+        lock.lock();
+        try {
+            flushQueued = false;
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+
+            List<BookDTO> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<BookDTO> books = pending.values().iterator();
+            while (books.hasNext() && batch.size() < batchSize) {
+                batch.add(books.next());
+                books.remove();
+            }
+            if (!batch.isEmpty()) notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void save(List<BookDTO> batch) {
+        try {
+            bookService.saveBooks(batch);
+            meterRegistry.counter("literalura.books.write_behind.saved").increment(batch.size());
+        } catch (RuntimeException e) {
+            // El lote se revierte completo; se reintenta libro por libro para no perder los válidos
+            for (BookDTO book : batch) {
+                try {
+                    bookService.saveBooks(List.of(book));
+                    meterRegistry.counter("literalura.books.write_behind.saved").increment();
+                } catch (RuntimeException bookError) {
+                    meterRegistry.counter("literalura.books.write_behind.failed").increment();
+                    log.warn("No se pudo registrar el libro \"{}\"", book.title(), bookError);
+                }
+            }
+        }
+    }
+
+    private static void await(Future<?> future, Duration timeout) {
+        try {
+            future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se registraban los libros pendientes", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("No se pudieron registrar los libros pendientes", e);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Servicio que importa de forma masiva un catálogo local de Project Gutenberg. Admite la forma JSON de
+ * Gutendex (un objeto con "results" o un arreglo), NDJSON (un libro por línea) y el CSV oficial
+ * (pg_catalog.csv).
+ * <p>
+ * Los registros se leen en lotes, se convierten en paralelo en todos los núcleos, los autores se
+ * deduplican en memoria y cada lote se escribe con inserciones por lotes de JDBC en una sola transacción
+ * junto con su punto de control, de modo que una importación interrumpida se reanuda desde el último lote
+ * confirmado.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_VARCHAR = 255;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PersonMapper personMapper;
+
+    @Autowired
+    private AuthorResolver authorResolver;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Resultado de una importación.
+     *
+     * @param records        Registros leídos en esta ejecución (sin contar los omitidos al reanudar).
+     * @param resumedFrom    Registros ya importados en ejecuciones anteriores.
+     * @param booksInserted  Libros nuevos insertados.
+     * @param authorsInserted Autores nuevos insertados.
+     * @param elapsed        Duración de la importación.
+     */
+    public record ImportReport(long records, long resumedFrom, long booksInserted, long authorsInserted, Duration elapsed) {
+
+        /**
+         * Calcula las filas escritas por segundo (libros y autores).
+         *
+         * @return Las filas por segundo logradas en la importación.
+         */
+        public double rowsPerSecond() {
+            double seconds = Math.max(elapsed.toNanos(), 1) / 1_000_000_000.0;
+            return (booksInserted + authorsInserted) / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("""
+                    ------------------IMPORTACIÓN------------------
+                     Registros leídos: %d (reanudado desde %d)
+                     Libros insertados: %d
+                     Autores insertados: %d
+                     Duración: %.2f s
+                     Filas por segundo: %.0f
+                    -----------------------------------------------
+                    """, records, resumedFrom, booksInserted, authorsInserted, elapsed.toMillis() / 1000.0, rowsPerSecond());
+        }
+    }
+
+    /**
+     * Importa el catálogo contenido en el archivo dado, reanudando desde el último lote confirmado si el
+     * mismo archivo ya se importó parcialmente.
+     *
+     * @param file El archivo del catálogo (.json, .ndjson/.jsonl o .csv).
+     * @return El informe de la importación.
+     * @throws RuntimeException Sí ocurre un error al leer o escribir el catálogo.
+     */
+    public ImportReport importCatalog(Path file) {
+        String source = file.toAbsolutePath().normalize().toString();
+        long resumedFrom = loadCheckpoint(source);
+        long started = System.nanoTime();
+
+        long records = 0;
+        long[] inserted = new long[2];
+        boolean committed = false;
+        Map<PersonDTO, Long> personIds = new HashMap<>();
+
+        try (RecordSource<?> recordSource = open(file)) {
+            for (long skipped = 0; skipped < resumedFrom && recordSource.skip(); skipped++) {
+                // Registros ya confirmados en una ejecución anterior
+            }
+
+            while (true) {
+                List<ImportedBook> books = recordSource.nextBatch(BATCH_SIZE);
+                if (recordSource.lastBatchRecords() == 0) break;
+
+                records += recordSource.lastBatchRecords();
+                long done = resumedFrom + records;
+                long[] batchInserted = new long[2];
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<ImportedBook> canonical = canonicalizeAuthors(books);
+                    batchInserted[1] = writeAuthors(canonical, personIds);
+                    batchInserted[0] = writeBooks(canonical, personIds);
+                    saveCheckpoint(source, done);
+                });
+                inserted[0] += batchInserted[0];
+                inserted[1] += batchInserted[1];
+                committed = true;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el catálogo " + file, e);
+        } finally {
+            // Los lotes confirmados ya están en la base de datos aunque un lote posterior falle
+            if (committed) eventPublisher.publishEvent(new CatalogImportedEvent(inserted[0]));
+        }
+
+        return new ImportReport(records, resumedFrom, inserted[0], inserted[1], Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    /**
+     * Reemplaza los nombres de los autores por su forma canónica dentro de la transacción del lote, para que
+     * sus variantes no se inserten como personas distintas y los nombres nuevos solo se registren en el
+     * diccionario si el lote se confirma.
+     */
+    private List<ImportedBook> canonicalizeAuthors(List<ImportedBook> books) {
+        List<ImportedBook> canonical = new ArrayList<>(books.size());
+        for (ImportedBook book : books) {
+            Set<PersonDTO> authors = new HashSet<>();
+            book.dto().authors().forEach(author -> authors.add(personMapper.canonicalize(author)));
+            if (authors.equals(book.dto().authors())) {
+                canonical.add(book);
+                continue;
+            }
+            BookDTO dto = book.dto();
+            canonical.add(new ImportedBook(new BookDTO(dto.title(), authors, dto.languages(), dto.htmlLink(), dto.downloadCount()),
+                    authorKeyOf(authors)));
+        }
+        return canonical;
+    }
+
+    /**
+     * Inserta los autores del lote que aún no existen, usando el mapa en memoria como primera fuente.
+     *
+     * @return El número de autores insertados.
+     */
+    private int writeAuthors(List<ImportedBook> books, Map<PersonDTO, Long> personIds) {
+        Set<PersonDTO> unknown = new HashSet<>();
+        for (ImportedBook book : books) {
+            for (PersonDTO author : book.dto().authors()) {
+                if (!personIds.containsKey(author)) unknown.add(author);
+            }
+        }
+        if (unknown.isEmpty()) return 0;
+
+        collectPersonIds(unknown, personIds);
+        List<PersonDTO> missing = unknown.stream()
+                .filter(author -> !personIds.containsKey(author))
+                .toList();
+
+        if (!missing.isEmpty()) {
+            authorResolver.insertMissing(missing);
+            collectPersonIds(missing, personIds);
+        }
+        return missing.size();
+    }
+
+    /**
+     * Consulta los identificadores de las personas buscadas por su clave completa (nombre, año de nacimiento
+     * y de fallecimiento) y los agrega al mapa.
+     */
+    private void collectPersonIds(Collection<PersonDTO> wanted, Map<PersonDTO, Long> personIds) {
+        List<Object[]> keys = wanted.stream()
+                .map(author -> new Object[]{author.name(), author.birthYear(), author.deathYear()})
+                .toList();
+
+        namedJdbcTemplate.query("SELECT id, name, birth_year, death_year FROM persons WHERE (name, birth_year, death_year) IN (:keys)",
+                Map.of("keys", keys),
+                rs -> {
+                    PersonDTO key = new PersonDTO(rs.getString("name"), rs.getInt("birth_year"), rs.getInt("death_year"));
+                    personIds.put(key, rs.getLong("id"));
+                });
+    }
+
+    /**
+     * Inserta los libros del lote que aún no existen, junto con sus autores e idiomas.
+     *
+     * @return El número de libros insertados.
+     */
+    private int writeBooks(List<ImportedBook> books, Map<PersonDTO, Long> personIds) {
+        if (books.isEmpty()) return 0;
+
+        Map<String, ImportedBook> byNaturalKey = new LinkedHashMap<>();
+        for (ImportedBook book : books) {
+            byNaturalKey.putIfAbsent(naturalKey(book.dto().title(), book.authorKey()), book);
+        }
+
+        Set<String> titles = new HashSet<>();
+        books.forEach(book -> titles.add(book.dto().title()));
+        existingBooks(titles).keySet().forEach(byNaturalKey::remove);
+        if (byNaturalKey.isEmpty()) return 0;
+
+        jdbcTemplate.batchUpdate("INSERT INTO books (title, author_key, html_link, download_count) VALUES (?, ?, ?, ?)",
+                byNaturalKey.values().stream()
+                        .map(book -> new Object[]{book.dto().title(), book.authorKey(), book.dto().htmlLink(), book.dto().downloadCount()})
+                        .toList());
+
+        Map<String, Long> bookIds = existingBooks(titles);
+        List<Object[]> bookAuthors = new ArrayList<>();
+        List<Object[]> bookLanguages = new ArrayList<>();
+        byNaturalKey.forEach((key, book) -> {
+            Long bookId = bookIds.get(key);
+            book.dto().authors().forEach(author -> bookAuthors.add(new Object[]{bookId, personIds.get(author)}));
+            book.dto().languages().forEach(language -> bookLanguages.add(new Object[]{bookId, language}));
+        });
+
+        jdbcTemplate.batchUpdate("INSERT INTO book_author (book_id, person_id) VALUES (?, ?)", bookAuthors);
+        jdbcTemplate.batchUpdate("INSERT INTO book_language (book_id, language_code) VALUES (?, ?)", bookLanguages);
+        return byNaturalKey.size();
+    }
+
+    /**
+     * Consulta los libros registrados con alguno de los títulos dados.
+     *
+     * @return Un mapa de la clave natural de cada libro a su identificador.
+     */
+    private Map<String, Long> existingBooks(Collection<String> titles) {
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, title, author_key FROM books WHERE title IN (:titles)",
+                Map.of("titles", titles),
+                rs -> {
+                    ids.put(naturalKey(rs.getString("title"), rs.getString("author_key")), rs.getLong("id"));
+                });
+        return ids;
+    }
+
+    private static String authorKeyOf(Collection<PersonDTO> authors) {
+        return BookEntity.authorKeyOf(authors.stream()
+                .map(author -> new PersonEntity(author.name(), author.birthYear(), author.deathYear()))
+                .toList());
+    }
+
+    private static String naturalKey(String title, String authorKey) {
+        return title + '\u0000' + authorKey;
+    }
+
+    private long loadCheckpoint(String source) {
+        List<Long> done = jdbcTemplate.queryForList("SELECT records_done FROM import_checkpoints WHERE source = ?", Long.class, source);
+        return done.isEmpty() ? 0 : done.get(0);
+    }
+
+    private void saveCheckpoint(String source, long recordsDone) {
+        int updated = jdbcTemplate.update("UPDATE import_checkpoints SET records_done = ?, updated_at = CURRENT_TIMESTAMP WHERE source = ?", recordsDone, source);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO import_checkpoints (source, records_done, updated_at) VALUES (?, ?, CURRENT_TIMESTAMP)", source, recordsDone);
+        }
+    }
+
+    /**
+     * Abre la fuente de registros adecuada según la extensión del archivo.
+     */
+    private RecordSource<?> open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+
+        if (name.endsWith(".csv")) {
+            GutenbergCsvParser parser = new GutenbergCsvParser(reader);
+            return new RecordSource<>(reader, parser::nextRecord, GutenbergCsvParser::toBook);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return new RecordSource<>(reader, () -> nextLine(reader), this::parseJsonLine);
+        }
+
+        JsonParser parser = objectMapper.getFactory().createParser(reader);
+        positionAtResults(parser);
+        return new RecordSource<>(parser, () -> parser.nextToken() == JsonToken.START_OBJECT ? parser.readValueAsTree() : null,
+                (JsonNode node) -> objectMapper.convertValue(node, BookDTO.class));
+    }
+
+    private static String nextLine(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    private BookDTO parseJsonLine(String line) {
+        try {
+            return objectMapper.readValue(line, BookDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Línea NDJSON inválida: " + line, e);
+        }
+    }
+
+    /**
+     * Coloca el parser al inicio del arreglo de libros, sea el arreglo raíz o el campo "results".
+     */
+    private static void positionAtResults(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) return;
+
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "results".equals(field)) return;
+                parser.skipChildren();
+            }
+        }
+        throw new RuntimeException("El JSON del catálogo no contiene el campo 'results'");
+    }
+
+    /**
+     * Libro convertido y listo para escribirse, con su huella de autores ya calculada.
+     */
+    private record ImportedBook(BookDTO dto, String authorKey) {
+    }
+
+    /**
+     * Lector de registros en bruto que los convierte en BookDTO por lotes, en paralelo.
+     */
+    private static final class RecordSource<R> implements Closeable {
+
+        /**
+         * Proveedor de registros en bruto que puede lanzar IOException.
+         */
+        private interface RawReader<R> {
+            R read() throws IOException;
+        }
+
+        private final Closeable resource;
+        private final RawReader<R> rawReader;
+        private final Function<R, BookDTO> converter;
+        private int lastBatchRecords;
+
+        private RecordSource(Closeable resource, RawReader<R> rawReader, Function<R, BookDTO> converter) {
+            this.resource = resource;
+            this.rawReader = rawReader;
+            this.converter = converter;
+        }
+
+        /**
+         * Omite un registro sin convertirlo.
+         *
+         * @return true si había un registro para omitir.
+         */
+        boolean skip() throws IOException {
+            return rawReader.read() != null;
+        }
+
+        /**
+         * Lee hasta {@code size} registros y los convierte en paralelo, descartando los que no son libros o no
+         * tienen título.
+         */
+        List<ImportedBook> nextBatch(int size) throws IOException {
+            List<R> raw = new ArrayList<>(size);
+            R record;
+            while (raw.size() < size && (record = rawReader.read()) != null) {
+                raw.add(record);
+            }
+            lastBatchRecords = raw.size();
+
+            return raw.parallelStream()
+                    .map(converter)
+                    .filter(Objects::nonNull)
+                    .map(this::fitColumns)
+                    .filter(Objects::nonNull)
+                    .map(book -> new ImportedBook(book, authorKeyOf(book.authors())))
+                    .toList();
+        }
+
+        int lastBatchRecords() {
+            return lastBatchRecords;
+        }
+
+        /**
+         * Recorta los textos que exceden el tamaño de las columnas de la base de datos y normaliza los nombres
+         * de los autores; su forma canónica se elige después, en la transacción del lote. Los autores sin
+         * nombre se descartan, porque la columna no admite nulos y harían fallar el lote.
+         *
+         * @return El libro ajustado, o null si no tiene título (la columna no admite nulos y haría fallar el lote).
+         */
+        private BookDTO fitColumns(BookDTO book) {
+            if (book.title() == null || book.title().isBlank()) return null;
+
+            Set<PersonDTO> authors = new HashSet<>();
+            if (book.authors() != null) {
+                for (PersonDTO author : book.authors()) {
+                    String name = author == null || author.name() == null ? "" : AuthorNameDictionary.normalize(author.name());
+                    if (name.isEmpty()) continue;
+                    authors.add(new PersonDTO(truncate(name), author.birthYear(), author.deathYear()));
+                }
+            }
+            Set<String> languages = book.languages() != null ? book.languages() : Set.of();
+            return new BookDTO(truncate(book.title()), authors, languages, truncate(book.htmlLink()), book.downloadCount());
+        }
+
+        private static String truncate(String text) {
+            return text != null && text.length() > MAX_VARCHAR ? text.substring(0, MAX_VARCHAR) : text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            resource.close();
+        }
+    }
+}
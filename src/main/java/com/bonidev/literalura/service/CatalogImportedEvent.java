@@ -0,0 +1,11 @@
+package com.bonidev.literalura.service;
+
+/**
+ * Evento publicado por {@link CatalogImportService} al terminar una importación masiva, también si falla
+ * después de confirmar algún lote. Como la importación escribe directamente con JDBC, los índices en memoria
+ * deben reconstruirse al recibirlo.
+ *
+ * @param booksInserted El número de libros insertados.
+ */
+public record CatalogImportedEvent(long booksInserted) {
+}
@@ -0,0 +1,272 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.catalog.CatalogSnapshot;
+import com.bonidev.literalura.catalog.MappedCatalog;
+import com.bonidev.literalura.catalog.ReadOnlyCatalog;
+import com.bonidev.literalura.catalog.SnapshotCatalog;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Servicio que exporta el catálogo completo a una instantánea binaria ({@link CatalogSnapshot}) y la carga al
+ * arrancar como un catálogo de solo lectura en memoria.
+ * <p>
+ * Con {@code literalura.snapshot.file} configurado, los listados de {@link BookService} y {@link PersonService}
+ * se atienden desde la instantánea sin consultar la base de datos, lo que permite arrancar en caliente y
+ * recorrer el catálogo sin conexión. La instantánea refleja el catálogo al momento de exportarla: en cuanto
+ * se registra, actualiza o importa un libro deja de usarse y los listados vuelven a la base de datos.
+ * <p>
+ * Para catálogos muy grandes, {@code literalura.snapshot.mapped-file} usa en su lugar un {@link MappedCatalog}:
+ * los registros quedan en un archivo mapeado fuera del heap y solo se crean entidades para los resultados.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${literalura.snapshot.file:}")
+    private String snapshotFile;
+
+    @Value("${literalura.snapshot.mapped-file:}")
+    private String mappedFile;
+
+    private volatile ReadOnlyCatalog catalog;
+
+    /**
+     * Resultado de una exportación.
+     *
+     * @param books   Libros exportados.
+     * @param persons Personas exportadas.
+     * @param bytes   Tamaño del archivo escrito.
+     * @param elapsed Duración de la exportación.
+     */
+    public record ExportReport(int books, int persons, long bytes, Duration elapsed) {
+
+        @Override
+        public String toString() {
+            return String.format("""
+                    ------------------INSTANTÁNEA------------------
+                     Libros exportados: %d
+                     Autores exportados: %d
+                     Tamaño: %d bytes (%.1f bytes por libro)
+                     Duración: %.2f s
+                    -----------------------------------------------
+                    """, books, persons, bytes, books == 0 ? 0.0 : (double) bytes / books, elapsed.toMillis() / 1000.0);
+        }
+    }
+
+    /**
+     * Carga la instantánea configurada, si la hay. El catálogo mapeado tiene prioridad sobre la instantánea en
+     * memoria.
+     */
+    @PostConstruct
+    public void loadConfiguredSnapshot() {
+        if (!mappedFile.isBlank()) loadMapped(Path.of(mappedFile));
+        else if (!snapshotFile.isBlank()) load(Path.of(snapshotFile));
+    }
+
+    /**
+     * Carga una instantánea y la usa para los listados a partir de ahora.
+     *
+     * @param file El archivo de la instantánea.
+     * @return El catálogo cargado.
+     */
+    public ReadOnlyCatalog load(Path file) {
+        try {
+            ReadOnlyCatalog loaded = new SnapshotCatalog(CatalogSnapshot.read(file));
+            catalog = loaded;
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cargar la instantánea " + file, e);
+        }
+    }
+
+    /**
+     * Abre un catálogo mapeado y lo usa para los listados a partir de ahora.
+     *
+     * @param file El archivo del catálogo mapeado.
+     * @return El catálogo abierto.
+     */
+    public ReadOnlyCatalog loadMapped(Path file) {
+        try {
+            ReadOnlyCatalog loaded = MappedCatalog.open(file);
+            catalog = loaded;
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el catálogo mapeado " + file, e);
+        }
+    }
+
+    /**
+     * Obtiene el catálogo de solo lectura en uso.
+     *
+     * @return El catálogo cargado, o vacío si los listados deben consultar la base de datos.
+     */
+    public Optional<ReadOnlyCatalog> catalog() {
+        return Optional.ofNullable(catalog);
+    }
+
+    /**
+     * Exporta el catálogo completo a un archivo. Las cuatro tablas se leen en una sola transacción de solo
+     * lectura, de modo que la instantánea es coherente aunque se registren libros mientras tanto.
+     *
+     * @param file El archivo de destino; se reemplaza si ya existe.
+     * @return El número de libros y personas exportados y el tamaño del archivo.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ExportReport export(Path file) {
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = readCatalog();
+        try {
+            long bytes = snapshot.write(file);
+            return new ExportReport(snapshot.bookCount(), snapshot.personCount(), bytes, Duration.ofNanos(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir la instantánea " + file, e);
+        }
+    }
+
+    /**
+     * Exporta el catálogo completo al formato del catálogo mapeado, igual que {@link #export(Path)}.
+     *
+     * @param file El archivo de destino; se reemplaza si ya existe.
+     * @return El número de libros y personas exportados y el tamaño del archivo.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ExportReport exportMapped(Path file) {
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = readCatalog();
+        try {
+            long bytes = MappedCatalog.write(snapshot, file);
+            return new ExportReport(snapshot.bookCount(), snapshot.personCount(), bytes, Duration.ofNanos(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el catálogo mapeado " + file, e);
+        }
+    }
+
+    /**
+     * Deja de usar la instantánea al registrar un libro nuevo.
+     *
+     * @param event El evento del libro guardado.
+     */
+    @TransactionalEventListener
+    public void onBookSaved(BookSavedEvent event) {
+        catalog = null;
+    }
+
+    /**
+     * Deja de usar la instantánea al actualizar un libro existente.
+     *
+     * @param event El evento del libro actualizado.
+     */
+    @TransactionalEventListener
+    public void onBookUpdated(BookUpdatedEvent event) {
+        catalog = null;
+    }
+
+    /**
+     * Deja de usar la instantánea tras una importación masiva.
+     *
+     * @param event El evento de la importación.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        catalog = null;
+    }
+
+    private CatalogSnapshot readCatalog() {
+        // Personas, con sus nombres codificados en un diccionario
+        Map<String, Integer> nameIndexes = new LinkedHashMap<>();
+        List<long[]> personRows = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, name, birth_year, death_year FROM persons ORDER BY id", rs -> {
+            int name = nameIndexes.computeIfAbsent(rs.getString(2), key -> nameIndexes.size());
+            personRows.add(new long[]{rs.getLong(1), name, rs.getInt(3), rs.getInt(4)});
+        });
+        long[] personIds = new long[personRows.size()];
+        int[] personNames = new int[personRows.size()];
+        int[] birthYears = new int[personRows.size()];
+        int[] deathYears = new int[personRows.size()];
+        for (int i = 0; i < personRows.size(); i++) {
+            long[] row = personRows.get(i);
+            personIds[i] = row[0];
+            personNames[i] = (int) row[1];
+            birthYears[i] = (int) row[2];
+            deathYears[i] = (int) row[3];
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<String> htmlLinks = new ArrayList<>();
+        List<Integer> downloadCounts = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, title, html_link, download_count FROM books ORDER BY id", rs -> {
+            ids.add(rs.getLong(1));
+            titles.add(rs.getString(2));
+            htmlLinks.add(rs.getString(3));
+            downloadCounts.add(rs.getInt(4));
+        });
+        long[] bookIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        // Autores como posiciones en la tabla de personas
+        List<List<Integer>> authors = emptyLists(bookIds.length);
+        jdbcTemplate.query("SELECT book_id, person_id FROM book_author ORDER BY book_id, person_id", rs -> {
+            int book = Arrays.binarySearch(bookIds, rs.getLong(1));
+            int person = Arrays.binarySearch(personIds, rs.getLong(2));
+            if (book >= 0 && person >= 0) authors.get(book).add(person);
+        });
+
+        // Idiomas como posiciones en el diccionario de idiomas, ordenado por código
+        List<Integer> languageBooks = new ArrayList<>();
+        List<String> languageCodes = new ArrayList<>();
+        jdbcTemplate.query("SELECT book_id, language_code FROM book_language WHERE language_code IS NOT NULL ORDER BY book_id, language_code", rs -> {
+            int book = Arrays.binarySearch(bookIds, rs.getLong(1));
+            if (book < 0) return;
+            languageBooks.add(book);
+            languageCodes.add(rs.getString(2));
+        });
+        List<String> languages = List.copyOf(new TreeSet<>(languageCodes));
+        Map<String, Integer> languageIndexes = new HashMap<>();
+        for (int i = 0; i < languages.size(); i++) languageIndexes.put(languages.get(i), i);
+        List<List<Integer>> bookLanguages = emptyLists(bookIds.length);
+        for (int i = 0; i < languageBooks.size(); i++) {
+            bookLanguages.get(languageBooks.get(i)).add(languageIndexes.get(languageCodes.get(i)));
+        }
+
+        return new CatalogSnapshot(languages, List.copyOf(nameIndexes.keySet()),
+                personIds, personNames, birthYears, deathYears,
+                bookIds, titles.toArray(String[]::new), htmlLinks.toArray(String[]::new),
+                downloadCounts.stream().mapToInt(Integer::intValue).toArray(),
+                toArrays(authors), toArrays(bookLanguages));
+    }
+
+    private static List<List<Integer>> emptyLists(int size) {
+        List<List<Integer>> lists = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) lists.add(new ArrayList<>(1));
+        return lists;
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        int[][] arrays = new int[lists.size()][];
+        for (int i = 0; i < arrays.length; i++) arrays[i] = lists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        return arrays;
+    }
+}
@@ -0,0 +1,32 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.FormatLinks;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserializador del objeto "formats" completo de la API, para los DTO que necesitan todos los enlaces de
+ * descarga (EPUB, texto plano, portada, etc.) y no solo el HTML.
+ */
+public class FormatLinksDeserializer extends StdDeserializer<FormatLinks> {
+
+    public FormatLinksDeserializer() {
+        super(FormatLinks.class);
+    }
+
+    /**
+     * Lee los enlaces de todos los formatos conocidos del objeto "formats".
+     *
+     * @param jp Objeto JsonParser para leer el JSON.
+     * @param dc Objeto DeserializationContext para el contexto de deserialización.
+     * @return Los enlaces encontrados.
+     * @throws IOException Sí ocurre un error de E/S durante la deserialización.
+     */
+    @Override
+    public FormatLinks deserialize(JsonParser jp, DeserializationContext dc) throws IOException {
+        return FormatLinks.read(jp, false);
+    }
+}
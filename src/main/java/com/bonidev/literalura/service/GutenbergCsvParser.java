@@ -0,0 +1,144 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lector del catálogo CSV de Project Gutenberg (pg_catalog.csv), con las columnas
+ * Text#, Type, Issued, Title, Language, Authors, Subjects, LoCC y Bookshelves.
+ */
+final class GutenbergCsvParser {
+
+    private static final String HTML_LINK = "https://www.gutenberg.org/ebooks/%s.html.images";
+
+    // Autor con años de vida opcionales, por ejemplo "Twain, Mark, 1835-1910" o "Homer, 751? BCE-651? BCE".
+    private static final Pattern AUTHOR = Pattern.compile("^(.*?),\\s*(\\d{1,4})?\\??(\\s*BCE)?\\s*-\\s*(\\d{1,4})?\\??(\\s*BCE)?$");
+
+    private final Reader reader;
+    private boolean started;
+    private int pending;
+
+    /**
+     * Constructor del lector.
+     *
+     * @param reader El lector del archivo CSV. Se asume que la primera fila es la cabecera.
+     */
+    GutenbergCsvParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Lee el siguiente registro del CSV, omitiendo la cabecera.
+     *
+     * @return Los campos del registro, o null si no hay más registros.
+     * @throws IOException Sí ocurre un error de E/S durante la lectura.
+     */
+    List<String> nextRecord() throws IOException {
+        if (!started) {
+            started = true;
+            pending = reader.read();
+            readRecord();
+        }
+        return readRecord();
+    }
+
+    /**
+     * Lee un registro respetando comillas, comas y saltos de línea dentro de los campos.
+     */
+    private List<String> readRecord() throws IOException {
+        if (pending == -1) return null;
+
+        List<String> fields = new ArrayList<>(9);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        int c = pending;
+        while (true) {
+            if (c == -1) {
+                fields.add(field.toString());
+                pending = -1;
+                return fields;
+            }
+
+            if (quoted) {
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next != '"') {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                int next = reader.read();
+                if (c == '\r' && next == '\n') next = reader.read();
+                fields.add(field.toString());
+                pending = next;
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    /**
+     * Convierte un registro del CSV en un BookDTO. Solo se consideran los registros de tipo "Text".
+     *
+     * @param fields Los campos del registro.
+     * @return El libro correspondiente, o null si el registro no describe un libro.
+     */
+    static BookDTO toBook(List<String> fields) {
+        if (fields.size() < 6 || !"Text".equals(fields.get(1)) || fields.get(3).isBlank()) return null;
+
+        Set<String> languages = new LinkedHashSet<>();
+        for (String language : fields.get(4).split(";")) {
+            if (!language.isBlank()) languages.add(language.trim());
+        }
+
+        Set<PersonDTO> authors = new LinkedHashSet<>();
+        for (String author : fields.get(5).split(";")) {
+            PersonDTO person = toPerson(author.trim());
+            if (person != null) authors.add(person);
+        }
+
+        String title = fields.get(3).replaceAll("\\s+", " ").trim();
+        return new BookDTO(title, authors, languages, HTML_LINK.formatted(fields.get(0).trim()), 0);
+    }
+
+    /**
+     * Convierte una entrada de la columna Authors en un PersonDTO. Las entradas con un rol entre corchetes
+     * (ilustradores, traductores, etc.) se descartan.
+     */
+    static PersonDTO toPerson(String author) {
+        if (author.isEmpty() || author.contains("[")) return null;
+
+        Matcher matcher = AUTHOR.matcher(author);
+        if (!matcher.matches()) return new PersonDTO(author, 0, 0);
+
+        return new PersonDTO(matcher.group(1).trim(),
+                year(matcher.group(2), matcher.group(3)),
+                year(matcher.group(4), matcher.group(5)));
+    }
+
+    private static int year(String digits, String bce) {
+        if (digits == null) return 0;
+        int year = Integer.parseInt(digits);
+        return bce != null ? -year : year;
+    }
+}
@@ -1,15 +1,16 @@
 package com.bonidev.literalura.service;
 
+import com.bonidev.literalura.dto.FormatLinks;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 import java.io.IOException;
 
 /**
- * Deserializador personalizado para extraer datos anidados de JSON.
+ * Deserializador personalizado para extraer el enlace HTML del objeto "formats" de la API. Lee el objeto
+ * token por token y salta los demás formatos sin materializarlos.
  */
 public class NestedJsonDeserializer extends StdDeserializer<String> {
 
@@ -34,13 +35,11 @@ public class NestedJsonDeserializer extends StdDeserializer<String> {
      *
      * @param jp Objeto JsonParser para leer el JSON.
      * @param dc Objeto DeserializationContext para el contexto de deserialización.
-     * @return El valor del campo "text/html" si existe en el JSON, de lo contrario devuelve "hola".
+     * @return El valor del campo "text/html" si existe en el JSON, de lo contrario null.
      * @throws IOException Sí ocurre un error de E/S durante la deserialización.
      */
     @Override
     public String deserialize(JsonParser jp, DeserializationContext dc) throws IOException {
-        JsonNode node = jp.getCodec().readTree(jp);
-        JsonNode htmlNode = node.get("text/html");
-        return htmlNode != null ? htmlNode.asText() : "hola";
+        return FormatLinks.read(jp, true).html();
     }
 }
@@ -2,14 +2,24 @@ package com.bonidev.literalura.service;
 
 import com.bonidev.literalura.dto.PersonDTO;
 import com.bonidev.literalura.model.PersonEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
- * Clase que proporciona métodos para mapear entre PersonEntity y PersonDTO.
+ * Clase que proporciona métodos para mapear entre PersonEntity y PersonDTO. Los nombres de autor pasan por
+ * el {@link AuthorNameDictionary}, de modo que las variantes de un mismo nombre se unifican.
  */
 @Service
 public class PersonMapper {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuthorNameDictionary authorNames;
+
     /**
      * Convierte una entidad PersonEntity a un DTO PersonDTO.
      *
@@ -17,11 +27,11 @@ public class PersonMapper {
      * @return El DTO PersonDTO creado a partir de la entidad.
      */
     public PersonDTO toDTO(PersonEntity personEntity) {
-        return new PersonDTO(
-                personEntity.getName(),
+        return timer("toDTO").record(() -> new PersonDTO(
+                authorNames.canonicalize(personEntity.getName()),
                 personEntity.getBirthYear(),
                 personEntity.getDeathYear()
-        );
+        ));
     }
 
     /**
@@ -31,10 +41,25 @@ public class PersonMapper {
      * @return La entidad PersonEntity creada a partir del DTO.
      */
     public PersonEntity toEntity(PersonDTO personDTO){
-        return new PersonEntity(
-                personDTO.name(),
+        return timer("toEntity").record(() -> new PersonEntity(
+                authorNames.canonicalize(personDTO.name()),
                 personDTO.birthYear(),
                 personDTO.deathYear()
-        );
+        ));
+    }
+
+    /**
+     * Reemplaza el nombre de un autor por su forma canónica.
+     *
+     * @param personDTO El autor tal como llegó.
+     * @return El mismo DTO si su nombre ya era el canónico, o uno nuevo con el nombre canónico.
+     */
+    public PersonDTO canonicalize(PersonDTO personDTO) {
+        String name = authorNames.canonicalize(personDTO.name());
+        return name == personDTO.name() ? personDTO : new PersonDTO(name, personDTO.birthYear(), personDTO.deathYear());
+    }
+
+    private Timer timer(String operation) {
+        return meterRegistry.timer("literalura.mapper", "mapper", "person", "operation", operation);
     }
 }
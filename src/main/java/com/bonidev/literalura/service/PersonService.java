@@ -1,11 +1,24 @@
 package com.bonidev.literalura.service;
 
+import com.bonidev.literalura.catalog.ReadOnlyCatalog;
+import com.bonidev.literalura.index.DecadeHistogram;
+import com.bonidev.literalura.index.LifespanIndex;
 import com.bonidev.literalura.model.PersonEntity;
 import com.bonidev.literalura.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Servicio que gestiona operaciones relacionadas con entidades PersonEntity.
@@ -16,22 +29,113 @@ public class PersonService {
     @Autowired
     private PersonRepository personRepository;
 
+    @Autowired
+    private LifespanIndex lifespanIndex;
+
+    @Autowired
+    private CatalogSnapshotService snapshots;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${literalura.index.lifespans.enabled:true}")
+    private boolean lifespanIndexEnabled;
+
     /**
-     * Obtiene todas las personas almacenadas en el repositorio.
+     * Obtiene todas las personas almacenadas en el repositorio, o en la instantánea del catálogo si hay una
+     * cargada.
      *
      * @return Lista de todas las personas.
      */
     public List<PersonEntity> getAllPersons() {
-        return personRepository.findAll();
+        return snapshots.catalog().map(ReadOnlyCatalog::getAllPersons).orElseGet(personRepository::findAll);
+    }
+
+    /**
+     * Obtiene una página de las personas almacenadas, ordenadas por identificador.
+     *
+     * @param page El número de página, empezando en 0.
+     * @param size El número de personas por página.
+     * @return Las personas de la página, junto con sus libros, y si existe una página siguiente.
+     */
+    @Transactional(readOnly = true)
+    public Slice<PersonEntity> getPersonsPage(int page, int size) {
+        Optional<ReadOnlyCatalog> snapshot = snapshots.catalog();
+        if (snapshot.isPresent()) {
+            PageRequest pageable = PageRequest.of(page, size, Sort.by("id"));
+            int from = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+            return new SliceImpl<>(snapshot.get().getPersons(from, from + size), pageable, (long) from + size < snapshot.get().personCount());
+        }
+
+        Slice<Long> ids = personRepository.findIdsBy(PageRequest.of(page, size, Sort.by("id")));
+        if (!ids.hasContent()) return new SliceImpl<>(List.of(), ids.getPageable(), false);
+
+        List<PersonEntity> persons = personRepository.findByIdIn(ids.getContent()).stream()
+                .sorted(Comparator.comparing(PersonEntity::getId))
+                .toList();
+        return new SliceImpl<>(persons, ids.getPageable(), ids.hasNext());
     }
 
     /**
-     * Obtiene todas las personas que estaban vivas en un año específico.
+     * Obtiene todas las personas que estaban vivas en un año específico. Si hay una instantánea del catálogo
+     * cargada, las personas se buscan en ella sin consultar la base de datos.
      *
      * @param yearRequested El año solicitado para buscar personas vivas.
      * @return Lista de personas que estaban vivas en el año especificado.
      */
+    @Transactional(readOnly = true)
     public List<PersonEntity> getLivingPersonsInAGivenYear(int yearRequested) {
-        return personRepository.getLivingPersonsInAGivenYear(yearRequested);
+        Optional<ReadOnlyCatalog> snapshot = snapshots.catalog();
+        if (snapshot.isPresent()) return snapshot.get().getLivingPersonsBetween(yearRequested, yearRequested);
+        if (!lifespanIndexEnabled) return personRepository.getLivingPersonsInAGivenYear(yearRequested);
+        return findByIdsSorted(meterRegistry.timer("literalura.index.lifespans").record(() -> lifespanIndex.findAliveIn(yearRequested)));
+    }
+
+    /**
+     * Obtiene todas las personas que estaban vivas en algún momento de un rango de años. Usa la instantánea del
+     * catálogo si hay una cargada; si no, el índice de intervalos en memoria, o la base de datos si el índice
+     * está deshabilitado.
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return Lista de personas vivas durante el rango, ordenadas por identificador.
+     */
+    @Transactional(readOnly = true)
+    public List<PersonEntity> getLivingPersonsBetween(int from, int to) {
+        Optional<ReadOnlyCatalog> snapshot = snapshots.catalog();
+        if (snapshot.isPresent()) return snapshot.get().getLivingPersonsBetween(from, to);
+        if (!lifespanIndexEnabled) return personRepository.getLivingPersonsBetween(from, to);
+        return findByIdsSorted(meterRegistry.timer("literalura.index.lifespans").record(() -> lifespanIndex.findAliveBetween(from, to)));
+    }
+
+    /**
+     * Cuenta las personas vivas en cada década de un rango de años. Usa la instantánea del catálogo si hay una
+     * cargada; si no, el índice de intervalos en memoria, o una consulta agrupada si el índice está
+     * deshabilitado.
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return El número de personas vivas por década, indexado por el primer año de la década.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, Integer> countLivingPersonsByDecade(int from, int to) {
+        Optional<ReadOnlyCatalog> snapshot = snapshots.catalog();
+        if (snapshot.isPresent()) return snapshot.get().countLivingPersonsByDecade(from, to);
+        if (!lifespanIndexEnabled) {
+            DecadeHistogram histogram = new DecadeHistogram(from, to);
+            for (PersonRepository.LifespanCount lifespan : personRepository.countLifespansBetween(histogram.firstYear(), histogram.lastYear())) {
+                histogram.add(lifespan.getBirthYear(), lifespan.getDeathYear(), lifespan.getPersons());
+            }
+            return histogram.counts();
+        }
+        return meterRegistry.timer("literalura.index.lifespans").record(() -> lifespanIndex.countAliveByDecade(from, to));
+    }
+
+    private List<PersonEntity> findByIdsSorted(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        return personRepository.findByIdIn(ids).stream()
+                .sorted(Comparator.comparing(PersonEntity::getId))
+                .toList();
     }
 }
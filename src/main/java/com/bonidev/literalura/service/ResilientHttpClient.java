@@ -0,0 +1,367 @@
+package com.bonidev.literalura.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cliente HTTP que protege a la aplicación de una API lenta o saturada. Cada solicitud pasa, en orden, por:
+ * <ol>
+ *   <li>un circuito que la rechaza sin enviarla ({@link ApiUnavailableException}) si los últimos intentos
+ *   fallaron seguidos, hasta que pase {@code openDuration} y un intento de prueba salga bien;</li>
+ *   <li>un cubo de fichas que limita las solicitudes por segundo, con ráfagas de hasta {@code burst};</li>
+ *   <li>un límite adaptativo de solicitudes en curso, que crece de a poco con cada respuesta correcta y se
+ *   reduce a la mitad cuando la API responde 429 o 503 o no responde a tiempo (AIMD);</li>
+ *   <li>un tiempo máximo de espera de la respuesta, si la solicitud no trae uno.</li>
+ * </ol>
+ * Los errores de conexión, los tiempos agotados y las respuestas 429 y 5xx se reintentan hasta
+ * {@code maxAttempts} veces, esperando un tiempo exponencial con variación aleatoria (o el indicado en
+ * Retry-After, si es mayor). Si se agotan los intentos se devuelve la última respuesta o el último error.
+ */
+public class ResilientHttpClient {
+
+    /**
+     * Configuración del cliente.
+     *
+     * @param requestTimeout    Tiempo máximo de espera de cada respuesta.
+     * @param requestsPerSecond Solicitudes por segundo permitidas; 0 o menos para no limitarlas.
+     * @param burst             Solicitudes que pueden enviarse seguidas antes de aplicar el límite.
+     * @param maxAttempts       Intentos por solicitud, contando el primero.
+     * @param baseDelay         Espera antes del primer reintento; se duplica en cada uno.
+     * @param maxDelay          Espera máxima entre reintentos.
+     * @param failureThreshold  Fallos seguidos que abren el circuito.
+     * @param openDuration      Tiempo que el circuito permanece abierto antes de probar de nuevo.
+     * @param minConcurrency    Límite mínimo de solicitudes en curso.
+     * @param maxConcurrency    Límite máximo (e inicial) de solicitudes en curso.
+     */
+    public record Settings(Duration requestTimeout, double requestsPerSecond, int burst, int maxAttempts,
+                           Duration baseDelay, Duration maxDelay, int failureThreshold, Duration openDuration,
+                           int minConcurrency, int maxConcurrency) {
+
+        /**
+         * Configuración sin límites ni reintentos, que solo aplica el tiempo máximo de espera.
+         *
+         * @param requestTimeout Tiempo máximo de espera de cada respuesta.
+         * @return La configuración.
+         */
+        public static Settings unrestricted(Duration requestTimeout) {
+            return new Settings(requestTimeout, 0, 1, 1, Duration.ZERO, Duration.ZERO, Integer.MAX_VALUE, Duration.ZERO,
+                    Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Estado del circuito.
+     */
+    public enum CircuitState {
+        /** Las solicitudes se envían normalmente. */
+        CLOSED,
+        /** Un intento de prueba decide si el circuito se cierra o vuelve a abrirse. */
+        HALF_OPEN,
+        /** Las solicitudes se rechazan sin enviarse. */
+        OPEN
+    }
+
+    private final HttpClient httpClient;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final Counter rejected;
+    private final MeterRegistry meterRegistry;
+
+    // Cubo de fichas: puede quedar negativo, y entonces cada solicitud espera su turno
+    private double tokens;
+    private long refilledAt;
+
+    // Circuito
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+
+    // Límite adaptativo de solicitudes en curso
+    private double concurrencyLimit;
+    private int inFlight;
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+    /**
+     * Constructor que usa el reloj del sistema.
+     *
+     * @param httpClient    El cliente HTTP que envía las solicitudes.
+     * @param settings      La configuración.
+     * @param meterRegistry El registro de métricas.
+     */
+    public ResilientHttpClient(HttpClient httpClient, Settings settings, MeterRegistry meterRegistry) {
+        this(httpClient, settings, meterRegistry, System::nanoTime);
+    }
+
+    ResilientHttpClient(HttpClient httpClient, Settings settings, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.httpClient = httpClient;
+        this.settings = settings;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.tokens = settings.burst();
+        this.refilledAt = clock.getAsLong();
+        this.concurrencyLimit = settings.maxConcurrency();
+        this.rejected = Counter.builder("literalura.api.rejected")
+                .description("Solicitudes a la API rechazadas con el circuito abierto")
+                .register(meterRegistry);
+
+        Gauge.builder("literalura.api.circuit.state", this, client -> client.circuitState().ordinal())
+                .description("Estado del circuito de la API (0 cerrado, 1 en prueba, 2 abierto)")
+                .register(meterRegistry);
+        Gauge.builder("literalura.api.concurrency.limit", this, ResilientHttpClient::concurrencyLimit)
+                .description("Límite adaptativo de solicitudes a la API en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Envía una solicitud sin bloquear el hilo que llama, con los límites, reintentos y circuito descritos.
+     *
+     * @param request     La solicitud.
+     * @param bodyHandler El manejador del cuerpo de la respuesta.
+     * @param <T>         El tipo del cuerpo.
+     * @return Un CompletableFuture con la respuesta del último intento, o con el error ocurrido.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        HttpRequest timed = request.timeout().isPresent() ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(settings.requestTimeout()).build();
+        return attempt(timed, bodyHandler, 1);
+    }
+
+    /**
+     * Envía una solicitud y espera su respuesta, con los límites, reintentos y circuito descritos.
+     *
+     * @param request     La solicitud.
+     * @param bodyHandler El manejador del cuerpo de la respuesta.
+     * @param <T>         El tipo del cuerpo.
+     * @return La respuesta del último intento.
+     * @throws IOException          Si la solicitud falla en todos los intentos.
+     * @throws InterruptedException Si el hilo se interrumpe mientras espera.
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<T>> response = sendAsync(request, bodyHandler);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Obtiene el estado del circuito.
+     *
+     * @return El estado actual.
+     */
+    public synchronized CircuitState circuitState() {
+        return circuitState;
+    }
+
+    /**
+     * Obtiene el límite adaptativo de solicitudes en curso.
+     *
+     * @return El límite actual.
+     */
+    public synchronized double concurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attempt(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int attempt) {
+        if (!allowRequest()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new ApiUnavailableException(
+                    "La API no está disponible tras " + settings.failureThreshold() + " fallos seguidos; se volverá a probar en unos segundos"));
+        }
+
+        return delay(reserveToken())
+                .thenCompose(ignored -> acquireSlot())
+                .thenCompose(ignored -> sendOnce(request, bodyHandler)
+                        .<Outcome<T>>handle((response, error) -> {
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            recordOutcome(response, cause);
+                            return new Outcome<>(response, cause);
+                        }))
+                .<HttpResponse<T>>thenCompose(outcome -> {
+                    if (attempt < settings.maxAttempts() && outcome.isRetryable() && circuitState() != CircuitState.OPEN) {
+                        retryCounter(outcome.reason()).increment();
+                        long wait = backoff(attempt, outcome.response());
+                        outcome.discard();
+                        return delay(wait).thenCompose(ignored -> attempt(request, bodyHandler, attempt + 1));
+                    }
+                    if (outcome.error() != null) return CompletableFuture.failedFuture(outcome.error());
+                    return CompletableFuture.completedFuture(outcome.response());
+                });
+    }
+
+    /**
+     * Envía la solicitud una vez. Si {@code sendAsync} lanza una excepción en lugar de devolver un futuro, se
+     * devuelve como un futuro fallido, para que el intento libere su lugar y cuente en el circuito como
+     * cualquier otro fallo.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendOnce(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            return httpClient.sendAsync(request, bodyHandler);
+        } catch (Throwable e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Counter retryCounter(String reason) {
+        return Counter.builder("literalura.api.retries")
+                .description("Reintentos de solicitudes a la API por motivo")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calcula la espera antes del siguiente intento: la mitad de la espera exponencial más una parte aleatoria
+     * de la otra mitad, o Retry-After si la API pide más, sin superar {@code maxDelay}.
+     */
+    private long backoff(int attempt, HttpResponse<?> response) {
+        long max = settings.maxDelay().toNanos();
+        long exponential = Math.min(max, settings.baseDelay().toNanos() << Math.min(attempt - 1, 30));
+        long wait = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+
+        if (response != null) {
+            try {
+                long retryAfter = TimeUnit.SECONDS.toNanos(response.headers().firstValueAsLong("Retry-After").orElse(0));
+                wait = Math.max(wait, Math.min(max, retryAfter));
+            } catch (NumberFormatException e) {
+                // Retry-After con fecha HTTP: se usa la espera exponencial
+            }
+        }
+        return wait;
+    }
+
+    private static CompletableFuture<Void> delay(long nanos) {
+        if (nanos <= 0) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Toma una ficha del cubo.
+     *
+     * @return Los nanosegundos que hay que esperar hasta que la ficha esté disponible.
+     */
+    private synchronized long reserveToken() {
+        if (settings.requestsPerSecond() <= 0) return 0;
+
+        long now = clock.getAsLong();
+        tokens = Math.min(settings.burst(), tokens + (now - refilledAt) * settings.requestsPerSecond() / 1e9);
+        refilledAt = now;
+        tokens--;
+        return tokens >= 0 ? 0 : (long) (-tokens / settings.requestsPerSecond() * 1e9);
+    }
+
+    private synchronized boolean allowRequest() {
+        if (circuitState == CircuitState.OPEN) {
+            if (clock.getAsLong() - openedAt < settings.openDuration().toNanos()) return false;
+            circuitState = CircuitState.HALF_OPEN;
+            probing = false;
+        }
+        if (circuitState == CircuitState.HALF_OPEN) {
+            if (probing) return false;
+            probing = true;
+        }
+        return true;
+    }
+
+    private CompletableFuture<Void> acquireSlot() {
+        synchronized (this) {
+            if (inFlight < Math.max(1, (int) concurrencyLimit)) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> slot = new CompletableFuture<>();
+            waiting.add(slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Libera el lugar de la solicitud terminada, ajusta el límite adaptativo y el circuito, y deja pasar a las
+     * solicitudes en espera que quepan en el nuevo límite.
+     */
+    private void recordOutcome(HttpResponse<?> response, Throwable error) {
+        int status = response == null ? 0 : response.statusCode();
+        boolean overloaded = error instanceof HttpTimeoutException || status == 429 || status == 503;
+        // 429 indica que la API responde, aunque limite: no cuenta como fallo del circuito
+        boolean failed = error != null || status >= 500;
+
+        Deque<CompletableFuture<Void>> released = new ArrayDeque<>();
+        synchronized (this) {
+            inFlight--;
+            concurrencyLimit = overloaded
+                    ? Math.max(settings.minConcurrency(), concurrencyLimit / 2)
+                    : Math.min(settings.maxConcurrency(), concurrencyLimit + 1 / concurrencyLimit);
+
+            if (failed) {
+                consecutiveFailures++;
+                if (circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= settings.failureThreshold()) {
+                    circuitState = CircuitState.OPEN;
+                    openedAt = clock.getAsLong();
+                }
+            } else {
+                consecutiveFailures = 0;
+                circuitState = CircuitState.CLOSED;
+            }
+            probing = false;
+
+            while (!waiting.isEmpty() && inFlight < Math.max(1, (int) concurrencyLimit)) {
+                inFlight++;
+                released.add(waiting.poll());
+            }
+        }
+        released.forEach(slot -> slot.complete(null));
+    }
+
+    /**
+     * Resultado de un intento.
+     */
+    private record Outcome<T>(HttpResponse<T> response, Throwable error) {
+
+        boolean isRetryable() {
+            if (error != null) return error instanceof IOException;
+            int status = response.statusCode();
+            return status == 429 || status >= 500;
+        }
+
+        String reason() {
+            if (error instanceof HttpTimeoutException) return "timeout";
+            return error != null ? "error" : String.valueOf(response.statusCode());
+        }
+
+        /**
+         * Cierra el cuerpo de una respuesta que no se va a usar, si es un flujo.
+         */
+        void discard() {
+            if (response != null && response.body() instanceof InputStream body) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    // El intento ya se descartó
+                }
+            }
+        }
+    }
+}
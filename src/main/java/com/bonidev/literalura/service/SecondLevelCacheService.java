@@ -0,0 +1,156 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.model.PersonEntity;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Servicio que mantiene coherente la caché de segundo nivel de Hibernate y reporta su efectividad.
+ * <p>
+ * Hibernate invalida por sí mismo las entidades y colecciones que modifica y, mediante las marcas de tiempo
+ * por tabla, los resultados de consultas que dependen de ellas. Quedan dos casos que hay que invalidar a
+ * mano: la colección de libros de cada autor (lado inverso de la asociación, que Hibernate no actualiza al
+ * insertar un libro; hoy también la vacía el UPDATE masivo del upsert, pero no conviene depender de eso) y
+ * las escrituras por JDBC de la importación masiva, que Hibernate no ve.
+ */
+@Service
+public class SecondLevelCacheService {
+
+    private static final String PERSON_BOOKS = PersonEntity.class.getName() + ".books";
+    private static final List<String> ENTITY_REGIONS = List.of("book", "book-authors", "book-languages", "person", "person-books");
+    private static final List<String> QUERY_REGIONS = List.of("listings", "default-query-results-region");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Estadísticas de una región de la caché desde el arranque.
+     *
+     * @param region El nombre de la región.
+     * @param hits   Las lecturas encontradas en la caché.
+     * @param misses Las lecturas que tuvieron que ir a la base de datos.
+     * @param puts   Los elementos guardados en la caché.
+     */
+    public record RegionStats(String region, long hits, long misses, long puts) {
+
+        /**
+         * Calcula la proporción de lecturas encontradas en la caché.
+         *
+         * @return La proporción entre 0 y 1, o 0 si no hubo lecturas.
+         */
+        @JsonProperty("hit_ratio")
+        public double hitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-15s aciertos %8d  fallos %8d  guardados %8d  tasa de aciertos %5.1f%%",
+                    region, hits, misses, puts, hitRatio() * 100);
+        }
+    }
+
+    /**
+     * Publica los aciertos, fallos y la tasa de aciertos de cada región como métricas
+     * {@code literalura.cache.*} con la etiqueta {@code region}.
+     */
+    @PostConstruct
+    public void registerMetrics() {
+        for (String region : ENTITY_REGIONS) {
+            register(region, () -> statistics().getDomainDataRegionStatistics(region));
+        }
+        for (String region : QUERY_REGIONS) {
+            register(region, () -> statistics().getQueryRegionStatistics(region));
+        }
+    }
+
+    /**
+     * Descarta de la caché la colección de libros de los autores de un libro recién registrado, una vez
+     * confirmada su transacción.
+     *
+     * @param event El evento del libro registrado.
+     */
+    @TransactionalEventListener
+    public void onBookSaved(BookSavedEvent event) {
+        Cache cache = cache();
+        for (PersonEntity author : event.book().getAuthors()) {
+            if (author.getId() != null) cache.evictCollectionData(PERSON_BOOKS, author.getId());
+        }
+    }
+
+    /**
+     * Vacía la caché tras una importación masiva, que escribe directamente con JDBC.
+     *
+     * @param event El evento de la importación terminada.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        cache().evictAllRegions();
+    }
+
+    /**
+     * Obtiene las estadísticas de cada región de entidades, colecciones y consultas.
+     *
+     * @return Las estadísticas por región; vacío si la caché o las estadísticas de Hibernate están desactivadas.
+     */
+    public List<RegionStats> report() {
+        Statistics statistics = statistics();
+        List<RegionStats> report = new ArrayList<>();
+        if (!statistics.isStatisticsEnabled()) return report;
+
+        for (String region : ENTITY_REGIONS) {
+            CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+            if (stats != null) report.add(of(region, stats));
+        }
+        for (String region : QUERY_REGIONS) {
+            CacheRegionStatistics stats = statistics.getQueryRegionStatistics(region);
+            if (stats != null) report.add(of(region, stats));
+        }
+        return report;
+    }
+
+    private void register(String region, Supplier<CacheRegionStatistics> stats) {
+        Supplier<RegionStats> current = () -> {
+            CacheRegionStatistics regionStats = statistics().isStatisticsEnabled() ? stats.get() : null;
+            return regionStats == null ? new RegionStats(region, 0, 0, 0) : of(region, regionStats);
+        };
+        FunctionCounter.builder("literalura.cache.hits", current, supplier -> supplier.get().hits())
+                .tag("region", region).register(meterRegistry);
+        FunctionCounter.builder("literalura.cache.misses", current, supplier -> supplier.get().misses())
+                .tag("region", region).register(meterRegistry);
+        Gauge.builder("literalura.cache.hit_ratio", current, supplier -> supplier.get().hitRatio())
+                .tag("region", region).register(meterRegistry);
+    }
+
+    private static RegionStats of(String region, CacheRegionStatistics stats) {
+        return new RegionStats(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+}
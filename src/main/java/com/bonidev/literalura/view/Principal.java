@@ -2,13 +2,18 @@ package com.bonidev.literalura.view;
 
 import com.bonidev.literalura.dto.BookDTO;
 import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.BookRepository;
 import com.bonidev.literalura.service.BookApiService;
 import com.bonidev.literalura.service.BookMapper;
 import com.bonidev.literalura.service.BookService;
+import com.bonidev.literalura.service.BookWriteBehindQueue;
 import com.bonidev.literalura.service.PersonService;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Componente principal que gestiona la interfaz de usuario y las interacciones de usuario con la aplicación.
@@ -16,25 +21,35 @@ import java.util.*;
 @Component
 public class Principal {
 
+    private static final int LOCAL_SEARCH_LIMIT = 32;
+    private static final int PAGE_SIZE = 20;
+    private static final int TOP_SIZE = 10;
+    // Un año ("1850") o un rango ("1800-1850"); los años antes de Cristo son negativos
+    private static final Pattern YEAR_RANGE = Pattern.compile("(-?\\d{1,4})(?:\\s*-\\s*(-?\\d{1,4}))?");
+
     private final BookMapper mapper;
     private final BookService bookService;
     private final PersonService personService;
     private final BookApiService bookApiService;
+    private final BookWriteBehindQueue writeBehindQueue;
     private final Scanner scanner = new Scanner(System.in);
 
     /**
      * Constructor de la clase Principal.
      *
-     * @param mapper         Instancia de BookMapper para mapear entre DTO y entidades de libros.
-     * @param bookService    Servicio que gestiona operaciones relacionadas con libros.
-     * @param personService  Servicio que gestiona operaciones relacionadas con personas (autores).
-     * @param bookApiService Servicio que interactúa con una API externa para obtener libros.
+     * @param mapper           Instancia de BookMapper para mapear entre DTO y entidades de libros.
+     * @param bookService      Servicio que gestiona operaciones relacionadas con libros.
+     * @param personService    Servicio que gestiona operaciones relacionadas con personas (autores).
+     * @param bookApiService   Servicio que interactúa con una API externa para obtener libros.
+     * @param writeBehindQueue Cola que registra en segundo plano los libros elegidos por el usuario.
      */
-    public Principal(BookMapper mapper, BookService bookService, PersonService personService, BookApiService bookApiService) {
+    public Principal(BookMapper mapper, BookService bookService, PersonService personService, BookApiService bookApiService,
+                     BookWriteBehindQueue writeBehindQueue) {
         this.mapper = mapper;
         this.bookService = bookService;
         this.personService = personService;
         this.bookApiService = bookApiService;
+        this.writeBehindQueue = writeBehindQueue;
     }
 
     /**
@@ -49,8 +64,10 @@ public class Principal {
                     1. Buscar libro por su título o autor
                     2. Listar libros registrados
                     3. Listar autores registrados
-                    4. Listar autores vivos en un año determinado
+                    4. Listar autores vivos en un año o rango de años
                     5. Listar libros por idioma
+                    6. Mostrar autores vivos por década
+                    7. Mostrar estadísticas de descargas y libros más descargados
                     0. Salir de la aplicación
                     """);
 
@@ -74,6 +91,12 @@ public class Principal {
                 case 5:
                     showBooksByLanguage();
                     break;
+                case 6:
+                    showLivingAuthorsByDecade();
+                    break;
+                case 7:
+                    showDownloadStats();
+                    break;
                 case 0:
                     System.out.println("\nSaliendo de la aplicación...");
                     return;
@@ -84,18 +107,33 @@ public class Principal {
     }
 
     /**
-     * Busca libros por título utilizando un servicio de API externa y los muestra al usuario.
+     * Busca libros por título o autor, primero en el catálogo local y, si no hay coincidencias, utilizando un
+     * servicio de API externa, y los muestra al usuario.
      */
     private void searchByTitle() {
         System.out.print("\nIngrese el nombre del libro o autor: ");
-        String searchTerm = scanner.nextLine().toLowerCase().replace(" ", "%20");
+        String searchTerm = scanner.nextLine();
 
-        List<BookDTO> bookDTOs = bookApiService.fetchBooksFromApi(searchTerm);
+        List<BookDTO> bookDTOs = bookService.searchBooks(searchTerm, LOCAL_SEARCH_LIMIT)
+                .stream()
+                .map(mapper::toDTO)
+                .toList();
+        boolean fromApi = bookDTOs.isEmpty();
+        if (fromApi) {
+            try {
+                bookDTOs = bookApiService.fetchBooksFromApi(searchTerm);
+            } catch (RuntimeException e) {
+                // Un error de la API no debe cerrar el menú
+                System.out.println("\nNo se pudo consultar la API: " + e.getMessage() + "\n");
+                return;
+            }
+        }
 
         if (!bookDTOs.isEmpty()) {
-            System.out.println("\n" + (bookDTOs.size() == 1 ? "El libro que coincide" : "Los libros que coinciden") + " con su búsqueda:");
+            System.out.println("\n" + (bookDTOs.size() == 1 ? "El libro que coincide" : "Los libros que coinciden") + " con su búsqueda"
+                    + (fromApi ? ":" : " (catálogo local):"));
             System.out.println("índice. titulo [idioma(s)] <autor(es)>");
-            Set<BookDTO> bookDTOSet = new HashSet<>(bookDTOs);
+            Set<BookDTO> bookDTOSet = new LinkedHashSet<>(bookDTOs);
             List<BookDTO> bookDTOList = new ArrayList<>(bookDTOSet);
 
             int n = 1;
@@ -122,7 +160,10 @@ public class Principal {
                     continue;
                 }
                 System.out.println(bookDTOList.get(option - 1));
-                bookService.saveBook(mapper.toEntity(bookDTOList.get(option - 1)));
+                if (fromApi) {
+                    // Se registra en segundo plano para no hacer esperar al usuario
+                    writeBehindQueue.submit(bookDTOList.get(option - 1));
+                }
                 break;
             }
         } else {
@@ -131,42 +172,49 @@ public class Principal {
     }
 
     /**
-     * Muestra todos los libros registrados en la base de datos.
+     * Muestra todos los libros registrados en la base de datos, página por página.
      */
     private void showAllBooks() {
-        List<BookDTO> books = bookService.getAllBooks()
-                .stream()
-                .map(mapper::toDTO)
-                .toList();
-
-        if (!books.isEmpty()) {
+        int page = 0;
+        Slice<BookDTO> books;
+        do {
+            books = bookService.getBooksPage(page++, PAGE_SIZE);
             books.forEach(System.out::println);
-        } else {
+        } while (books.hasNext());
+
+        if (page == 1 && !books.hasContent()) {
             System.out.println("No se tienen libros registrados...\n");
         }
     }
 
     /**
-     * Muestra todos los autores registrados en la base de datos.
+     * Muestra todos los autores registrados en la base de datos, página por página.
      */
     private void showAllAuthors() {
-        List<PersonEntity> authors = personService.getAllPersons();
-
-        if (!authors.isEmpty()) {
+        int page = 0;
+        Slice<PersonEntity> authors;
+        do {
+            authors = personService.getPersonsPage(page++, PAGE_SIZE);
             authors.forEach(System.out::println);
-        } else {
+        } while (authors.hasNext());
+
+        if (page == 1 && !authors.hasContent()) {
             System.out.println("No se tienen autores registrados...\n");
         }
     }
 
     /**
-     * Muestra todos los autores que estaban vivos en un año determinado, según la base de datos.
+     * Muestra todos los autores que estaban vivos en un año determinado, o en algún momento de un rango de años
+     * ("1800-1850"), según el catálogo registrado.
      */
     private void showAllLivingAuthorsInAGivenYear() {
-        System.out.print("\nIngrese el año que desea buscar autor(es) vivo(s): ");
-        int yearRequested = scanner.nextInt();
-        scanner.nextLine();
-        List<PersonEntity> personsAlive = personService.getLivingPersonsInAGivenYear(yearRequested);
+        System.out.print("\nIngrese el año o rango de años (ej. 1850 o 1800-1850) que desea buscar autor(es) vivo(s): ");
+        int[] range = readYearRange();
+        if (range == null) return;
+
+        List<PersonEntity> personsAlive = range[0] == range[1]
+                ? personService.getLivingPersonsInAGivenYear(range[0])
+                : personService.getLivingPersonsBetween(range[0], range[1]);
 
         if (!personsAlive.isEmpty()) {
             personsAlive.forEach(System.out::println);
@@ -175,6 +223,79 @@ public class Principal {
         }
     }
 
+    /**
+     * Muestra cuántos autores registrados estaban vivos en cada década de un rango de años.
+     */
+    private void showLivingAuthorsByDecade() {
+        System.out.print("\nIngrese el rango de años (ej. 1700-1900): ");
+        int[] range = readYearRange();
+        if (range == null) return;
+
+        Map<Integer, Integer> histogram = personService.countLivingPersonsByDecade(range[0], range[1]);
+        int max = histogram.values().stream().max(Integer::compare).orElse(0);
+        if (max == 0) {
+            System.out.println("No se encontraron autores vivos en el rango introducido...\n");
+            return;
+        }
+
+        System.out.println("\nDécada  Autores vivos");
+        histogram.forEach((decade, count) -> System.out.printf("%5ds  %5d %s%n",
+                decade, count, "#".repeat((int) Math.ceil(40.0 * count / max))));
+        System.out.println();
+    }
+
+    /**
+     * Muestra las estadísticas de descargas del catálogo y los libros más descargados, en total o en un idioma.
+     */
+    private void showDownloadStats() {
+        BookRepository.DownloadStats stats = bookService.getDownloadStats();
+        if (stats.getBooks() == 0) {
+            System.out.println("No hay libros registrados...\n");
+            return;
+        }
+
+        System.out.printf("%nLibros registrados: %d%nDescargas totales: %d%n", stats.getBooks(), stats.getTotal());
+        System.out.printf("Mínimo: %d  Máximo: %d  Promedio: %.1f%n", stats.getMinimum(), stats.getMaximum(), stats.getAverage());
+        System.out.printf("Percentiles: p50 %.0f  p90 %.0f  p99 %.0f%n%n", stats.getMedian(), stats.getP90(), stats.getP99());
+
+        System.out.print("Código de idioma para el ranking (vacío para todo el catálogo): ");
+        String language = scanner.nextLine().trim().toLowerCase();
+        if (!language.isEmpty() && language.length() != 2) {
+            System.out.println("El código debe tener exactamente dos caracteres...\n");
+            return;
+        }
+
+        List<BookDTO> top = language.isEmpty()
+                ? bookService.getTopBooks(TOP_SIZE)
+                : bookService.getTopBooksByLanguage(language, TOP_SIZE);
+        if (top.isEmpty()) {
+            System.out.println("No se encontraron libros con ese idioma...\n");
+            return;
+        }
+        for (int i = 0; i < top.size(); i++) {
+            System.out.printf("%2d. %s (%d descargas)%n", i + 1, top.get(i).title(), top.get(i).downloadCount());
+        }
+        System.out.println();
+    }
+
+    /**
+     * Lee un año ("1850") o un rango de años ("1800-1850") ingresado por el usuario.
+     *
+     * @return El primer y el último año del rango, o null si la entrada no es válida.
+     */
+    private int[] readYearRange() {
+        String input = scanner.nextLine().trim();
+        Matcher matcher = YEAR_RANGE.matcher(input);
+        if (!matcher.matches()) {
+            System.out.println("Entrada no válida. Ingrese un año o un rango de años...\n");
+            return null;
+        }
+
+        int from = Integer.parseInt(matcher.group(1));
+        int to = matcher.group(2) == null ? from : Integer.parseInt(matcher.group(2));
+        return new int[]{Math.min(from, to), Math.max(from, to)};
+    }
+
     /**
      * Muestra todos los libros que están disponibles en un idioma específico, según la base de datos.
      */
@@ -185,24 +306,39 @@ public class Principal {
                 en -> Inglés
                 fr -> Francés
                 pt -> Portugués
+                Combine códigos con "+" para libros en todos los idiomas (es+en)
+                o con "," para libros en alguno de ellos (fr,pt).
                 """);
+        Map<String, Integer> counts = bookService.countBooksByLanguage();
+        if (!counts.isEmpty()) {
+            StringJoiner registered = new StringJoiner(", ", "Idiomas registrados: ", "\n");
+            counts.forEach((language, count) -> registered.add(language + " (" + count + ")"));
+            System.out.println(registered);
+        }
         System.out.print("Elige el código idioma del libro a buscar: ");
-        String language = scanner.nextLine().toLowerCase();
+        String input = scanner.nextLine().toLowerCase().replace(" ", "");
 
-        if (language.length() != 2) {
-            System.out.println("El código debe tener exactamente dos caracteres...\n");
+        boolean matchAll = !input.contains(",");
+        List<String> languages = List.of(input.split(matchAll ? "\\+" : ","));
+        if (input.contains(",") && input.contains("+")) {
+            System.out.println("No se pueden combinar \"+\" y \",\" en la misma búsqueda...\n");
+            return;
+        }
+        if (languages.stream().anyMatch(language -> language.length() != 2)) {
+            System.out.println("Cada código debe tener exactamente dos caracteres...\n");
             return;
         }
 
-        List<BookDTO> books = bookService.getBooksByLanguage(language)
-                .stream()
-                .map(mapper::toDTO)
-                .toList();
-
-        if (!books.isEmpty()) {
+        int page = 0;
+        Slice<BookDTO> books;
+        do {
+            books = bookService.getBooksByLanguagesPage(languages, matchAll, page++, PAGE_SIZE);
             books.forEach(System.out::println);
-        } else {
+        } while (books.hasNext());
+
+        if (page == 1 && !books.hasContent()) {
             System.out.println("No se encontraron libros con ese idioma...\n");
         }
     }
+
 }
@@ -0,0 +1,33 @@
+package com.bonidev.literalura.web;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Representación JSON de un autor en la API REST.
+ *
+ * @param name      El nombre del autor.
+ * @param birthYear El año de nacimiento del autor.
+ * @param deathYear El año de fallecimiento del autor.
+ * @param books     Los títulos de los libros registrados del autor.
+ */
+public record AuthorView(
+        String name,
+        @JsonProperty("birth_year") int birthYear,
+        @JsonProperty("death_year") int deathYear,
+        List<String> books) {
+
+    /**
+     * Crea la representación de un autor a partir de su entidad. Los libros del autor deben estar cargados.
+     *
+     * @param person La entidad del autor.
+     * @return La representación JSON del autor.
+     */
+    public static AuthorView of(PersonEntity person) {
+        return new AuthorView(person.getName(), person.getBirthYear(), person.getDeathYear(),
+                person.getBooks().stream().map(BookEntity::getTitle).sorted().toList());
+    }
+}
@@ -0,0 +1,35 @@
+package com.bonidev.literalura.web;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Representación JSON de un libro en la API REST.
+ *
+ * @param title         El título del libro.
+ * @param authors       Los autores del libro.
+ * @param languages     Los códigos de idioma del libro.
+ * @param htmlLink      El enlace HTML del libro, o null si no tiene.
+ * @param downloadCount El número de descargas del libro.
+ */
+public record BookView(
+        String title,
+        List<PersonDTO> authors,
+        List<String> languages,
+        @JsonProperty("html_link") String htmlLink,
+        @JsonProperty("download_count") int downloadCount) {
+
+    /**
+     * Crea la representación de un libro a partir de su DTO.
+     *
+     * @param book El DTO del libro.
+     * @return La representación JSON del libro.
+     */
+    public static BookView of(BookDTO book) {
+        return new BookView(book.title(), List.copyOf(book.authors()), List.copyOf(book.languages()),
+                book.htmlLink(), book.downloadCount());
+    }
+}
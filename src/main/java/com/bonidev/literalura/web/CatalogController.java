@@ -0,0 +1,224 @@
+package com.bonidev.literalura.web;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.index.TopBooksIndex;
+import com.bonidev.literalura.repository.BookRepository;
+import com.bonidev.literalura.service.BookApiService;
+import com.bonidev.literalura.service.BookMapper;
+import com.bonidev.literalura.service.BookService;
+import com.bonidev.literalura.service.PersonService;
+import com.bonidev.literalura.service.SecondLevelCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * API REST de solo lectura sobre el catálogo: las mismas consultas que el menú de consola, paginadas.
+ */
+@RestController
+@RequestMapping("/api")
+public class CatalogController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_HISTOGRAM_YEARS = 10_000;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private BookApiService bookApiService;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private SecondLevelCacheService cacheService;
+
+    /**
+     * Busca libros por título o autor, primero en el catálogo local y, si no hay coincidencias, en la API de
+     * libros. La consulta a la API no ocupa un hilo mientras espera la respuesta.
+     *
+     * @param query La consulta de texto libre.
+     * @param limit El número máximo de resultados locales.
+     * @return Los libros encontrados.
+     */
+    @GetMapping("/books/search")
+    public CompletableFuture<List<BookView>> searchBooks(@RequestParam("q") String query,
+                                                         @RequestParam(defaultValue = "32") int limit) {
+        if (query.isBlank()) throw badRequest("La consulta no puede estar vacía");
+        checkRange("limit", limit, 1, MAX_SEARCH_LIMIT);
+
+        List<BookView> local = bookService.searchBooks(query, limit).stream()
+                .map(book -> BookView.of(bookMapper.toDTO(book)))
+                .toList();
+        if (!local.isEmpty()) return CompletableFuture.completedFuture(local);
+
+        return bookApiService.fetchBooksFromApiAsync(query)
+                .thenApply(books -> books.stream().map(BookView::of).toList());
+    }
+
+    /**
+     * Lista los libros registrados, ordenados por identificador.
+     *
+     * @param page El número de página, empezando en 0.
+     * @param size El número de libros por página.
+     * @return La página de libros.
+     */
+    @GetMapping("/books")
+    public PageView<BookView> getBooks(@RequestParam(defaultValue = "0") int page,
+                                       @RequestParam(defaultValue = "20") int size) {
+        checkPage(page, size);
+        return PageView.of(bookService.getBooksPage(page, size), BookView::of);
+    }
+
+    /**
+     * Lista los libros disponibles en varios idiomas.
+     *
+     * @param languages Los códigos de idioma separados por comas.
+     * @param match     "all" para exigir todos los idiomas o "any" para aceptar cualquiera.
+     * @param page      El número de página, empezando en 0.
+     * @param size      El número de libros por página.
+     * @return La página de libros.
+     */
+    @GetMapping("/books/by-language")
+    public PageView<BookView> getBooksByLanguage(@RequestParam("languages") String languages,
+                                                 @RequestParam(defaultValue = "all") String match,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        checkPage(page, size);
+        if (!match.equals("all") && !match.equals("any")) throw badRequest("match debe ser \"all\" o \"any\"");
+
+        List<String> codes = Arrays.stream(languages.split(",")).map(String::trim).filter(code -> !code.isEmpty()).toList();
+        if (codes.isEmpty() || codes.stream().anyMatch(code -> code.length() != 2)) {
+            throw badRequest("Cada código de idioma debe tener exactamente dos caracteres");
+        }
+        return PageView.of(bookService.getBooksByLanguagesPage(codes, match.equals("all"), page, size), BookView::of);
+    }
+
+    /**
+     * Cuenta los libros registrados por idioma.
+     *
+     * @return El número de libros por código de idioma.
+     */
+    @GetMapping("/books/languages")
+    public Map<String, Integer> countBooksByLanguage() {
+        return bookService.countBooksByLanguage();
+    }
+
+    /**
+     * Calcula las estadísticas de descargas del catálogo.
+     *
+     * @return El número de libros y el mínimo, máximo, promedio, total y percentiles de descargas.
+     */
+    @GetMapping("/books/stats")
+    public BookRepository.DownloadStats getDownloadStats() {
+        return bookService.getDownloadStats();
+    }
+
+    /**
+     * Lista los libros más descargados, en todo el catálogo, en un idioma o de un autor.
+     *
+     * @param language El código de idioma; opcional.
+     * @param author   El identificador del autor; opcional y excluyente con el idioma.
+     * @param limit    El número de libros.
+     * @return Los libros, del más al menos descargado.
+     */
+    @GetMapping("/books/top")
+    public List<BookView> getTopBooks(@RequestParam(required = false) String language,
+                                      @RequestParam(required = false) Long author,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        checkRange("limit", limit, 1, TopBooksIndex.CAPACITY);
+        if (language != null && author != null) throw badRequest("Indique language o author, no ambos");
+        if (language != null && language.trim().length() != 2) throw badRequest("El código de idioma debe tener exactamente dos caracteres");
+
+        List<BookDTO> books = language != null ? bookService.getTopBooksByLanguage(language, limit)
+                : author != null ? bookService.getTopBooksByAuthor(author, limit)
+                : bookService.getTopBooks(limit);
+        return books.stream().map(BookView::of).toList();
+    }
+
+    /**
+     * Lista los autores registrados, ordenados por identificador.
+     *
+     * @param page El número de página, empezando en 0.
+     * @param size El número de autores por página.
+     * @return La página de autores.
+     */
+    @GetMapping("/authors")
+    public PageView<AuthorView> getAuthors(@RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "20") int size) {
+        checkPage(page, size);
+        return PageView.of(personService.getPersonsPage(page, size), AuthorView::of);
+    }
+
+    /**
+     * Lista los autores vivos en un año, o en algún momento de un rango de años.
+     *
+     * @param year El año; si se indica, reemplaza al rango.
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return Los autores vivos, ordenados por identificador.
+     */
+    @GetMapping("/authors/alive")
+    public List<AuthorView> getLivingAuthors(@RequestParam(required = false) Integer year,
+                                             @RequestParam(required = false) Integer from,
+                                             @RequestParam(required = false) Integer to) {
+        if (year != null) {
+            return personService.getLivingPersonsInAGivenYear(year).stream().map(AuthorView::of).toList();
+        }
+        if (from == null || to == null || from > to) throw badRequest("Indique year, o from y to con from <= to");
+        return personService.getLivingPersonsBetween(from, to).stream().map(AuthorView::of).toList();
+    }
+
+    /**
+     * Cuenta los autores vivos en cada década de un rango de años.
+     *
+     * @param from El primer año del rango.
+     * @param to   El último año del rango.
+     * @return El número de autores vivos por década.
+     */
+    @GetMapping("/authors/alive/by-decade")
+    public Map<Integer, Integer> countLivingAuthorsByDecade(@RequestParam int from, @RequestParam int to) {
+        if (from > to) throw badRequest("from debe ser menor o igual que to");
+        if ((long) to - from > MAX_HISTOGRAM_YEARS) throw badRequest("El rango no puede superar " + MAX_HISTOGRAM_YEARS + " años");
+        return personService.countLivingPersonsByDecade(from, to);
+    }
+
+    /**
+     * Reporta la efectividad de la caché de segundo nivel por región.
+     *
+     * @return Los aciertos, fallos, elementos guardados y tasa de aciertos de cada región.
+     */
+    @GetMapping("/cache")
+    public List<SecondLevelCacheService.RegionStats> getCacheStats() {
+        return cacheService.report();
+    }
+
+    private static void checkPage(int page, int size) {
+        checkRange("page", page, 0, Integer.MAX_VALUE);
+        checkRange("size", size, 1, MAX_PAGE_SIZE);
+    }
+
+    private static void checkRange(String name, int value, int min, int max) {
+        if (value < min || value > max) {
+            throw badRequest(name + " debe estar entre " + min + " y " + max);
+        }
+    }
+
+    private static ResponseStatusException badRequest(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bonidev.literalura.web;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados de la API REST. No incluye el total de elementos, para no contar el catálogo en
+ * cada solicitud; {@code has_next} indica si existe una página siguiente.
+ *
+ * @param content El contenido de la página.
+ * @param page    El número de página, empezando en 0.
+ * @param size    El tamaño de página solicitado.
+ * @param hasNext Si existe una página siguiente.
+ * @param <T>     El tipo de los elementos.
+ */
+public record PageView<T>(
+        List<T> content,
+        int page,
+        int size,
+        @JsonProperty("has_next") boolean hasNext) {
+
+    /**
+     * Crea una página a partir de una porción de resultados, convirtiendo cada elemento.
+     *
+     * @param slice  La porción de resultados.
+     * @param mapper La conversión de cada elemento.
+     * @param <S>    El tipo de los elementos de la porción.
+     * @param <T>    El tipo de los elementos de la página.
+     * @return La página.
+     */
+    public static <S, T> PageView<T> of(Slice<S> slice, Function<S, T> mapper) {
+        return new PageView<>(slice.getContent().stream().map(mapper).toList(),
+                slice.getNumber(), slice.getSize(), slice.hasNext());
+    }
+}
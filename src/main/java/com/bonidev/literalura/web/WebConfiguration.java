@@ -0,0 +1,32 @@
+package com.bonidev.literalura.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * Configuración del modo servidor.
+ */
+@Configuration
+@ConditionalOnWebApplication
+public class WebConfiguration {
+
+    /**
+     * Calcula un ETag a partir del cuerpo de cada respuesta de la API y responde 304 si coincide con el
+     * encabezado If-None-Match de la solicitud, sin volver a enviar el cuerpo. El ETag es débil porque Tomcat
+     * no comprime las respuestas con un ETag fuerte.
+     *
+     * @return El registro del filtro.
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> etagFilter() {
+        ShallowEtagHeaderFilter filter = new ShallowEtagHeaderFilter();
+        filter.setWriteWeakETag(true);
+
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bonidev.literalura;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Configuración mínima para las pruebas de la capa de persistencia sobre H2, sin levantar el menú de consola.
+ */
+@Configuration
+@EntityScan(basePackageClasses = BookEntity.class)
+@EnableJpaRepositories(basePackageClasses = BookRepository.class)
+public class JpaTestConfiguration {
+
+    /**
+     * Registro de métricas en memoria para los servicios instrumentados.
+     *
+     * @return El registro de métricas.
+     */
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}
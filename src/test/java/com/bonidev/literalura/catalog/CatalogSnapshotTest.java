@@ -0,0 +1,125 @@
+package com.bonidev.literalura.catalog;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas del formato binario de la instantánea y del catálogo en memoria, sin base de datos.
+ */
+class CatalogSnapshotTest {
+
+    private static final int BOOKS = 40;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void everyColumnSurvivesTheRoundTrip() throws IOException {
+        CatalogSnapshot snapshot = snapshot();
+        Path file = directory.resolve("catalogo.snap");
+        long bytes = snapshot.write(file);
+        assertEquals(Files.size(file), bytes);
+
+        CatalogSnapshot read = CatalogSnapshot.read(file);
+        assertEquals(snapshot.languages(), read.languages());
+        assertEquals(snapshot.names(), read.names());
+        assertArrayEquals(snapshot.personIds(), read.personIds());
+        assertArrayEquals(snapshot.personNames(), read.personNames());
+        assertArrayEquals(snapshot.birthYears(), read.birthYears());
+        assertArrayEquals(snapshot.deathYears(), read.deathYears());
+        assertArrayEquals(snapshot.bookIds(), read.bookIds());
+        assertArrayEquals(snapshot.titles(), read.titles());
+        assertArrayEquals(snapshot.htmlLinks(), read.htmlLinks());
+        assertArrayEquals(snapshot.downloadCounts(), read.downloadCounts());
+        assertArrayEquals(snapshot.bookAuthors(), read.bookAuthors());
+        assertArrayEquals(snapshot.bookLanguages(), read.bookLanguages());
+    }
+
+    @Test
+    void snapshotCatalogLinksBooksAndAuthors() {
+        ReadOnlyCatalog catalog = new SnapshotCatalog(snapshot());
+
+        List<BookEntity> books = catalog.getAllBooks();
+        assertEquals(BOOKS, books.size());
+        BookEntity first = books.get(0);
+        assertEquals("Libro 0", first.getTitle());
+        assertEquals(Set.of("es", "fr"), first.getLanguages());
+        assertNull(first.getHtmlLink());
+        assertEquals(300, books.get(3).getDownloadCount());
+
+        PersonEntity nunez = first.getAuthors().stream().filter(author -> author.getBirthYear() == -50).findFirst().orElseThrow();
+        assertEquals("Núñez, José", nunez.getName());
+        assertEquals(BOOKS, nunez.getBooks().size());
+        assertEquals(14, catalog.getBooksByLanguage("es").size());
+        assertEquals(6, catalog.getLivingPersonsBetween(1750, 1750).size());
+        assertEquals(Map.of(-60, 0, -50, 1, -40, 1), catalog.countLivingPersonsByDecade(-55, -31));
+        assertEquals(Map.of(1750, 6, 1760, 7), catalog.countLivingPersonsByDecade(1755, 1765));
+    }
+
+    @Test
+    void anyFlippedBitOrTruncationIsRejected() {
+        byte[] bytes = snapshot().encode();
+
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] damaged = bytes.clone();
+            damaged[i] ^= 0x10;
+            assertThrows(IOException.class, () -> CatalogSnapshot.decode(damaged), "Byte " + i);
+        }
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> CatalogSnapshot.decode(truncated), "Longitud " + length);
+        }
+    }
+
+    /**
+     * El mismo catálogo que CatalogSnapshotServiceTest registra en la base de datos: 40 libros de diez
+     * autores, y en todos figura además una misma persona nacida antes de Cristo.
+     */
+    private static CatalogSnapshot snapshot() {
+        List<String> names = new ArrayList<>();
+        long[] personIds = new long[11];
+        int[] personNames = new int[11];
+        int[] birthYears = new int[11];
+        int[] deathYears = new int[11];
+        for (int i = 0; i < 11; i++) {
+            names.add(i < 10 ? "Autor " + i : "Núñez, José");
+            personIds[i] = i + 1;
+            personNames[i] = i;
+            birthYears[i] = i < 10 ? 1700 + 10 * i : -50;
+            deathYears[i] = i < 10 ? 1760 + 10 * i : 20;
+        }
+
+        long[] bookIds = new long[BOOKS];
+        String[] titles = new String[BOOKS];
+        String[] htmlLinks = new String[BOOKS];
+        int[] downloadCounts = new int[BOOKS];
+        int[][] bookAuthors = new int[BOOKS][];
+        int[][] bookLanguages = new int[BOOKS][];
+        for (int i = 0; i < BOOKS; i++) {
+            bookIds[i] = 100 + 3L * i;
+            titles[i] = "Libro " + i;
+            htmlLinks[i] = i % 4 == 0 ? null : "https://example.org/" + i;
+            downloadCounts[i] = i * 100;
+            bookAuthors[i] = new int[]{i % 10, 10};
+            bookLanguages[i] = i % 3 == 0 ? new int[]{1, 2} : new int[]{0};
+        }
+        return new CatalogSnapshot(List.of("en", "es", "fr"), names, personIds, personNames, birthYears, deathYears,
+                bookIds, titles, htmlLinks, downloadCounts, bookAuthors, bookLanguages);
+    }
+}
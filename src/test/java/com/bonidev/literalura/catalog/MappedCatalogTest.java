@@ -0,0 +1,162 @@
+package com.bonidev.literalura.catalog;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara el catálogo mapeado con el catálogo en memoria construido a partir de la misma instantánea.
+ */
+class MappedCatalogTest {
+
+    private static final List<String> LANGUAGES = List.of("en", "es", "fr", "zh");
+    private static final int PERSONS = 300;
+    private static final int BOOKS = 2_000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void listingsMatchTheInMemoryCatalog() throws IOException {
+        CatalogSnapshot snapshot = randomSnapshot(new Random(11));
+        Path file = directory.resolve("catalogo.map");
+        long bytes = MappedCatalog.write(snapshot, file);
+        assertEquals(Files.size(file), bytes);
+
+        ReadOnlyCatalog expected = new SnapshotCatalog(snapshot);
+        ReadOnlyCatalog mapped = MappedCatalog.open(file);
+
+        assertEquals(BOOKS, mapped.bookCount());
+        assertEquals(PERSONS, mapped.personCount());
+        assertEquals(describeBooks(expected.getAllBooks()), describeBooks(mapped.getAllBooks()));
+        assertEquals(describeBooks(expected.getBooks(100, 150)), describeBooks(mapped.getBooks(100, 150)));
+        assertEquals(describePersons(expected.getAllPersons()), describePersons(mapped.getAllPersons()));
+        for (String language : List.of("en", "es", "zh", "xx")) {
+            assertEquals(describeBooks(expected.getBooksByLanguage(language)), describeBooks(mapped.getBooksByLanguage(language)));
+        }
+        for (boolean matchAll : new boolean[]{true, false}) {
+            List<String> languages = List.of("es", "fr");
+            assertEquals(describeBooks(expected.getBooksByLanguages(languages, matchAll, 20, 60)),
+                    describeBooks(mapped.getBooksByLanguages(languages, matchAll, 20, 60)));
+        }
+        assertTrue(mapped.getBooksByLanguages(List.of("es", "xx"), true, 0, 10).isEmpty());
+        for (int year : new int[]{1500, 1650, 1800}) {
+            assertEquals(describePersons(expected.getLivingPersonsBetween(year, year + 20)),
+                    describePersons(mapped.getLivingPersonsBetween(year, year + 20)));
+        }
+        assertEquals(expected.countLivingPersonsByDecade(1395, 1905), mapped.countLivingPersonsByDecade(1395, 1905));
+    }
+
+    @Test
+    void nullLinksAndNegativeYearsSurviveTheRoundTrip() throws IOException {
+        CatalogSnapshot snapshot = new CatalogSnapshot(List.of("la"), List.of("Vergilius Maro, Publius"),
+                new long[]{5}, new int[]{0}, new int[]{-70}, new int[]{-19},
+                new long[]{227}, new String[]{"Aeneis"}, new String[]{null}, new int[]{42},
+                new int[][]{{0}}, new int[][]{{0}});
+        Path file = directory.resolve("catalogo.map");
+        MappedCatalog.write(snapshot, file);
+
+        BookEntity book = MappedCatalog.open(file).getAllBooks().get(0);
+        assertEquals(227L, book.getId());
+        assertNull(book.getHtmlLink());
+        PersonEntity author = book.getAuthors().iterator().next();
+        assertEquals(-70, author.getBirthYear());
+        assertEquals(List.of("Vergilius Maro, Publius"), MappedCatalog.open(file).getLivingPersonsBetween(-30, -30).stream().map(PersonEntity::getName).toList());
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = directory.resolve("catalogo.map");
+        MappedCatalog.write(randomSnapshot(new Random(3)), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> MappedCatalog.open(file));
+    }
+
+    @Test
+    void recordsPointingOutsideTheFileAreRejectedOnOpen() throws IOException {
+        Path file = directory.resolve("catalogo.map");
+        MappedCatalog.write(randomSnapshot(new Random(5)), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int firstBook = header.getInt(24);
+        int refsOffset = header.getInt(32);
+
+        // Longitud del título del primer libro más allá del final del archivo
+        assertRejected(file, bytes, firstBook + 12, bytes.length);
+        // Referencias de idiomas del primer libro fuera del arreglo de referencias
+        assertRejected(file, bytes, firstBook + 36, (header.getInt(36) - refsOffset) / Integer.BYTES);
+        // Primera referencia (un autor o idioma del primer libro) hacia un registro inexistente
+        assertRejected(file, bytes, refsOffset, PERSONS + LANGUAGES.size());
+    }
+
+    private static void assertRejected(Path file, byte[] bytes, int position, int value) throws IOException {
+        byte[] damaged = bytes.clone();
+        ByteBuffer.wrap(damaged).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        Files.write(file, damaged);
+
+        assertThrows(IOException.class, () -> MappedCatalog.open(file));
+    }
+
+    private static CatalogSnapshot randomSnapshot(Random random) {
+        List<String> names = List.of("Cervantes, Miguel de", "Austen, Jane", "Núñez, José", "曹雪芹", "Twain, Mark");
+        long[] personIds = new long[PERSONS];
+        int[] personNames = new int[PERSONS];
+        int[] birthYears = new int[PERSONS];
+        int[] deathYears = new int[PERSONS];
+        for (int i = 0; i < PERSONS; i++) {
+            personIds[i] = 1 + 3L * i;
+            personNames[i] = random.nextInt(names.size());
+            birthYears[i] = 1400 + random.nextInt(500);
+            deathYears[i] = birthYears[i] + 20 + random.nextInt(70);
+        }
+
+        long[] bookIds = new long[BOOKS];
+        String[] titles = new String[BOOKS];
+        String[] htmlLinks = new String[BOOKS];
+        int[] downloadCounts = new int[BOOKS];
+        int[][] bookAuthors = new int[BOOKS][];
+        int[][] bookLanguages = new int[BOOKS][];
+        for (int i = 0; i < BOOKS; i++) {
+            bookIds[i] = 10 + 7L * i;
+            titles[i] = "Libro " + i;
+            htmlLinks[i] = random.nextInt(5) == 0 ? null : "https://example.org/" + i;
+            downloadCounts[i] = random.nextInt(100_000);
+            bookAuthors[i] = random.ints(random.nextInt(3), 0, PERSONS).distinct().sorted().toArray();
+            bookLanguages[i] = random.ints(1 + random.nextInt(2), 0, LANGUAGES.size()).distinct().sorted().toArray();
+        }
+        return new CatalogSnapshot(LANGUAGES, names, personIds, personNames, birthYears, deathYears,
+                bookIds, titles, htmlLinks, downloadCounts, bookAuthors, bookLanguages);
+    }
+
+    private static List<String> describeBooks(List<BookEntity> books) {
+        return describe(books, book -> book.getId() + "|" + book.getTitle() + "|" + book.getHtmlLink() + "|" + book.getDownloadCount()
+                + "|" + book.getLanguages() + "|" + book.getAuthors().stream().map(PersonEntity::getId).sorted().toList());
+    }
+
+    private static List<String> describePersons(List<PersonEntity> persons) {
+        return describe(persons, person -> person.getId() + "|" + person.getName() + "|" + person.getBirthYear() + "|" + person.getDeathYear()
+                + "|" + person.getBooks().stream().map(BookEntity::getId).sorted().toList());
+    }
+
+    private static <T> List<String> describe(List<T> values, Function<T, String> description) {
+        return values.stream().map(description).toList();
+    }
+}
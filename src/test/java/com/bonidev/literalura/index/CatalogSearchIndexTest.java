@@ -0,0 +1,111 @@
+package com.bonidev.literalura.index;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.BookRepository;
+import com.bonidev.literalura.service.BookSavedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de la actualización incremental del índice de búsqueda mientras se construye.
+ */
+class CatalogSearchIndexTest {
+
+    @Test
+    void aBookSavedWhileTheIndexLoadsIsNotLost() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // La carga lee la base de datos antes de que se confirme el libro 2
+        CatalogSearchIndex index = index(() -> {
+            loading.countDown();
+            awaitQuietly(release);
+            return List.of(row(1L, "Don Quijote", "Cervantes Saavedra, Miguel de"));
+        });
+
+        CompletableFuture<List<Long>> firstSearch = CompletableFuture.supplyAsync(() -> index.search("quijote", 10));
+        loading.await();
+        Thread saver = new Thread(() -> index.onBookSaved(new BookSavedEvent(book(2L, "El Quijote apócrifo"))));
+        saver.start();
+        while (saver.isAlive() && saver.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        release.countDown();
+        saver.join();
+
+        firstSearch.get();
+        assertEquals(List.of(1L, 2L), index.search("quijote", 10));
+    }
+
+    @Test
+    void aBookAlreadyReadByTheLoadIsNotIndexedTwice() {
+        // El libro 2 coincide por título y por autor, así que pesa más que el 1
+        CatalogSearchIndex index = index(() -> List.of(row(1L, "Emma", null), row(2L, "Emma", "Tennant, Emma")));
+        assertEquals(List.of(2L, 1L), index.search("emma", 10));
+
+        // El evento del libro 1 llega después de que la carga ya lo leyó: su peso no debe duplicarse
+        index.onBookSaved(new BookSavedEvent(book(1L, "Emma")));
+
+        assertEquals(List.of(2L, 1L), index.search("emma", 10));
+    }
+
+    @Test
+    void eventsBeforeTheFirstSearchAreLeftToTheLoad() {
+        CatalogSearchIndex index = index(() -> List.of(row(1L, "Persuasion", null)));
+
+        index.onBookSaved(new BookSavedEvent(book(9L, "Persuasion")));
+
+        assertEquals(List.of(1L), index.search("persuasion", 10));
+    }
+
+    private static CatalogSearchIndex index(Supplier<List<BookRepository.SearchRow>> rows) {
+        BookRepository repository = (BookRepository) Proxy.newProxyInstance(BookRepository.class.getClassLoader(),
+                new Class<?>[]{BookRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findSearchRows")) return rows.get();
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        ReflectionTestUtils.setField(index, "bookRepository", repository);
+        return index;
+    }
+
+    private static BookRepository.SearchRow row(Long id, String title, String authorName) {
+        return new BookRepository.SearchRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getAuthorName() {
+                return authorName;
+            }
+        };
+    }
+
+    private static BookEntity book(Long id, String title) {
+        BookEntity book = new BookEntity(title, Set.<PersonEntity>of(), Set.of("es"), null, 0);
+        book.setId(id);
+        return book;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bonidev.literalura.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara el bitmap comprimido con un TreeSet, con bloques dispersos y densos.
+ */
+class IdBitmapTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void andOrAndIterationMatchATreeSet() {
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Long> leftIds = new TreeSet<>();
+            TreeSet<Long> rightIds = new TreeSet<>();
+            IdBitmap left = fill(leftIds, round % 2 == 0 ? 200 : 20_000);
+            IdBitmap right = fill(rightIds, round % 3 == 0 ? 30_000 : 500);
+
+            TreeSet<Long> intersection = new TreeSet<>(leftIds);
+            intersection.retainAll(rightIds);
+            TreeSet<Long> union = new TreeSet<>(leftIds);
+            union.addAll(rightIds);
+
+            assertEquals(new ArrayList<>(leftIds), left.toList());
+            assertEquals(leftIds.size(), left.cardinality());
+            assertEquals(new ArrayList<>(intersection), left.and(right).toList());
+            assertEquals(new ArrayList<>(union), left.or(right).toList());
+            assertEquals(union.size(), right.or(left).cardinality());
+        }
+    }
+
+    @Test
+    void forEachFromMatchesASliceOfTheSortedIds() {
+        for (int round = 0; round < 6; round++) {
+            TreeSet<Long> ids = new TreeSet<>();
+            IdBitmap bitmap = fill(ids, round % 2 == 0 ? 300 : 25_000);
+            List<Long> sorted = new ArrayList<>(ids);
+
+            for (int offset : new int[]{0, 1, 63, 64, 150, sorted.size() / 2, sorted.size() - 1, sorted.size(), sorted.size() + 10}) {
+                for (int limit : new int[]{0, 1, 20, 101, sorted.size()}) {
+                    List<Long> slice = new ArrayList<>();
+                    bitmap.forEachFrom(offset, limit, slice::add);
+
+                    int from = Math.min(offset, sorted.size());
+                    assertEquals(sorted.subList(from, Math.min(from + limit, sorted.size())), slice);
+                }
+            }
+        }
+    }
+
+    @Test
+    void operationsDoNotModifyTheOperands() {
+        IdBitmap left = new IdBitmap();
+        IdBitmap right = new IdBitmap();
+        left.add(1);
+        left.add(70_000);
+        right.add(2);
+
+        left.or(right).add(3);
+        left.and(right);
+
+        assertEquals(List.of(1L, 70_000L), left.toList());
+        assertTrue(left.contains(70_000));
+        assertFalse(left.contains(3));
+    }
+
+    private IdBitmap fill(TreeSet<Long> ids, int count) {
+        IdBitmap bitmap = new IdBitmap();
+        for (int i = 0; i < count; i++) {
+            // Concentra los identificadores en pocos bloques para alternar arreglos y mapas de bits
+            long id = random.nextInt(4) * 65_536L + random.nextInt(count < 1000 ? 65_536 : 12_000);
+            ids.add(id);
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,95 @@
+package com.bonidev.literalura.index;
+
+import com.bonidev.literalura.JpaTestConfiguration;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.PersonRepository;
+import com.bonidev.literalura.service.BookSavedEvent;
+import com.bonidev.literalura.service.CatalogImportedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara las respuestas del índice de intervalos con las de la base de datos.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Import(LifespanIndex.class)
+class LifespanIndexTest {
+
+    private static final int PERSONS = 2_000;
+
+    @Autowired
+    private LifespanIndex lifespanIndex;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void fillPersons() {
+        // Cada prueba revierte su transacción, así que el índice no debe sobrevivir entre pruebas
+        lifespanIndex.onCatalogImported(new CatalogImportedEvent(0));
+
+        List<PersonEntity> persons = new ArrayList<>();
+        for (int i = 0; i < PERSONS; i++) {
+            int birthYear = 1500 + random.nextInt(450);
+            persons.add(new PersonEntity("Autor " + i, birthYear, birthYear + 20 + random.nextInt(70)));
+        }
+        // Un intervalo invertido no debe aparecer en ninguna consulta
+        persons.add(new PersonEntity("Autor inválido", 1900, 1800));
+        personRepository.saveAllAndFlush(persons);
+    }
+
+    @Test
+    void pointAndRangeQueriesMatchTheDatabase() {
+        for (int i = 0; i < 200; i++) {
+            int from = 1450 + random.nextInt(600);
+            int to = i % 2 == 0 ? from : from + random.nextInt(60);
+
+            assertEquals(idsFromDatabase(from, to), Set.copyOf(lifespanIndex.findAliveBetween(from, to)),
+                    "Rango " + from + "-" + to);
+        }
+    }
+
+    @Test
+    void decadeHistogramMatchesTheDatabase() {
+        Map<Integer, Integer> histogram = lifespanIndex.countAliveByDecade(1495, 2040);
+
+        assertEquals(1490, histogram.keySet().iterator().next());
+        histogram.forEach((decade, count) ->
+                assertEquals(idsFromDatabase(decade, decade + 9).size(), count, "Década " + decade));
+    }
+
+    @Test
+    void savedAuthorsAreAddedToTheIndex() {
+        assertTrue(lifespanIndex.findAliveIn(-350).isEmpty());
+
+        PersonEntity author = personRepository.saveAndFlush(new PersonEntity("Aristóteles", -384, -322));
+        lifespanIndex.onBookSaved(new BookSavedEvent(new BookEntity("Política", Set.of(author), Set.of("es"), "https://example.org", 1)));
+
+        assertEquals(List.of(author.getId()), lifespanIndex.findAliveIn(-350));
+        assertEquals(1, lifespanIndex.countAliveByDecade(-330, -321).get(-330));
+    }
+
+    private Set<Long> idsFromDatabase(int from, int to) {
+        Set<Long> ids = new HashSet<>();
+        personRepository.getLivingPersonsBetween(from, to).forEach(person -> ids.add(person.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,97 @@
+package com.bonidev.literalura.repository;
+
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de la migración sobre un esquema H2 como el que creaba Hibernate antes de la clave natural: título
+ * único y sin columna author_key.
+ */
+class BookNaturalKeyMigrationTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private BookNaturalKeyMigration migration;
+
+    @BeforeEach
+    void createLegacySchema() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        migration = new BookNaturalKeyMigration(database);
+
+        jdbcTemplate.execute("CREATE TABLE persons (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(255) NOT NULL, birth_year INT, death_year INT)");
+        jdbcTemplate.execute("CREATE TABLE books (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, title VARCHAR(255) NOT NULL, html_link VARCHAR(255), download_count INT, CONSTRAINT uk_legacy_title UNIQUE (title))");
+        jdbcTemplate.execute("CREATE TABLE book_author (book_id BIGINT NOT NULL, person_id BIGINT NOT NULL)");
+
+        jdbcTemplate.update("INSERT INTO persons (id, name, birth_year, death_year) VALUES (1, 'Twain, Mark', 1835, 1910), (2, 'Warner, Charles Dudley', 1829, 1900)");
+        jdbcTemplate.update("INSERT INTO books (id, title, download_count) VALUES (10, 'The Gilded Age', 5), (11, 'Roughing It', 7), (12, 'Anónimo', 1)");
+        jdbcTemplate.update("INSERT INTO book_author (book_id, person_id) VALUES (10, 1), (10, 2), (11, 1)");
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void existingBooksGetTheSameKeyTheEntityComputes() {
+        assertEquals(3, migration.migrate());
+
+        PersonEntity twain = new PersonEntity("Twain, Mark", 1835, 1910);
+        PersonEntity warner = new PersonEntity("Warner, Charles Dudley", 1829, 1900);
+        assertEquals(BookEntity.authorKeyOf(List.of(warner, twain)), authorKey(10));
+        assertEquals(BookEntity.authorKeyOf(List.of(twain)), authorKey(11));
+        assertEquals(BookEntity.authorKeyOf(List.of()), authorKey(12));
+    }
+
+    @Test
+    void sameTitleWithOtherAuthorsCanBeStoredAfterTheMigration() {
+        migration.migrate();
+
+        jdbcTemplate.update("INSERT INTO books (title, author_key, download_count) VALUES ('Roughing It', ?, 1)",
+                BookEntity.authorKeyOf(List.of(new PersonEntity("Otro, Autor", 1900, 1980))));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE title = 'Roughing It'", Integer.class));
+    }
+
+    @Test
+    void authorKeyBecomesMandatory() {
+        migration.migrate();
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO books (title, download_count) VALUES ('Sin clave', 1)"));
+    }
+
+    @Test
+    void aSecondRunChangesNothing() {
+        migration.migrate();
+        String before = authorKey(10);
+
+        assertEquals(0, migration.migrate());
+        assertEquals(before, authorKey(10));
+    }
+
+    @Test
+    void aDatabaseWithoutBooksIsLeftAlone() {
+        jdbcTemplate.execute("DROP TABLE books");
+
+        assertEquals(0, migration.migrate());
+    }
+
+    private String authorKey(long bookId) {
+        return jdbcTemplate.queryForObject("SELECT author_key FROM books WHERE id = ?", String.class, bookId);
+    }
+}
@@ -0,0 +1,121 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.repository.PersonRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Pruebas de la normalización y el registro de nombres del diccionario de autores.
+ */
+class AuthorNameDictionaryTest {
+
+    private final List<String> registered = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AuthorNameDictionary dictionary = dictionary();
+
+    @Test
+    void variantsResolveToTheFirstSpellingSeen() {
+        String[] twain = new String[1];
+        inTransaction(true, () -> {
+            twain[0] = dictionary.canonicalize("Twain, Mark");
+
+            assertSame(twain[0], dictionary.canonicalize("Twain, Mark "));
+            assertSame(twain[0], dictionary.canonicalize("  twain,mark,"));
+            assertSame(twain[0], dictionary.canonicalize("TWAIN,\u00A0 MARK"));
+            assertEquals("Austen, Jane", dictionary.canonicalize(" Austen ,  Jane"));
+            assertNull(dictionary.canonicalize(null));
+        });
+
+        assertEquals(2, dictionary.size());
+        assertSame(twain[0], dictionary.canonicalize("twain, mark"));
+    }
+
+    @Test
+    void decomposedAccentsMatchComposedOnes() {
+        registered.add("Pérez Galdós, Benito");
+
+        assertSame(registered.get(0), dictionary.canonicalize("Pe\u0301rez Galdo\u0301s, Benito"));
+    }
+
+    @Test
+    void registeredNamesAreLoadedOnFirstUseAndWin() {
+        registered.add("Twain, Mark ");
+        assertEquals(0, loads.get());
+
+        assertSame(registered.get(0), dictionary.canonicalize("twain,mark"));
+        assertSame(registered.get(0), dictionary.canonicalize("TWAIN, MARK"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void aRolledBackSpellingDoesNotBecomeCanonical() {
+        inTransaction(false, () -> assertEquals("TWAIN, MARK", dictionary.canonicalize("TWAIN,MARK")));
+
+        assertEquals(0, dictionary.size());
+        inTransaction(true, () -> assertEquals("Twain, Mark", dictionary.canonicalize("Twain, Mark")));
+        assertEquals("Twain, Mark", dictionary.canonicalize("TWAIN,MARK"));
+    }
+
+    @Test
+    void namesOutsideATransactionAreNotRegistered() {
+        assertEquals("Autor nuevo", dictionary.canonicalize(" Autor  nuevo"));
+        assertEquals("autor nuevo", dictionary.canonicalize("autor nuevo"));
+
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void namesSurviveTableGrowth() {
+        for (int i = 0; i < 5000; i++) {
+            registered.add("Autor " + i);
+        }
+
+        for (int i = 0; i < registered.size(); i++) {
+            assertSame(registered.get(i), dictionary.canonicalize("autor  " + i + " "));
+        }
+        assertEquals(registered.size(), dictionary.size());
+    }
+
+    private AuthorNameDictionary dictionary() {
+        PersonRepository repository = (PersonRepository) Proxy.newProxyInstance(PersonRepository.class.getClassLoader(),
+                new Class<?>[]{PersonRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllNames")) {
+                        loads.incrementAndGet();
+                        return registered;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        AuthorNameDictionary authorNames = new AuthorNameDictionary();
+        ReflectionTestUtils.setField(authorNames, "personRepository", repository);
+        return authorNames;
+    }
+
+    /**
+     * Ejecuta el trabajo con la sincronización de transacciones activa y termina la transacción confirmándola
+     * o revirtiéndola.
+     */
+    private static void inTransaction(boolean commit, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (commit) TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
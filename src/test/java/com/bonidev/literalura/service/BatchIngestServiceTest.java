@@ -0,0 +1,145 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del procesamiento por lotes contra un servidor HTTP local que imita las respuestas de Gutendex, con un
+ * BookService que rechaza los lotes que contienen el libro 13.
+ */
+class BatchIngestServiceTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final List<BookDTO> saved = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/books/";
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/books/", exchange -> {
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+            if (query.equals("search=error")) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            List<String> ids = query.startsWith("ids=") ? List.of(query.substring(4).split(",")) : List.of("1", "2");
+            byte[] body = ("{\"count\": %d, \"next\": null, \"previous\": null, \"results\": [%s]}"
+                    .formatted(ids.size(), ids.stream().map(BatchIngestServiceTest::book).collect(Collectors.joining(","))))
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void ingestGroupsIdsDeduplicatesBooksAndCountsFailures() {
+        String input = """
+                # Términos de prueba
+                quijote
+
+                1
+                3
+                error
+                hamlet
+                """;
+
+        BatchIngestService.BatchReport report = service().ingest(new BufferedReader(new StringReader(input)));
+
+        assertEquals(5, report.linesRead());
+        // quijote, hamlet, error y una sola solicitud para los identificadores 1 y 3
+        assertEquals(4, report.requests());
+        assertEquals(1, report.failedRequests());
+        assertEquals(6, report.booksFetched());
+        assertEquals(3, report.booksPersisted());
+        assertEquals(0, report.failedBooks());
+        assertEquals(3, saved.size());
+        assertTrue(report.failures().get(0).startsWith("\"error\""), report.failures().toString());
+    }
+
+    @Test
+    void aFailingBookIsCountedWithoutLosingTheRestOfItsBatch() {
+        BatchIngestService.BatchReport report = service().ingest(new BufferedReader(new StringReader("12\n13\n14\n")));
+
+        assertEquals(2, report.booksPersisted());
+        assertEquals(1, report.failedBooks());
+        assertEquals(List.of("Libro 12", "Libro 14"), saved.stream().map(BookDTO::title).sorted().toList());
+        assertTrue(report.failures().get(0).contains("Libro 13"), report.failures().toString());
+    }
+
+    @Test
+    void summaryIsMachineReadable() throws IOException {
+        BatchIngestService service = service();
+        BatchIngestService.BatchReport report = service.ingest(new BufferedReader(new StringReader("7\n8\n")));
+
+        var json = new ObjectMapper().readTree(service.toJson(report));
+        assertEquals(1, json.get("requests").asInt());
+        assertEquals(2, json.get("books_persisted").asInt());
+        assertTrue(json.has("books_per_second"));
+        assertTrue(json.get("failures").isEmpty());
+    }
+
+    private BatchIngestService service() {
+        BookApiService api = new BookApiService(HttpClient.newHttpClient(), new ObjectMapper(), baseUrl,
+                new ApiResponseCache(8, Duration.ofMinutes(1), Duration.ofMinutes(1)), 4);
+        BookService bookService = new BookService() {
+            @Override
+            public void saveBooks(Collection<BookDTO> books) {
+                if (books.stream().anyMatch(book -> book.title().equals("Libro 13"))) {
+                    throw new IllegalArgumentException("Libro inválido");
+                }
+                saved.addAll(books);
+            }
+        };
+
+        BatchIngestService service = new BatchIngestService();
+        ReflectionTestUtils.setField(service, "bookApiService", api);
+        ReflectionTestUtils.setField(service, "bookService", bookService);
+        ReflectionTestUtils.setField(service, "fetchWorkers", 3);
+        return service;
+    }
+
+    private static String book(String id) {
+        return """
+                {"id": %1$s, "title": "Libro %1$s",
+                 "authors": [{"name": "Autor %1$s", "birth_year": 1800, "death_year": 1870}],
+                 "languages": ["es"], "formats": {"text/html": "https://example.org/%1$s.html"},
+                 "download_count": %1$s}
+                """.formatted(id);
+    }
+}
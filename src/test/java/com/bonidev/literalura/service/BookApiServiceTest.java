@@ -0,0 +1,288 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de BookApiService contra un servidor HTTP local que imita las respuestas de Gutendex.
+ */
+class BookApiServiceTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long responseDelayMillis;
+    private volatile CountDownLatch release;
+    private volatile int failureStatus;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/books/";
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/books/", exchange -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                // Retiene la respuesta hasta que la prueba la libere, si así lo pide
+                if (release != null) release.await(10, TimeUnit.SECONDS);
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (failureStatus != 0) {
+                exchange.sendResponseHeaders(failureStatus, -1);
+                exchange.close();
+                return;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            int page = query != null && query.contains("page=") ? Integer.parseInt(query.substring(query.indexOf("page=") + 5)) : 1;
+            byte[] body = page(page, 3).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void crawlFollowsNextLinksUntilTheLastPage() {
+        List<BookDTO> books = new ArrayList<>();
+
+        long delivered = service().crawlBooks("", Integer.MAX_VALUE, books::add);
+
+        assertEquals(6, delivered);
+        assertEquals(3, requests.get());
+        assertEquals(List.of("Libro 1-1", "Libro 1-2", "Libro 2-1", "Libro 2-2", "Libro 3-1", "Libro 3-2"),
+                books.stream().map(BookDTO::title).toList());
+        assertEquals("https://example.org/1-1.html", books.get(0).htmlLink());
+        assertEquals("Autor 1", books.get(0).getAuthorsNames());
+    }
+
+    @Test
+    void crawlStopsAtTheMaximumNumberOfPages() {
+        BlockingQueue<BookDTO> queue = new ArrayBlockingQueue<>(16);
+
+        long delivered = service().crawlBooks("dickens", 2, queue);
+
+        assertEquals(4, delivered);
+        assertEquals(4, queue.size());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void repeatedSearchesAreServedFromTheCache() {
+        BookApiService service = service();
+
+        List<BookDTO> first = service.fetchBooksFromApi("Dickens");
+        List<BookDTO> second = service.fetchBooksFromApi("  dickens ");
+
+        assertEquals(first, second);
+        assertEquals(1, requests.get());
+        assertEquals(new ApiResponseCache.Stats(1, 0, 1, 0, 1), service.getCacheStats());
+    }
+
+    @Test
+    void idLookupsDoNotShareCacheEntriesWithSearches() {
+        BookApiService service = service();
+
+        service.fetchBooksFromApi("IDS=7");
+        service.fetchBooksByIds(List.of(7L));
+        service.fetchBooksByIds(List.of(7L));
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void staleEntriesAreRevalidatedWithAConditionalRequest() {
+        BookApiService service = service(new ApiResponseCache(8, Duration.ZERO, Duration.ofMinutes(1)));
+
+        List<BookDTO> first = service.fetchBooksFromApi("dickens");
+        List<BookDTO> second = service.fetchBooksFromApi("dickens");
+
+        assertEquals(first, second);
+        assertEquals(2, requests.get());
+        assertEquals(new ApiResponseCache.Stats(0, 1, 1, 0, 1), service.getCacheStats());
+    }
+
+    @Test
+    void leastRecentlyUsedSearchesAreEvicted() {
+        BookApiService service = service(new ApiResponseCache(1, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+
+        service.fetchBooksFromApi("dickens");
+        service.fetchBooksFromApi("austen");
+        service.fetchBooksFromApi("dickens");
+
+        assertEquals(3, requests.get());
+        assertEquals(new ApiResponseCache.Stats(0, 0, 3, 2, 1), service.getCacheStats());
+    }
+
+    @Test
+    void multiTermSearchRunsConcurrentlyUpToTheCapAndMergesResults() {
+        responseDelayMillis = 100;
+        List<BookDTO> streamed = new ArrayList<>();
+
+        List<BookDTO> books = service().fetchBooksFromApi(List.of("a", "b", "c", "d", "e", "f", " A "), 2, streamed::add);
+
+        assertEquals(6, requests.get());
+        assertEquals(2, maxInFlight.get());
+        assertEquals(2, books.size());
+        assertEquals(books, streamed);
+    }
+
+    @Test
+    void requestsPayloadsAndCacheResultsAreMeasured() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BookApiService service = new BookApiService(HttpClient.newHttpClient(), new ObjectMapper(), baseUrl,
+                new ApiResponseCache(8, Duration.ofMinutes(1), Duration.ofMinutes(1)), 4, registry);
+
+        service.fetchBooksFromApi("dickens");
+        service.fetchBooksFromApi("dickens");
+
+        assertEquals(1, registry.get("literalura.api.request").tag("status", "200").timer().count());
+        assertEquals(1, registry.get("literalura.api.parse").timer().count());
+        assertEquals(page(1, 3).getBytes(StandardCharsets.UTF_8).length,
+                registry.get("literalura.api.response.size").summary().totalAmount());
+        assertEquals(1, registry.get("literalura.api.cache").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("literalura.api.cache").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void concurrentIdenticalSearchesShareOneUpstreamRequest() throws Exception {
+        release = new CountDownLatch(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BookApiService service = service(registry);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<List<BookDTO>>> calls = searchConcurrently(executor, service, 16);
+        // La respuesta sale recién cuando las otras 15 llamadas ya se unieron a la solicitud en curso
+        awaitCoalesced(registry, 15);
+        release.countDown();
+
+        List<List<BookDTO>> results = new ArrayList<>();
+        for (Future<List<BookDTO>> call : calls) results.add(call.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, requests.get());
+        assertEquals(new ApiResponseCache.Stats(0, 0, 1, 0, 1), service.getCacheStats());
+        for (List<BookDTO> books : results) {
+            assertEquals(results.get(0), books);
+            assertThrows(UnsupportedOperationException.class, () -> books.remove(0));
+            assertThrows(UnsupportedOperationException.class, () -> books.get(0).authors().clear());
+        }
+    }
+
+    @Test
+    void aFailedSharedRequestFailsEveryCallerAndIsNotReused() throws Exception {
+        release = new CountDownLatch(1);
+        failureStatus = 500;
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BookApiService service = service(registry);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<BookDTO>>> calls = searchConcurrently(executor, service, 8);
+        awaitCoalesced(registry, 7);
+        release.countDown();
+
+        for (Future<List<BookDTO>> call : calls) {
+            Exception error = assertThrows(Exception.class, () -> call.get(10, TimeUnit.SECONDS));
+            assertEquals(RuntimeException.class, error.getCause().getClass());
+        }
+        executor.shutdown();
+        assertEquals(1, requests.get());
+
+        failureStatus = 0;
+        assertEquals(2, service.fetchBooksFromApi("dickens").size());
+        assertEquals(2, requests.get());
+    }
+
+    private static List<Future<List<BookDTO>>> searchConcurrently(ExecutorService executor, BookApiService service, int callers) {
+        List<Future<List<BookDTO>>> calls = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            String term = i % 2 == 0 ? "Dickens" : "  dickens ";
+            calls.add(executor.submit(() -> service.fetchBooksFromApi(term)));
+        }
+        return calls;
+    }
+
+    private static void awaitCoalesced(SimpleMeterRegistry registry, int callers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get("literalura.api.coalesced").counter().count() < callers) {
+            assertTrue(System.nanoTime() < deadline, "Llamadas unidas: " + registry.get("literalura.api.coalesced").counter().count());
+            Thread.sleep(1);
+        }
+    }
+
+    private BookApiService service() {
+        return service(new ApiResponseCache(8, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+    }
+
+    private BookApiService service(ApiResponseCache cache) {
+        return new BookApiService(HttpClient.newHttpClient(), new ObjectMapper(), baseUrl, cache, 4);
+    }
+
+    private BookApiService service(SimpleMeterRegistry registry) {
+        return new BookApiService(HttpClient.newHttpClient(), new ObjectMapper(), baseUrl,
+                new ApiResponseCache(8, Duration.ofMinutes(1), Duration.ofMinutes(1)), 4, registry);
+    }
+
+    private String page(int page, int lastPage) {
+        String next = page < lastPage ? "\"" + baseUrl + "?page=" + (page + 1) + "\"" : "null";
+        return """
+                {"count": %d, "next": %s, "previous": null, "results": [%s, %s]}
+                """.formatted(lastPage * 2, next, book(page, 1), book(page, 2));
+    }
+
+    private static String book(int page, int index) {
+        return """
+                {"id": %1$d%2$d, "title": "Libro %1$d-%2$d",
+                 "authors": [{"name": "Autor %2$d", "birth_year": 1800, "death_year": 1870}],
+                 "subjects": ["Ficción"], "languages": ["es"], "copyright": false,
+                 "formats": {"application/epub+zip": "https://example.org/%1$d-%2$d.epub", "text/html": "https://example.org/%1$d-%2$d.html"},
+                 "download_count": %1$d%2$d}
+                """.formatted(page, index);
+    }
+}
@@ -0,0 +1,201 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.JpaTestConfiguration;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.index.CatalogSearchIndex;
+import com.bonidev.literalura.index.LanguageIndex;
+import com.bonidev.literalura.index.TopBooksIndex;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.BookRepository;
+import com.bonidev.literalura.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Import({BookService.class, BookMapper.class, PersonMapper.class, AuthorNameDictionary.class, CatalogSnapshotService.class, AuthorResolver.class, CatalogSearchIndex.class, LanguageIndex.class, TopBooksIndex.class})
+class BookServiceTest {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private AuthorNameDictionary authorNames;
+
+    @Autowired
+    private AuthorResolver authorResolver;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void fillCatalog() {
+        List<Object[]> rows = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            rows.add(new Object[]{"Libro " + i, BookEntity.authorKeyOf(Set.of()), "https://example.org/" + i, i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO books (title, author_key, html_link, download_count) VALUES (?, ?, ?, ?)", rows);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveBookDoesNotLoadTheCatalogToDetectDuplicates() {
+        bookService.saveBook(book("Libro 42", 500));
+
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 2, "Sentencias: " + statistics.getPrepareStatementCount());
+        assertEquals(CATALOG_SIZE, bookRepository.count());
+        assertEquals(500, jdbcTemplate.queryForObject("SELECT download_count FROM books WHERE title = 'Libro 42'", Integer.class));
+    }
+
+    @Test
+    void saveBookInsertsNewBooksWithConstantWork() {
+        bookService.saveBook(book("Libro nuevo", 7));
+        bookRepository.flush();
+
+        // UPDATE por clave natural, INSERT del libro e INSERT de su idioma
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 3, "Sentencias: " + statistics.getPrepareStatementCount());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE title = ? AND author_key = ?",
+                Integer.class, "Libro nuevo", BookEntity.authorKeyOf(Set.of())));
+        assertEquals(CATALOG_SIZE + 1, bookRepository.count());
+    }
+
+    @Test
+    void saveBooksResolvesTheAuthorsOfTheWholeBatchAtOnce() {
+        jdbcTemplate.update("INSERT INTO persons (name, birth_year, death_year) VALUES ('Twain, Mark', 1835, 1910)");
+        PersonDTO twain = new PersonDTO("Twain, Mark", 1835, 1910);
+        PersonDTO warner = new PersonDTO("Warner, Charles Dudley", 1829, 1900);
+        PersonDTO austen = new PersonDTO("Austen, Jane", 1775, 1817);
+        // El diccionario de nombres se carga en su primer uso; aquí solo se cuentan las consultas de autores
+        authorNames.canonicalize(twain.name());
+        statistics.clear();
+
+        bookService.saveBooks(List.of(
+                new BookDTO("The Gilded Age", Set.of(twain, warner), Set.of("en"), null, 10),
+                new BookDTO("Roughing It", Set.of(twain), Set.of("en"), null, 20),
+                new BookDTO("Emma", Set.of(austen), Set.of("en"), null, 30)));
+        bookRepository.flush();
+
+        // Una consulta para los autores existentes y otra para recuperar los insertados en bloque
+        assertEquals(2, statistics.getQueryExecutionCount());
+        assertEquals(3, personRepository.count());
+        assertEquals(CATALOG_SIZE + 3, bookRepository.count());
+    }
+
+    @Test
+    void aBookRepeatedInTheBatchIsSavedOnceWithItsLastData() {
+        PersonDTO twain = new PersonDTO("Twain, Mark", 1835, 1910);
+        double inserted = meterRegistry.counter("literalura.books.saved", "result", "inserted").count();
+        double updated = meterRegistry.counter("literalura.books.saved", "result", "updated").count();
+
+        bookService.saveBooks(List.of(
+                new BookDTO("Roughing It", Set.of(twain), Set.of("en"), null, 10),
+                new BookDTO("Libro 7", Set.of(), Set.of("en"), null, 70),
+                new BookDTO("Roughing It", Set.of(new PersonDTO("twain,mark", 1835, 1910)), Set.of("en"), null, 20),
+                new BookDTO("Libro 7", Set.of(), Set.of("en"), null, 71)));
+        bookRepository.flush();
+
+        assertEquals(20, jdbcTemplate.queryForObject("SELECT download_count FROM books WHERE title = 'Roughing It'", Integer.class));
+        assertEquals(71, jdbcTemplate.queryForObject("SELECT download_count FROM books WHERE title = 'Libro 7'", Integer.class));
+        assertEquals(CATALOG_SIZE + 1, bookRepository.count());
+        assertEquals(1, meterRegistry.counter("literalura.books.saved", "result", "inserted").count() - inserted);
+        assertEquals(1, meterRegistry.counter("literalura.books.saved", "result", "updated").count() - updated);
+    }
+
+    @Test
+    void homonymsWithOtherYearsAreDistinctPersons() {
+        jdbcTemplate.update("INSERT INTO persons (name, birth_year, death_year) VALUES ('Smith, John', 1580, 1631)");
+        PersonDTO explorer = new PersonDTO("Smith, John", 1580, 1631);
+        PersonDTO economist = new PersonDTO("Smith, John", 1723, 1790);
+
+        // Insertar una persona que ya existe no hace fallar el lote
+        authorResolver.insertMissing(List.of(explorer));
+        Map<PersonDTO, PersonEntity> identityMap = authorResolver.resolve(List.of(explorer, economist));
+
+        assertEquals(2, personRepository.count());
+        assertEquals(1723, identityMap.get(economist).getBirthYear());
+        assertEquals(1580, identityMap.get(explorer).getBirthYear());
+    }
+
+    @Test
+    void authorNameVariantsCollapseIntoOnePerson() {
+        bookService.saveBooks(List.of(
+                new BookDTO("Roughing It", Set.of(new PersonDTO("Twain, Mark", 1835, 1910)), Set.of("en"), null, 10),
+                new BookDTO("Life on the Mississippi", Set.of(new PersonDTO("Twain, Mark ", 1835, 1910)), Set.of("en"), null, 20)));
+        bookService.saveBooks(List.of(
+                new BookDTO("The Prince and the Pauper", Set.of(new PersonDTO("twain,mark", 1835, 1910)), Set.of("en"), null, 30)));
+        bookRepository.flush();
+
+        assertEquals(1, personRepository.count());
+        assertEquals("Twain, Mark", personRepository.findAll().get(0).getName());
+        assertEquals(CATALOG_SIZE + 3, bookRepository.count());
+    }
+
+    @Test
+    void searchBooksRanksTitleMatchesBeforeAuthorMatches() {
+        PersonDTO twain = new PersonDTO("Twain, Mark", 1835, 1910);
+        PersonDTO dickens = new PersonDTO("Dickens, Charles", 1812, 1870);
+        bookService.saveBooks(List.of(
+                new BookDTO("A Christmas Carol", Set.of(dickens), Set.of("en"), null, 10),
+                new BookDTO("Mark Twain: A Biography", Set.of(), Set.of("en"), null, 20),
+                new BookDTO("Roughing It", Set.of(twain), Set.of("en"), null, 30)));
+        bookRepository.flush();
+
+        assertEquals(List.of("Mark Twain: A Biography", "Roughing It"),
+                bookService.searchBooks("twain", 10).stream().map(BookEntity::getTitle).toList());
+        assertEquals(List.of("A Christmas Carol"),
+                bookService.searchBooks("Dick carol", 10).stream().map(BookEntity::getTitle).toList());
+        assertTrue(bookService.searchBooks("twain carol", 10).isEmpty());
+    }
+
+    @Test
+    void authorKeyIgnoresOrderAndSpacing() {
+        PersonEntity twain = new PersonEntity("Twain, Mark", 1835, 1910);
+        PersonEntity warner = new PersonEntity("Warner, Charles Dudley", 1829, 1900);
+        PersonEntity spacedTwain = new PersonEntity(" twain, mark ", 1835, 1910);
+
+        assertEquals(BookEntity.authorKeyOf(List.of(twain, warner)), BookEntity.authorKeyOf(List.of(warner, spacedTwain)));
+    }
+
+    private static BookEntity book(String title, int downloadCount) {
+        return new BookEntity(title, Set.of(), Set.of("es"), "https://example.org/nuevo", downloadCount);
+    }
+}
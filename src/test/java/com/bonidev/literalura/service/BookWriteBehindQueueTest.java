@@ -0,0 +1,150 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la cola de escritura diferida con un BookService que registra los lotes recibidos y rechaza los
+ * que contienen un libro inválido.
+ */
+class BookWriteBehindQueueTest {
+
+    private final List<List<BookDTO>> batches = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void pendingSavesAreCoalescedAndFlushedBySize() throws Exception {
+        BookWriteBehindQueue queue = queue(3, Duration.ofHours(1), 100);
+
+        queue.submit(book("A", 1));
+        queue.submit(book("A", 2));
+        queue.submit(book("B", 1));
+        assertEquals(2, queue.pendingCount());
+        queue.submit(book("C", 1));
+
+        waitForSaved(3);
+        assertEquals(List.of(List.of(book("A", 2), book("B", 1), book("C", 1))), savedBatches());
+        queue.close();
+    }
+
+    @Test
+    void variantsOfAnAuthorNameShareTheirPendingSave() throws Exception {
+        BookWriteBehindQueue queue = queue(50, Duration.ofHours(1), 100);
+        BookDTO latest = new BookDTO("A", Set.of(new PersonDTO(" autor,", 1800, 1870)), Set.of("es"), null, 2);
+
+        queue.submit(book("A", 1));
+        queue.submit(latest);
+        assertEquals(1, queue.pendingCount());
+
+        queue.close();
+        assertEquals(List.of(List.of(latest)), savedBatches());
+    }
+
+    @Test
+    void pendingSavesAreFlushedAfterTheMaximumDelay() throws Exception {
+        BookWriteBehindQueue queue = queue(50, Duration.ofMillis(50), 100);
+
+        queue.submit(book("A", 1));
+
+        waitForSaved(1);
+        assertEquals(0, queue.pendingCount());
+        queue.close();
+    }
+
+    @Test
+    void fullQueueBlocksUntilFlushedAndCloseDrainsTheRest() throws Exception {
+        BookWriteBehindQueue queue = queue(100, Duration.ofHours(1), 2);
+        queue.submit(book("A", 1));
+        queue.submit(book("B", 1));
+
+        Thread blocked = new Thread(() -> queue.submit(book("C", 1)));
+        blocked.start();
+        while (blocked.isAlive() && blocked.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        assertTrue(blocked.isAlive());
+        assertEquals(2, queue.pendingCount());
+
+        // El hilo de escritura puede llevarse C en este mismo vaciado o dejarlo para el cierre
+        queue.flush();
+        blocked.join(5000);
+        assertFalse(blocked.isAlive());
+
+        queue.close();
+        assertEquals(3, savedBatches().stream().mapToInt(List::size).sum());
+        assertEquals(0, queue.pendingCount());
+        assertThrows(IllegalStateException.class, () -> queue.submit(book("D", 1)));
+    }
+
+    @Test
+    void aFailingBookIsCountedWithoutLosingTheRestOfItsBatch() {
+        BookWriteBehindQueue queue = queue(100, Duration.ofHours(1), 100);
+        queue.submit(book("A", 1));
+        queue.submit(book("Inválido", 1));
+        queue.submit(book("B", 1));
+
+        queue.close();
+
+        assertEquals(List.of(List.of(book("A", 1)), List.of(book("B", 1))), savedBatches());
+        assertEquals(2, meterRegistry.counter("literalura.books.write_behind.saved").count());
+        assertEquals(1, meterRegistry.counter("literalura.books.write_behind.failed").count());
+    }
+
+    private BookWriteBehindQueue queue(int batchSize, Duration maxDelay, int capacity) {
+        BookService bookService = new BookService() {
+            @Override
+            public void saveBooks(Collection<BookDTO> books) {
+                if (books.stream().anyMatch(book -> book.title().equals("Inválido"))) {
+                    throw new IllegalArgumentException("Libro inválido");
+                }
+                synchronized (batches) {
+                    batches.add(List.copyOf(books));
+                    batches.notifyAll();
+                }
+            }
+        };
+
+        BookWriteBehindQueue queue = new BookWriteBehindQueue();
+        ReflectionTestUtils.setField(queue, "bookService", bookService);
+        ReflectionTestUtils.setField(queue, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(queue, "batchSize", batchSize);
+        ReflectionTestUtils.setField(queue, "maxDelay", maxDelay);
+        ReflectionTestUtils.setField(queue, "capacity", capacity);
+        ReflectionTestUtils.setField(queue, "shutdownTimeout", Duration.ofSeconds(5));
+        queue.start();
+        return queue;
+    }
+
+    private List<List<BookDTO>> savedBatches() {
+        synchronized (batches) {
+            return List.copyOf(batches);
+        }
+    }
+
+    private void waitForSaved(int books) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        synchronized (batches) {
+            while (batches.stream().mapToInt(List::size).sum() < books) {
+                long remaining = deadline - System.currentTimeMillis();
+                assertTrue(remaining > 0, "Libros registrados: " + batches);
+                batches.wait(remaining);
+            }
+        }
+    }
+
+    private static BookDTO book(String title, int downloads) {
+        return new BookDTO(title, Set.of(new PersonDTO("Autor", 1800, 1870)), Set.of("es"), null, downloads);
+    }
+}
@@ -0,0 +1,210 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.JpaTestConfiguration;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de la importación masiva sobre H2 con catálogos pequeños en CSV, NDJSON y JSON.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Import({CatalogImportService.class, AuthorResolver.class, PersonMapper.class, AuthorNameDictionary.class, CatalogSnapshotService.class})
+@RecordApplicationEvents
+class CatalogImportServiceTest {
+
+    private static final String CSV = """
+            Text#,Type,Issued,Title,Language,Authors,Subjects,LoCC,Bookshelves
+            1,Text,1971-12-01,The Gilded Age: A Tale of Today,en,"Twain, Mark, 1835-1910; Warner, Charles Dudley, 1829-1900",,,
+            2,Text,1993-01-01,Roughing It,en,"Twain, Mark, 1835-1910; Doré, Gustave, 1832-1883 [Illustrator]",,,
+            3,Sound,2003-01-01,Roughing It (audio),en,"Twain, Mark, 1835-1910",,,
+            4,Text,2000-01-01,"Odyssey, The
+            Second line",en; grc,"Homer, 751? BCE-651? BCE",,,
+            5,Text,2000-01-01,"He said ""hello""\",en,,,,
+            """;
+
+    private static final String EMMA = """
+            {"title": "Emma", "authors": [{"name": "Austen, Jane", "birth_year": 1775, "death_year": 1817}], \
+            "languages": ["en"], "formats": {"text/html": "https://example.org/emma"}, "download_count": 30}""";
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void csvCatalogIsImportedWithQuotedFieldsAndMultipleAuthors() throws IOException {
+        CatalogImportService.ImportReport report = catalogImportService.importCatalog(write("pg_catalog.csv", CSV));
+
+        assertEquals(5, report.records());
+        assertEquals(4, report.booksInserted());
+        assertEquals(3, report.authorsInserted());
+        assertEquals(4, count("books"));
+        assertEquals(3, count("persons"));
+        assertEquals(4, count("book_author"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE title = 'Odyssey, The Second line'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE title = 'He said \"hello\"'", Integer.class));
+        assertEquals(-751, jdbcTemplate.queryForObject("SELECT birth_year FROM persons WHERE name = 'Homer'", Integer.class));
+        assertEquals(List.of("en", "grc"), jdbcTemplate.queryForList("""
+                SELECT l.language_code FROM book_language l JOIN books b ON b.id = l.book_id
+                WHERE b.title = 'Odyssey, The Second line' ORDER BY l.language_code""", String.class));
+    }
+
+    @Test
+    void ndjsonAndJsonCatalogsShareTheNaturalKeyDeduplication() throws IOException {
+        String ndjson = EMMA + "\n\n" + """
+                {"title": "Persuasion", "authors": [{"name": "Austen, Jane", "birth_year": 1775, "death_year": 1817}], "languages": ["en"], "download_count": 20}
+                """;
+        CatalogImportService.ImportReport first = catalogImportService.importCatalog(write("catalogo.ndjson", ndjson));
+        assertEquals(2, first.booksInserted());
+        assertEquals(1, first.authorsInserted());
+
+        String json = """
+                {"count": 2, "next": null, "results": [%s,
+                  {"title": "Sense and Sensibility", "authors": [{"name": "Austen, Jane", "birth_year": 1775, "death_year": 1817}], "languages": ["en"], "download_count": 10}]}
+                """.formatted(EMMA);
+        CatalogImportService.ImportReport second = catalogImportService.importCatalog(write("catalogo.json", json));
+
+        assertEquals(2, second.records());
+        assertEquals(1, second.booksInserted());
+        assertEquals(0, second.authorsInserted());
+        assertEquals(3, count("books"));
+        assertEquals(1, count("persons"));
+        assertEquals("https://example.org/emma", jdbcTemplate.queryForObject("SELECT html_link FROM books WHERE title = 'Emma'", String.class));
+    }
+
+    @Test
+    void recordsWithoutTitleAreSkippedInsteadOfFailingTheBatch() throws IOException {
+        String ndjson = EMMA + "\n" + """
+                {"title": null, "authors": [], "languages": ["en"], "download_count": 1}
+                {"authors": [], "languages": ["fr"], "download_count": 2}
+                {"title": "  ", "authors": [], "languages": ["es"], "download_count": 3}
+                """;
+
+        CatalogImportService.ImportReport report = catalogImportService.importCatalog(write("catalogo.ndjson", ndjson));
+
+        assertEquals(4, report.records());
+        assertEquals(1, report.booksInserted());
+        assertEquals(1, count("books"));
+    }
+
+    @Test
+    void authorsWithoutNameAreDroppedInsteadOfFailingTheBatch() throws IOException {
+        String ndjson = EMMA + "\n" + """
+                {"title": "Beowulf", "authors": [{"name": null}, {"name": " "}, {"birth_year": 1000}], "languages": ["en"]}
+                """;
+
+        CatalogImportService.ImportReport report = catalogImportService.importCatalog(write("catalogo.ndjson", ndjson));
+
+        assertEquals(2, report.booksInserted());
+        assertEquals(1, report.authorsInserted());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book_author ba JOIN books b ON b.id = ba.book_id WHERE b.title = 'Beowulf'", Integer.class));
+    }
+
+    @Test
+    void authorNameVariantsCollapseIntoOnePersonAcrossBatches() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i <= 1_000; i++) {
+            lines.add("{\"title\": \"Libro %d\", \"authors\": [{\"name\": \"%s\", \"birth_year\": 1835, \"death_year\": 1910}], \"languages\": [\"en\"]}"
+                    .formatted(i, i == 1_000 ? "twain,mark " : "Twain, Mark"));
+        }
+
+        CatalogImportService.ImportReport report = catalogImportService.importCatalog(write("catalogo.ndjson", String.join("\n", lines)));
+
+        assertEquals(1_001, report.booksInserted());
+        assertEquals(1, report.authorsInserted());
+        assertEquals(List.of("Twain, Mark"), jdbcTemplate.queryForList("SELECT name FROM persons", String.class));
+    }
+
+    @Test
+    void anInterruptedImportResumesAfterTheLastCommittedBatch() throws IOException {
+        int books = 2_500;
+        List<String> lines = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            lines.add("{\"title\": \"Libro %d\", \"authors\": [{\"name\": \"Autor %d\", \"birth_year\": 1800, \"death_year\": 1870}], \"languages\": [\"es\"], \"download_count\": %d}"
+                    .formatted(i, i % 50, i));
+        }
+        Path file = directory.resolve("catalogo.ndjson");
+
+        // El segundo lote contiene una línea inválida: el primero ya quedó confirmado
+        List<String> broken = new ArrayList<>(lines);
+        broken.set(1_500, "{\"title\": ");
+        Files.write(file, broken, StandardCharsets.UTF_8);
+        assertThrows(RuntimeException.class, () -> catalogImportService.importCatalog(file));
+        assertEquals(1_000, count("books"));
+        assertEquals(List.of(new CatalogImportedEvent(1_000)), events.stream(CatalogImportedEvent.class).toList());
+
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        CatalogImportService.ImportReport resumed = catalogImportService.importCatalog(file);
+
+        assertEquals(1_000, resumed.resumedFrom());
+        assertEquals(1_500, resumed.records());
+        assertEquals(1_500, resumed.booksInserted());
+        assertEquals(0, resumed.authorsInserted());
+        assertEquals(books, count("books"));
+        assertEquals(50, count("persons"));
+
+        CatalogImportService.ImportReport repeated = catalogImportService.importCatalog(file);
+        assertEquals(books, repeated.resumedFrom());
+        assertEquals(0, repeated.records());
+        assertEquals(0, repeated.booksInserted());
+        assertEquals(books, count("books"));
+    }
+
+    @Test
+    void csvParserKeepsQuotedCommasQuotesAndLineBreaks() throws IOException {
+        GutenbergCsvParser parser = new GutenbergCsvParser(new StringReader(
+                "Text#,Type,Issued,Title,Language,Authors\r\n7,Text,2000,\"A, \"\"B\"\"\r\nC\",en,\"X, Y\"\r\n8,Text,2001,Last,fr,"));
+
+        assertEquals(List.of("7", "Text", "2000", "A, \"B\"\r\nC", "en", "X, Y"), parser.nextRecord());
+        assertEquals(List.of("8", "Text", "2001", "Last", "fr", ""), parser.nextRecord());
+        assertNull(parser.nextRecord());
+    }
+
+    @Test
+    void csvAuthorsKeepTheirYearsAndDropContributorRoles() {
+        BookDTO book = GutenbergCsvParser.toBook(List.of("11", "Text", "2008", "Alice's Adventures in Wonderland", "en",
+                "Carroll, Lewis, 1832-1898; Tenniel, John, 1820-1914 [Illustrator]; Anónimo"));
+
+        assertEquals(Set.of(new PersonDTO("Carroll, Lewis", 1832, 1898), new PersonDTO("Anónimo", 0, 0)), book.authors());
+        assertEquals("https://www.gutenberg.org/ebooks/11.html.images", book.htmlLink());
+        assertNull(GutenbergCsvParser.toBook(List.of("12", "Sound", "2008", "Audio", "en", "")));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,149 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.JpaTestConfiguration;
+import com.bonidev.literalura.catalog.ReadOnlyCatalog;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.index.CatalogSearchIndex;
+import com.bonidev.literalura.index.LanguageIndex;
+import com.bonidev.literalura.index.LifespanIndex;
+import com.bonidev.literalura.index.TopBooksIndex;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la exportación y carga de la instantánea sobre H2, y de los listados atendidos desde ella.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Import({BookService.class, PersonService.class, BookMapper.class, PersonMapper.class, AuthorNameDictionary.class, CatalogSnapshotService.class, AuthorResolver.class, CatalogSearchIndex.class, LifespanIndex.class, LanguageIndex.class, TopBooksIndex.class})
+class CatalogSnapshotServiceTest {
+
+    private static final int BOOKS = 40;
+
+    @Autowired
+    private CatalogSnapshotService snapshotService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void fillCatalog() {
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new BookDTO("Libro " + i,
+                    Set.of(new PersonDTO("Autor " + i % 10, 1700 + 10 * (i % 10), 1760 + 10 * (i % 10)), new PersonDTO("Núñez, José", -50, 20)),
+                    i % 3 == 0 ? Set.of("es", "fr") : Set.of("en"),
+                    i % 4 == 0 ? null : "https://example.org/" + i, i * 100));
+        }
+        bookService.saveBooks(books);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void dropSnapshot() {
+        snapshotService.onCatalogImported(new CatalogImportedEvent(0));
+    }
+
+    @Test
+    void loadedSnapshotServesListingsWithoutQueries() throws IOException {
+        List<String> allBooks = titles(bookService.getAllBooks(), BookEntity::getTitle);
+        List<String> spanishBooks = titles(bookService.getBooksByLanguage("es"), BookEntity::getTitle);
+        List<String> alive = titles(personService.getLivingPersonsInAGivenYear(1750), PersonEntity::getName);
+        entityManager.clear();
+
+        Path file = directory.resolve("catalogo.snap");
+        CatalogSnapshotService.ExportReport report = snapshotService.export(file);
+        assertEquals(BOOKS, report.books());
+        assertEquals(11, report.persons());
+        assertEquals(Files.size(file), report.bytes());
+
+        snapshotService.load(file);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BookEntity> books = bookService.getAllBooks();
+        assertEquals(allBooks, titles(books, BookEntity::getTitle));
+        assertEquals(spanishBooks, titles(bookService.getBooksByLanguage("es"), BookEntity::getTitle));
+        assertEquals(alive, titles(personService.getLivingPersonsInAGivenYear(1750), PersonEntity::getName));
+        assertEquals(Map.of(-60, 0, -50, 1), personService.countLivingPersonsByDecade(-55, -41));
+        assertEquals(Map.of(1750, 6, 1760, 7), personService.countLivingPersonsByDecade(1755, 1765));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        BookEntity first = books.get(0);
+        assertEquals(Set.of("es", "fr"), first.getLanguages());
+        assertNull(first.getHtmlLink());
+        assertTrue(first.getAuthors().stream().anyMatch(author -> author.getBirthYear() == -50 && author.getName().equals("Núñez, José")));
+        assertEquals(BOOKS, first.getAuthors().stream().filter(author -> author.getBirthYear() == -50).findFirst().orElseThrow().getBooks().size());
+        assertEquals(300, books.get(3).getDownloadCount());
+    }
+
+    @Test
+    void writesInvalidateTheLoadedSnapshot() {
+        Path file = directory.resolve("catalogo.snap");
+        snapshotService.export(file);
+        snapshotService.load(file);
+
+        snapshotService.onBookSaved(new BookSavedEvent(new BookEntity()));
+
+        assertTrue(snapshotService.catalog().isEmpty());
+    }
+
+    @Test
+    void damagedSnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("catalogo.snap");
+        snapshotService.export(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(file, bytes);
+
+        UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> snapshotService.load(file));
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(snapshotService.catalog().map(ReadOnlyCatalog::bookCount).isEmpty());
+    }
+
+    private static <T> List<String> titles(List<T> values, Function<T, String> name) {
+        return values.stream().map(name).sorted().toList();
+    }
+}
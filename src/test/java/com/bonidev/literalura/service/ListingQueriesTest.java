@@ -0,0 +1,262 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.JpaTestConfiguration;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.index.CatalogSearchIndex;
+import com.bonidev.literalura.index.LanguageIndex;
+import com.bonidev.literalura.index.LifespanIndex;
+import com.bonidev.literalura.index.TopBooksIndex;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica el número de sentencias SQL de cada listado, para que no dependa del tamaño del catálogo.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Import({BookService.class, PersonService.class, BookMapper.class, PersonMapper.class, AuthorNameDictionary.class, CatalogSnapshotService.class, AuthorResolver.class, CatalogSearchIndex.class, LifespanIndex.class, LanguageIndex.class, TopBooksIndex.class})
+class ListingQueriesTest {
+
+    private static final int BOOKS = 60;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private LifespanIndex lifespanIndex;
+
+    @Autowired
+    private LanguageIndex languageIndex;
+
+    @Autowired
+    private TopBooksIndex topBooksIndex;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void fillCatalog() {
+        // Cada prueba revierte su transacción, así que los índices en memoria no deben sobrevivir entre pruebas
+        lifespanIndex.onCatalogImported(new CatalogImportedEvent(0));
+        languageIndex.onCatalogImported(new CatalogImportedEvent(0));
+        topBooksIndex.onCatalogImported(new CatalogImportedEvent(0));
+
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new BookDTO("Libro " + i,
+                    Set.of(new PersonDTO("Autor " + i, 1800, 1870), new PersonDTO("Coautor " + i % 7, 1810, 1880)),
+                    Set.of("es", i % 2 == 0 ? "en" : "fr"),
+                    "https://example.org/" + i, i));
+        }
+        bookService.saveBooks(books);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void bookPageUsesTwoStatementsAndNoEntities() {
+        Slice<BookDTO> page = bookService.getBooksPage(1, 20);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(20, page.getNumberOfElements());
+        assertTrue(page.hasNext());
+        assertEquals("Libro 20", page.getContent().get(0).title());
+        assertEquals(2, page.getContent().get(0).authors().size());
+        assertEquals(Set.of("es", "en"), page.getContent().get(0).languages());
+    }
+
+    @Test
+    void personPageFetchesBooksWithTheEntityGraph() {
+        Slice<PersonEntity> page = personService.getPersonsPage(0, 20);
+        page.forEach(PersonEntity::toString);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(20, page.getNumberOfElements());
+    }
+
+    @Test
+    void livingPersonsUseOneStatementOnceIndexed() {
+        assertEquals(BOOKS + 7, personService.getLivingPersonsInAGivenYear(1815).size());
+        statistics.clear();
+
+        List<PersonEntity> persons = personService.getLivingPersonsInAGivenYear(1805);
+        persons.forEach(PersonEntity::toString);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(BOOKS, persons.size());
+    }
+
+    @Test
+    void decadeHistogramFromTheDatabaseMatchesTheIndex() {
+        Map<Integer, Integer> expected = Map.of(1790, 0, 1800, BOOKS, 1810, BOOKS + 7, 1820, BOOKS + 7, 1830, BOOKS + 7,
+                1840, BOOKS + 7, 1850, BOOKS + 7, 1860, BOOKS + 7, 1870, BOOKS + 7, 1880, 7);
+        assertEquals(expected, personService.countLivingPersonsByDecade(1795, 1885));
+
+        PersonService target = AopTestUtils.getTargetObject(personService);
+        ReflectionTestUtils.setField(target, "lifespanIndexEnabled", false);
+        try {
+            statistics.clear();
+            assertEquals(expected, personService.countLivingPersonsByDecade(1795, 1885));
+            assertEquals(1, statistics.getPrepareStatementCount());
+        } finally {
+            ReflectionTestUtils.setField(target, "lifespanIndexEnabled", true);
+        }
+    }
+
+    @Test
+    void multiLanguagePagesReadOnlyThePageOnceIndexed() {
+        assertEquals(Map.of("en", BOOKS / 2, "es", BOOKS, "fr", BOOKS / 2), bookService.countBooksByLanguage());
+        statistics.clear();
+
+        Slice<BookDTO> both = bookService.getBooksByLanguagesPage(List.of("es", "fr"), true, 1, 20);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(10, both.getNumberOfElements());
+        assertFalse(both.hasNext());
+        assertTrue(both.getContent().stream().allMatch(book -> book.languages().containsAll(Set.of("es", "fr"))));
+
+        Slice<BookDTO> either = bookService.getBooksByLanguagesPage(List.of("en", "fr"), false, 0, 20);
+        assertEquals(20, either.getNumberOfElements());
+        assertTrue(either.hasNext());
+        assertTrue(bookService.getBooksByLanguagesPage(List.of("en", "fr"), true, 0, 20).isEmpty());
+    }
+
+    @Test
+    void booksByLanguageUseOneStatement() {
+        List<BookEntity> books = bookService.getBooksByLanguage("fr");
+        books.forEach(book -> book.getAuthors().forEach(PersonEntity::getName));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(BOOKS / 2, books.size());
+        assertEquals(Set.of("es", "fr"), books.get(0).getLanguages());
+    }
+
+    @Test
+    void walkingAllBookPagesVisitsEachBookOnceWithTwoStatementsPerPage() {
+        List<String> titles = new ArrayList<>();
+        int pages = 0;
+        Slice<BookDTO> page;
+        do {
+            statistics.clear();
+            page = bookService.getBooksPage(pages++, 25);
+            assertTrue(statistics.getPrepareStatementCount() <= 2, "Sentencias: " + statistics.getPrepareStatementCount());
+            page.forEach(book -> titles.add(book.title()));
+        } while (page.hasNext());
+
+        assertEquals(3, pages);
+        assertEquals(IntStream.range(0, BOOKS).mapToObj(i -> "Libro " + i).toList(), titles);
+        assertTrue(bookService.getBooksPage(pages, 25).isEmpty());
+    }
+
+    @Test
+    void walkingAllPersonPagesVisitsEachPersonOnceInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        int pages = 0;
+        Slice<PersonEntity> page;
+        do {
+            statistics.clear();
+            page = personService.getPersonsPage(pages++, 30);
+            page.forEach(PersonEntity::toString);
+            assertTrue(statistics.getPrepareStatementCount() <= 2, "Sentencias: " + statistics.getPrepareStatementCount());
+            page.forEach(person -> ids.add(person.getId()));
+        } while (page.hasNext());
+
+        // Un autor por libro más siete coautores compartidos
+        assertEquals(3, pages);
+        assertEquals(BOOKS + 7, ids.size());
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+    }
+
+    @Test
+    void statisticsAndTopBooksReadOnlyTheReturnedRows() {
+        BookRepository.DownloadStats stats = bookService.getDownloadStats();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(BOOKS, stats.getBooks());
+        assertEquals(0, stats.getMinimum());
+        assertEquals(BOOKS - 1, stats.getMaximum());
+        assertEquals((BOOKS - 1) / 2.0, stats.getAverage(), 1e-9);
+        assertEquals(BOOKS * (BOOKS - 1) / 2, stats.getTotal());
+        assertEquals((BOOKS - 1) / 2.0, stats.getMedian(), 1e-9);
+
+        assertEquals(List.of("Libro 59", "Libro 58", "Libro 57"), titles(bookService.getTopBooks(3)));
+        statistics.clear();
+
+        // Con el ranking en memoria solo se leen los libros devueltos
+        assertEquals(List.of("Libro 59", "Libro 58"), titles(bookService.getTopBooks(2)));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertEquals(List.of("Libro 59", "Libro 57"), titles(bookService.getTopBooksByLanguage("fr", 2)));
+        Long coauthor = entityManager.getEntityManager()
+                .createQuery("SELECT p.id FROM PersonEntity p WHERE p.name = 'Coautor 0'", Long.class)
+                .getSingleResult();
+        assertEquals(List.of("Libro 56", "Libro 49"), titles(bookService.getTopBooksByAuthor(coauthor, 2)));
+    }
+
+    @Test
+    void topBooksFollowSavedAndUpdatedBooks() {
+        bookService.getTopBooks(3);
+        bookService.getTopBooksByLanguage("fr", 3);
+
+        BookDTO popular = new BookDTO("Popular", Set.of(new PersonDTO("Autor 1", 1800, 1870)), Set.of("en"), null, 1000);
+        bookService.saveBooks(List.of(popular));
+        entityManager.flush();
+        BookEntity saved = entityManager.getEntityManager()
+                .createQuery("SELECT b FROM BookEntity b WHERE b.title = 'Popular'", BookEntity.class)
+                .getSingleResult();
+        // Las pruebas no confirman su transacción, así que el evento se entrega a mano
+        topBooksIndex.onBookSaved(new BookSavedEvent(saved));
+        statistics.clear();
+
+        assertEquals(List.of("Popular", "Libro 59"), titles(bookService.getTopBooks(2)));
+        assertEquals(List.of("Libro 59", "Libro 57"), titles(bookService.getTopBooksByLanguage("fr", 2)));
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        // Bajar las descargas de un libro del ranking obliga a releerlo
+        bookService.saveBooks(List.of(new BookDTO("Popular", popular.authors(), popular.languages(), null, 1)));
+        entityManager.flush();
+        topBooksIndex.onBookUpdated(new BookUpdatedEvent("Popular", saved.getAuthorKey(), 1));
+        entityManager.clear();
+
+        assertEquals(List.of("Libro 59", "Libro 58"), titles(bookService.getTopBooks(2)));
+    }
+
+    private static List<String> titles(List<BookDTO> books) {
+        return books.stream().map(BookDTO::title).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.FormatLinks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas de la lectura por tokens del objeto "formats".
+ */
+class NestedJsonDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void htmlLinkIsReadSkippingOtherFormatsAndNestedValues() throws Exception {
+        BookDTO book = objectMapper.readValue("""
+                {"title": "Libro", "authors": [], "languages": ["es"], "download_count": 3,
+                 "formats": {"application/epub+zip": "https://example.org/1.epub",
+                             "x-extra": {"nested": ["a", {"b": 1}]},
+                             "text/html; charset=utf-8": "https://example.org/1-utf8.html",
+                             "text/html": "https://example.org/1.html"}}
+                """, BookDTO.class);
+
+        assertEquals("https://example.org/1.html", book.htmlLink());
+        assertEquals(3, book.downloadCount());
+    }
+
+    @Test
+    void missingHtmlLinkIsNull() throws Exception {
+        BookDTO book = objectMapper.readValue("""
+                {"title": "Libro", "authors": [], "languages": ["es"],
+                 "formats": {"application/epub+zip": "https://example.org/1.epub"}}
+                """, BookDTO.class);
+
+        assertNull(book.htmlLink());
+    }
+
+    @Test
+    void htmlVariantIsUsedWhenThereIsNoExactHtmlLink() throws Exception {
+        BookDTO book = objectMapper.readValue("""
+                {"title": "Libro", "authors": [], "languages": ["es"],
+                 "formats": {"text/html-fragment": "https://example.org/otro",
+                             "text/html; charset=iso-8859-1": "https://example.org/1-latin1.html"}}
+                """, BookDTO.class);
+
+        assertEquals("https://example.org/1-latin1.html", book.htmlLink());
+    }
+
+    @Test
+    void formatsThatAreNotAnObjectAreSkipped() throws Exception {
+        BookDTO book = objectMapper.readValue("""
+                {"title": "Libro", "authors": [], "languages": ["es"], "formats": ["text/html"], "download_count": 4}
+                """, BookDTO.class);
+
+        assertNull(book.htmlLink());
+        assertEquals(4, book.downloadCount());
+    }
+
+    @Test
+    void formatLinksCaptureEveryKnownFormat() throws Exception {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new SimpleModule().addDeserializer(FormatLinks.class, new FormatLinksDeserializer()));
+
+        FormatLinks links = mapper.readValue("""
+                {"text/plain; charset=us-ascii": "https://example.org/1.txt",
+                 "image/jpeg": "https://example.org/1.jpg",
+                 "application/epub+zip": "https://example.org/1.epub",
+                 "application/octet-stream": "https://example.org/1.bin",
+                 "text/plain-unknown": "https://example.org/otro",
+                 "x-extra": {"nested": ["a"]}}
+                """, FormatLinks.class);
+
+        assertEquals(Map.of(FormatLinks.Format.PLAIN_TEXT, "https://example.org/1.txt",
+                FormatLinks.Format.COVER_IMAGE, "https://example.org/1.jpg",
+                FormatLinks.Format.EPUB, "https://example.org/1.epub",
+                FormatLinks.Format.BINARY, "https://example.org/1.bin"), links.asMap());
+        assertNull(links.html());
+    }
+}
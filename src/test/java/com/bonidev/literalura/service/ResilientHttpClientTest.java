@@ -0,0 +1,199 @@
+package com.bonidev.literalura.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del cliente resiliente contra un servidor HTTP local que inyecta fallos: cada solicitud consume la
+ * siguiente falla programada (un código de estado o una demora) y, si no quedan, responde 200.
+ */
+class ResilientHttpClientTest {
+
+    private HttpServer server;
+    private URI uri;
+    private final Queue<Fault> faults = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private record Fault(int status, long delayMillis, String retryAfter) {
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/books/");
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/books/", exchange -> {
+            requests.incrementAndGet();
+            Fault fault = faults.poll();
+            try {
+                if (fault != null && fault.delayMillis() > 0) Thread.sleep(fault.delayMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fault != null && fault.status() != 200) {
+                if (fault.retryAfter() != null) exchange.getResponseHeaders().add("Retry-After", fault.retryAfter());
+                exchange.sendResponseHeaders(fault.status(), -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void throttlingAndServerErrorsAreRetriedWithBackoff() throws Exception {
+        faults.add(new Fault(503, 0, null));
+        faults.add(new Fault(429, 0, "0"));
+        faults.add(new Fault(502, 0, null));
+        ResilientHttpClient client = client(settings(4, 10, 0, 0));
+
+        HttpResponse<String> response = client.send(request(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("ok", response.body());
+        assertEquals(4, requests.get());
+        assertEquals(1, registry.get("literalura.api.retries").tag("reason", "429").counter().count());
+        assertEquals(2, registry.find("literalura.api.retries").counters().stream()
+                .filter(counter -> counter.getId().getTag("reason").startsWith("50")).mapToDouble(c -> c.count()).sum());
+    }
+
+    @Test
+    void theLastResponseIsReturnedWhenAttemptsRunOut() throws Exception {
+        for (int i = 0; i < 3; i++) faults.add(new Fault(500, 0, null));
+        ResilientHttpClient client = client(settings(2, 10, 0, 0));
+
+        HttpResponse<String> response = client.send(request(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(500, response.statusCode());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void slowResponsesTimeOutAndShrinkTheConcurrencyLimit() {
+        faults.add(new Fault(200, 2_000, null));
+        ResilientHttpClient.Settings settings = new ResilientHttpClient.Settings(Duration.ofMillis(200), 0, 1, 1,
+                Duration.ZERO, Duration.ZERO, 10, Duration.ofMinutes(1), 1, 8);
+        ResilientHttpClient client = client(settings);
+
+        long start = System.nanoTime();
+        assertThrows(HttpTimeoutException.class, () -> client.send(request(), HttpResponse.BodyHandlers.ofString()));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(4.0, client.concurrencyLimit());
+    }
+
+    @Test
+    void theCircuitOpensAfterConsecutiveFailuresAndClosesAfterASuccessfulProbe() throws Exception {
+        for (int i = 0; i < 3; i++) faults.add(new Fault(500, 0, null));
+        ResilientHttpClient client = client(settings(1, 3, 0, 0));
+
+        for (int i = 0; i < 3; i++) assertEquals(500, client.send(request(), HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(ResilientHttpClient.CircuitState.OPEN, client.circuitState());
+
+        assertThrows(ApiUnavailableException.class, () -> client.send(request(), HttpResponse.BodyHandlers.ofString()));
+        assertEquals(3, requests.get());
+        assertEquals(1, registry.get("literalura.api.rejected").counter().count());
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals(200, client.send(request(), HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(ResilientHttpClient.CircuitState.CLOSED, client.circuitState());
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void aFailedProbeReopensTheCircuit() throws Exception {
+        for (int i = 0; i < 2; i++) faults.add(new Fault(503, 0, null));
+        ResilientHttpClient client = client(settings(1, 1, 0, 0));
+
+        client.send(request(), HttpResponse.BodyHandlers.ofString());
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        client.send(request(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(ResilientHttpClient.CircuitState.OPEN, client.circuitState());
+        assertThrows(ApiUnavailableException.class, () -> client.send(request(), HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Test
+    void aSynchronousFailureOfTheHttpClientReleasesItsSlotAndCountsForTheCircuit() throws Exception {
+        // Una sola solicitud en curso: la siguiente solo pasa si el intento fallido liberó su lugar
+        ResilientHttpClient.Settings settings = new ResilientHttpClient.Settings(Duration.ofSeconds(5), 0, 1, 3,
+                Duration.ofMillis(10), Duration.ofMillis(50), 1, Duration.ofSeconds(30), 1, 1);
+        ResilientHttpClient client = client(settings);
+
+        // Sin manejador del cuerpo, HttpClient.sendAsync lanza la excepción en lugar de devolver un futuro
+        assertThrows(NullPointerException.class, () -> client.send(request(), null));
+        assertEquals(ResilientHttpClient.CircuitState.OPEN, client.circuitState());
+        assertEquals(0, requests.get());
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        HttpResponse<String> probe = client.sendAsync(request(), HttpResponse.BodyHandlers.ofString()).get(5, TimeUnit.SECONDS);
+        assertEquals(200, probe.statusCode());
+        assertEquals(ResilientHttpClient.CircuitState.CLOSED, client.circuitState());
+    }
+
+    @Test
+    void theTokenBucketSpacesRequestsOut() {
+        // 20 solicitudes por segundo sin ráfagas: 6 solicitudes necesitan al menos 5 esperas de 50 ms
+        ResilientHttpClient client = new ResilientHttpClient(HttpClient.newHttpClient(), settings(1, 10, 20, 1), registry);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+        for (int i = 0; i < 6; i++) pending.add(client.sendAsync(request(), HttpResponse.BodyHandlers.ofString()));
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(240));
+        assertEquals(6, requests.get());
+    }
+
+    private ResilientHttpClient client(ResilientHttpClient.Settings settings) {
+        return new ResilientHttpClient(HttpClient.newHttpClient(), settings, registry, clock::get);
+    }
+
+    private static ResilientHttpClient.Settings settings(int maxAttempts, int failureThreshold, double requestsPerSecond, int burst) {
+        return new ResilientHttpClient.Settings(Duration.ofSeconds(5), requestsPerSecond, burst, maxAttempts,
+                Duration.ofMillis(10), Duration.ofMillis(50), failureThreshold, Duration.ofSeconds(30), 1, 8);
+    }
+
+    private HttpRequest request() {
+        return HttpRequest.newBuilder().uri(uri).build();
+    }
+}
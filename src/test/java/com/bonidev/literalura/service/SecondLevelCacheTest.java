@@ -0,0 +1,130 @@
+package com.bonidev.literalura.service;
+
+import com.bonidev.literalura.JpaTestConfiguration;
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.index.CatalogSearchIndex;
+import com.bonidev.literalura.index.LanguageIndex;
+import com.bonidev.literalura.index.TopBooksIndex;
+import com.bonidev.literalura.model.BookEntity;
+import com.bonidev.literalura.model.PersonEntity;
+import com.bonidev.literalura.repository.PersonRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica la caché de segundo nivel con transacciones confirmadas, ya que Hibernate no usa los resultados de
+ * consultas cacheados dentro de una transacción que modificó sus tablas.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Import({BookService.class, BookMapper.class, PersonMapper.class, AuthorNameDictionary.class, CatalogSnapshotService.class, AuthorResolver.class, CatalogSearchIndex.class,
+        LanguageIndex.class, TopBooksIndex.class, SecondLevelCacheService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    private static final int BOOKS = 40;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private SecondLevelCacheService cacheService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void fillCatalog() {
+        cacheService.onCatalogImported(new CatalogImportedEvent(0));
+
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new BookDTO("Libro " + i, Set.of(new PersonDTO("Autor " + i % 4, 1820, 1880)),
+                    Set.of(i % 2 == 0 ? "es" : "fr"), null, i));
+        }
+        bookService.saveBooks(books);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void clearCatalog() {
+        jdbcTemplate.update("DELETE FROM book_author");
+        jdbcTemplate.update("DELETE FROM book_language");
+        jdbcTemplate.update("DELETE FROM books");
+        jdbcTemplate.update("DELETE FROM persons");
+        cacheService.onCatalogImported(new CatalogImportedEvent(0));
+    }
+
+    @Test
+    void repeatedListingsDoNotReachTheDatabase() {
+        List<BookEntity> first = bookService.getBooksByLanguage("fr");
+        long statementsFirst = statistics.getPrepareStatementCount();
+        statistics.clear();
+
+        List<BookEntity> second = bookService.getBooksByLanguage("fr");
+        second.forEach(book -> book.getAuthors().forEach(PersonEntity::getName));
+
+        assertTrue(statementsFirst > 0);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(first.size(), second.size());
+        assertTrue(cacheService.report().stream()
+                .anyMatch(region -> region.region().equals("listings") && region.hitRatio() > 0), cacheService.report().toString());
+    }
+
+    @Test
+    void savingABookRefreshesCachedQueriesAndAuthorCollections() {
+        Long author = personRepository.getLivingPersonsInAGivenYear(1850).stream()
+                .filter(person -> person.getName().equals("Autor 1"))
+                .findFirst().orElseThrow()
+                .getId();
+        assertEquals(BOOKS / 4, booksOf(author));
+        statistics.clear();
+        assertEquals(BOOKS / 4, booksOf(author));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        bookService.saveBooks(List.of(new BookDTO("Libro nuevo", Set.of(new PersonDTO("Autor 1", 1820, 1880)), Set.of("fr"), null, 1)));
+
+        assertEquals(BOOKS / 4 + 1, booksOf(author));
+        assertEquals(BOOKS / 2 + 1, bookService.getBooksByLanguage("fr").size());
+    }
+
+    // Lee el autor y sus libros en un contexto de persistencia nuevo, como lo haría una nueva transacción
+    private int booksOf(Long authorId) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(PersonEntity.class, authorId).getBooks().size();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
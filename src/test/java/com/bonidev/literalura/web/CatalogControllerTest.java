@@ -0,0 +1,210 @@
+package com.bonidev.literalura.web;
+
+import com.bonidev.literalura.dto.BookDTO;
+import com.bonidev.literalura.dto.PersonDTO;
+import com.bonidev.literalura.service.BookService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del modo servidor con la aplicación completa sobre H2.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:literalura;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "literalura.metrics.port=false"
+})
+@ActiveProfiles("server")
+class CatalogControllerTest {
+
+    private static final int BOOKS = 500;
+    private static boolean seeded;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookService bookService;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void seedCatalog() {
+        if (seeded) return;
+
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new BookDTO("Libro " + i,
+                    Set.of(new PersonDTO("Autor " + i % 50, 1700 + i % 50 * 4, 1760 + i % 50 * 4)),
+                    Set.of(i % 2 == 0 ? "es" : "en"),
+                    "https://example.org/" + i + ".html", i));
+        }
+        bookService.saveBooks(books);
+        seeded = true;
+    }
+
+    @Test
+    void unchangedPagesAreAnsweredWith304() throws Exception {
+        HttpResponse<String> first = get("/api/books?page=1&size=5");
+        JsonNode page = objectMapper.readTree(first.body());
+
+        assertEquals(200, first.statusCode());
+        assertEquals(5, page.get("content").size());
+        assertEquals("Libro 5", page.get("content").get(0).get("title").asText());
+        assertTrue(page.get("has_next").asBoolean());
+
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> second = send(request("/api/books?page=1&size=5").header("If-None-Match", etag).build());
+        assertEquals(304, second.statusCode());
+        assertEquals("", second.body());
+    }
+
+    @Test
+    void largeResponsesAreCompressed() throws Exception {
+        HttpResponse<byte[]> response = client.send(request("/api/books?size=100").header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+    }
+
+    @Test
+    void authorsAndLanguagesAreQueryable() throws Exception {
+        JsonNode alive = objectMapper.readTree(get("/api/authors/alive?year=1705").body());
+        JsonNode spanish = objectMapper.readTree(get("/api/books/by-language?languages=es&size=100").body());
+        JsonNode both = objectMapper.readTree(get("/api/books/by-language?languages=es,en&match=all").body());
+
+        assertEquals(Set.of("Autor 0", "Autor 1"), Set.of(alive.get(0).get("name").asText(), alive.get(1).get("name").asText()));
+        assertEquals(10, alive.get(0).get("books").size());
+        assertEquals(100, spanish.get("content").size());
+        assertEquals(0, both.get("content").size());
+
+        JsonNode cache = objectMapper.readTree(get("/api/cache").body());
+        assertEquals("book", cache.get(0).get("region").asText());
+        assertTrue(cache.get(0).get("puts").asLong() > 0, cache.toString());
+        assertTrue(cache.get(0).has("hit_ratio"));
+    }
+
+    @Test
+    void statsAndTopBooksAreQueryable() throws Exception {
+        JsonNode stats = objectMapper.readTree(get("/api/books/stats").body());
+        JsonNode top = objectMapper.readTree(get("/api/books/top?limit=2").body());
+        JsonNode spanish = objectMapper.readTree(get("/api/books/top?language=es&limit=1").body());
+
+        assertEquals(BOOKS, stats.get("books").asInt());
+        assertEquals((BOOKS - 1) / 2.0, stats.get("median").asDouble(), 1e-9);
+        assertEquals("Libro 499", top.get(0).get("title").asText());
+        assertEquals("Libro 498", top.get(1).get("title").asText());
+        assertEquals("Libro 498", spanish.get(0).get("title").asText());
+    }
+
+    @Test
+    void invalidParametersAreRejected() throws Exception {
+        assertEquals(400, get("/api/books?size=1000").statusCode());
+        assertEquals(400, get("/api/books/top?limit=500").statusCode());
+        assertEquals(400, get("/api/books/by-language?languages=esp").statusCode());
+        assertEquals(400, get("/api/authors/alive?from=1900&to=1800").statusCode());
+    }
+
+    /**
+     * Prueba de carga: aumenta la cantidad de clientes concurrentes y reporta las solicitudes por segundo que
+     * se sostienen sin superar la latencia p99 objetivo. Se ejecuta con -Dliteralura.loadtest=true; el
+     * objetivo se ajusta con -Dliteralura.loadtest.p99-ms (50 por defecto).
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "literalura.loadtest", matches = "true")
+    void throughputAtFixedP99Latency() throws Exception {
+        long p99TargetNanos = Duration.ofMillis(Long.getLong("literalura.loadtest.p99-ms", 50)).toNanos();
+        Duration warmup = Duration.ofSeconds(1);
+        Duration measurement = Duration.ofSeconds(3);
+        String[] paths = {"/api/books?page=%d&size=20", "/api/authors?page=%d&size=20",
+                "/api/authors/alive?year=17%02d", "/api/books/by-language?languages=es&page=%d"};
+
+        double best = 0;
+        System.out.println("\nclientes  solicitudes/s  p99 (ms)");
+        for (int clients = 1; clients <= 64; clients *= 2) {
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            List<Future<long[]>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                results.add(executor.submit(() -> runClient(client, paths, start + warmup.toNanos(), start + warmup.plus(measurement).toNanos())));
+            }
+
+            List<Long> latencies = new ArrayList<>();
+            for (Future<long[]> result : results) {
+                for (long latency : result.get()) latencies.add(latency);
+            }
+            executor.shutdown();
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            long p99 = sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)];
+            double throughput = sorted.length / (measurement.toNanos() / 1e9);
+            System.out.printf("%8d  %13.0f  %8.2f%n", clients, throughput, p99 / 1e6);
+
+            if (p99 > p99TargetNanos) break;
+            best = Math.max(best, throughput);
+        }
+
+        System.out.printf("Rendimiento con p99 <= %d ms: %.0f solicitudes/s%n", p99TargetNanos / 1_000_000, best);
+        assertTrue(best > 0, "Ningún nivel de concurrencia cumplió la latencia p99 objetivo");
+    }
+
+    private long[] runClient(int client, String[] paths, long measureFrom, long measureUntil) throws IOException, InterruptedException {
+        long[] latencies = new long[1024];
+        int count = 0;
+        for (int i = client; System.nanoTime() < measureUntil; i++) {
+            String path = paths[i % paths.length].formatted(i % 25);
+            long begin = System.nanoTime();
+            HttpResponse<String> response = get(path);
+            long end = System.nanoTime();
+
+            if (response.statusCode() != 200) throw new IllegalStateException(path + " -> " + response.statusCode());
+            if (begin >= measureFrom && end <= measureUntil) {
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = end - begin;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(request(path).build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+    }
+}